@@ -0,0 +1,76 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.core.common.jdbc;
+
+import edp.core.exception.SourceException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 带熔断的数据源代理，记录获取连接的成败，连接池等待超时不计入失败
+ * 连接有效性由 druid 空闲检测保证，这里不再逐次 isValid
+ */
+public class CircuitBreakerDataSource extends DelegatingDataSource {
+
+    private final String jdbcUrl;
+
+    private final SourceCircuitBreaker circuitBreaker;
+
+    public CircuitBreakerDataSource(DataSource targetDataSource, String jdbcUrl, SourceCircuitBreaker circuitBreaker) {
+        super(targetDataSource);
+        this.jdbcUrl = jdbcUrl;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        checkAvailable();
+        try {
+            Connection connection = super.getConnection();
+            circuitBreaker.onSuccess();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            circuitBreaker.onFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        checkAvailable();
+        try {
+            Connection connection = super.getConnection(username, password);
+            circuitBreaker.onSuccess();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            circuitBreaker.onFailure(e);
+            throw e;
+        }
+    }
+
+    private void checkAvailable() {
+        if (!circuitBreaker.allowRequest()) {
+            throw new SourceException("Source is unavailable, jdbcUrl:" + jdbcUrl + ", please try again after " + circuitBreaker.getRemainingSeconds() + " seconds");
+        }
+    }
+}
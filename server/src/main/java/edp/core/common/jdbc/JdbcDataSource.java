@@ -39,6 +39,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -160,8 +161,22 @@ public class JdbcDataSource {
     @Getter
     protected String filters;
 
+    @Value("${source.fetch-size:500}")
+    @Getter
+    protected int fetchSize;
+
+    @Value("${source.circuit-breaker.failure-threshold:3}")
+    @Getter
+    protected int circuitBreakerFailureThreshold;
+
+    @Value("${source.circuit-breaker.open-millis:30000}")
+    @Getter
+    protected long circuitBreakerOpenMillis;
+
     private static volatile Map<String, DruidDataSource> dataSourceMap = new ConcurrentHashMap<>();
     private static volatile Map<String, Lock> dataSourceLockMap = new ConcurrentHashMap<>();
+    private static volatile Map<String, JdbcTemplate> jdbcTemplateMap = new ConcurrentHashMap<>();
+    private static volatile Map<String, SourceCircuitBreaker> circuitBreakerMap = new ConcurrentHashMap<>();
     private static final Object lockLock = new Object();
     
     private Lock getDataSourceLock(String key) {
@@ -200,6 +215,7 @@ public class JdbcDataSource {
         }
     
         try {
+            jdbcTemplateMap.remove(key);
             DruidDataSource druidDataSource = dataSourceMap.remove(key);
             if (druidDataSource != null) {
                 druidDataSource.close();
@@ -372,7 +388,7 @@ public class JdbcDataSource {
                 druidDataSource.init();
             } catch (Exception e) {
                 log.error("Exception during pool initialization", e);
-                throw new SourceException(e.getMessage());
+                throw new SourceException(e.getMessage(), e);
             }
 
             dataSourceMap.put(key, druidDataSource);
@@ -384,6 +400,55 @@ public class JdbcDataSource {
         return druidDataSource;
     }
     
+    /**
+     * 获取数据源熔断器，数据源重建后熔断状态保留
+     *
+     * @param jdbcSourceInfo
+     * @return
+     */
+    public SourceCircuitBreaker getCircuitBreaker(JdbcSourceInfo jdbcSourceInfo) {
+        return circuitBreakerMap.computeIfAbsent(getDataSourceKey(jdbcSourceInfo),
+                k -> new SourceCircuitBreaker(circuitBreakerFailureThreshold, circuitBreakerOpenMillis));
+    }
+
+    /**
+     * 获取数据源共享的 JdbcTemplate，只读，不可修改其配置
+     * 数据源被释放或重建后随之重建
+     *
+     * @param jdbcSourceInfo
+     * @return
+     * @throws SourceException
+     */
+    public JdbcTemplate getJdbcTemplate(JdbcSourceInfo jdbcSourceInfo) throws SourceException {
+        String key = getDataSourceKey(jdbcSourceInfo);
+        JdbcTemplate jdbcTemplate = jdbcTemplateMap.get(key);
+        if (jdbcTemplate != null && jdbcTemplate.getDataSource() instanceof CircuitBreakerDataSource) {
+            DruidDataSource target = (DruidDataSource) ((CircuitBreakerDataSource) jdbcTemplate.getDataSource()).getTargetDataSource();
+            if (target != null && !target.isClosed()) {
+                return jdbcTemplate;
+            }
+        }
+
+        SourceCircuitBreaker circuitBreaker = getCircuitBreaker(jdbcSourceInfo);
+        if (circuitBreaker.isOpen()) {
+            throw new SourceException("Source is unavailable, jdbcUrl:" + jdbcSourceInfo.getJdbcUrl() + ", please try again after " + circuitBreaker.getRemainingSeconds() + " seconds");
+        }
+
+        DruidDataSource druidDataSource;
+        try {
+            druidDataSource = getDataSource(jdbcSourceInfo);
+        } catch (SourceException e) {
+            circuitBreaker.onFailure(e);
+            throw e;
+        }
+
+        jdbcTemplate = new JdbcTemplate(new CircuitBreakerDataSource(druidDataSource, jdbcSourceInfo.getJdbcUrl(), circuitBreaker));
+        jdbcTemplate.setDatabaseProductName(jdbcSourceInfo.getDatabase());
+        jdbcTemplate.setFetchSize(fetchSize);
+        jdbcTemplateMap.put(key, jdbcTemplate);
+        return jdbcTemplate;
+    }
+
     private String getDataSourceKey (JdbcSourceInfo jdbcSourceInfo) {
         return SourceUtils.getKey(jdbcSourceInfo.getName(),
                 jdbcSourceInfo.getJdbcUrl(),
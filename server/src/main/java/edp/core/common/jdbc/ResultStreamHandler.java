@@ -0,0 +1,70 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.core.common.jdbc;
+
+import edp.core.model.QueryColumn;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 结果集流式处理，行数据直接由 ResultSet 逐行回调，不在内存中聚合
+ */
+public interface ResultStreamHandler {
+
+    /**
+     * 结果集列信息，在读取任何行之前回调一次
+     *
+     * @param columns
+     * @throws IOException
+     */
+    void onColumns(List<QueryColumn> columns) throws IOException;
+
+    /**
+     * 单行数据，顺序与 columns 一致；values 数组会被复用，实现方不应持有其引用
+     *
+     * @param values
+     * @throws IOException
+     */
+    void onRow(Object[] values) throws IOException;
+
+    /**
+     * 结果集读取完毕
+     *
+     * @param pageNo
+     * @param pageSize
+     * @param totalCount
+     * @throws IOException
+     */
+    void onFinish(int pageNo, int pageSize, long totalCount) throws IOException;
+
+    /**
+     * 结果集读取完毕
+     *
+     * @param pageNo
+     * @param pageSize
+     * @param totalCount
+     * @param approximate totalCount 是否为估算值
+     * @throws IOException
+     */
+    default void onFinish(int pageNo, int pageSize, long totalCount, boolean approximate) throws IOException {
+        onFinish(pageNo, pageSize, totalCount);
+    }
+}
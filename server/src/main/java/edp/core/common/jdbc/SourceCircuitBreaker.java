@@ -0,0 +1,161 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.core.common.jdbc;
+
+import com.alibaba.druid.pool.GetConnectionTimeoutException;
+import lombok.Getter;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据源熔断器
+ * 连续连接失败达到阈值后熔断，熔断期间直接拒绝，不阻塞请求线程
+ * 熔断时间结束后只放行一个探测请求，成功则恢复，失败则继续熔断
+ * 只有连不上数据库才计为失败，连接池等待超时说明池已用尽，不计入
+ */
+public class SourceCircuitBreaker {
+
+    private static final long MIN_PROBE_MILLIS = 1000L;
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * 探测请求开始时间，0 表示没有进行中的探测
+     */
+    private final AtomicLong probeStartedAt = new AtomicLong(0L);
+
+    @Getter
+    private volatile long openUntil = 0L;
+
+    public SourceCircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.openMillis = Math.max(openMillis, 0L);
+    }
+
+    /**
+     * 是否处于熔断期
+     *
+     * @return
+     */
+    public boolean isOpen() {
+        return openUntil > 0L && System.currentTimeMillis() < openUntil;
+    }
+
+    /**
+     * 是否允许本次请求
+     *
+     * @return
+     */
+    public boolean allowRequest() {
+        if (openUntil == 0L) {
+            return true;
+        }
+        if (isOpen()) {
+            return false;
+        }
+        // 半开状态，只放行一个探测请求，探测迟迟没有结果时允许重新探测
+        long now = System.currentTimeMillis();
+        long startedAt = probeStartedAt.get();
+        if (startedAt == 0L || now - startedAt >= getProbeMillis()) {
+            return probeStartedAt.compareAndSet(startedAt, now);
+        }
+        return false;
+    }
+
+    public void onSuccess() {
+        if (openUntil == 0L && failures.get() == 0) {
+            return;
+        }
+        failures.set(0);
+        openUntil = 0L;
+        probeStartedAt.set(0L);
+    }
+
+    /**
+     * 记录获取连接失败，只有连接类错误计入熔断
+     *
+     * @param e
+     */
+    public void onFailure(Throwable e) {
+        if (!isConnectFailure(e)) {
+            // 不计入失败，但要结束探测，让下一个请求继续探测
+            probeStartedAt.set(0L);
+            return;
+        }
+        int count = failures.incrementAndGet();
+        if (probeStartedAt.get() > 0L || count >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMillis;
+            probeStartedAt.set(0L);
+        }
+    }
+
+    /**
+     * 剩余熔断时间（秒），半开状态下为探测结束前的等待时间
+     *
+     * @return
+     */
+    public long getRemainingSeconds() {
+        long now = System.currentTimeMillis();
+        long remaining = openUntil - now;
+        if (remaining <= 0L && openUntil > 0L) {
+            long startedAt = probeStartedAt.get();
+            remaining = startedAt > 0L ? startedAt + getProbeMillis() - now : 0L;
+        }
+        return remaining > 0L ? (remaining + 999L) / 1000L : 1L;
+    }
+
+    private long getProbeMillis() {
+        return Math.max(openMillis, MIN_PROBE_MILLIS);
+    }
+
+    /**
+     * 是否为连不上数据库的错误：网络连接异常或 SQLState 为 08 类（connection exception）
+     * druid 等待连接超时本身不算，除非其 cause 是连接错误（池中连接建不起来）
+     *
+     * @param e
+     * @return
+     */
+    public static boolean isConnectFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof GetConnectionTimeoutException) {
+                continue;
+            }
+            if (t instanceof ConnectException || t instanceof NoRouteToHostException || t instanceof UnknownHostException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
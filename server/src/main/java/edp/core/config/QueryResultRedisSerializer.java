@@ -0,0 +1,57 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.core.config;
+
+import edp.core.utils.QueryResultCodec;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 查询结果缓存序列化，结果集使用 QueryResultCodec 二进制编码，其他类型仍使用 json
+ */
+public class QueryResultRedisSerializer implements RedisSerializer<Object> {
+
+    private final GenericJackson2JsonRedisSerializer jsonRedisSerializer = new GenericJackson2JsonRedisSerializer();
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (!QueryResultCodec.isSupported(value)) {
+            return jsonRedisSerializer.serialize(value);
+        }
+        try {
+            return QueryResultCodec.encode(value);
+        } catch (Exception e) {
+            throw new SerializationException("Could not encode query result: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (!QueryResultCodec.isEncoded(bytes)) {
+            return jsonRedisSerializer.deserialize(bytes);
+        }
+        try {
+            return QueryResultCodec.decode(bytes);
+        } catch (Exception e) {
+            throw new SerializationException("Could not decode query result: " + e.getMessage(), e);
+        }
+    }
+}
@@ -59,4 +59,26 @@ public class RedisConfig {
         return redisTemplate;
     }
 
+    /**
+     * 查询结果缓存使用的 redisTemplate，结果集以二进制压缩格式存储
+     *
+     * @return
+     */
+    @Bean
+    public RedisTemplate<String, Object> queryCacheRedisTemplate() {
+        RedisTemplate<String, Object> redisTemplate = null;
+        if (isRedisEnable) {
+            log.info("Init queryCacheRedisTemplate");
+            RedisTemplate template = (RedisTemplate) beanFactory.getBean("redisTemplate");
+
+            redisTemplate = new RedisTemplate<>();
+            redisTemplate.setConnectionFactory(template.getConnectionFactory());
+            redisTemplate.setKeySerializer(new StringRedisSerializer());
+            redisTemplate.setValueSerializer(new QueryResultRedisSerializer());
+
+            redisTemplate.afterPropertiesSet();
+        }
+        return redisTemplate;
+    }
+
 }
\ No newline at end of file
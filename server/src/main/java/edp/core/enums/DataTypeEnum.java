@@ -24,37 +24,37 @@ import edp.core.exception.SourceException;
 
 public enum DataTypeEnum {
 
-    MYSQL("mysql", "mysql", "com.mysql.cj.jdbc.Driver", "`", "`", "'", "'"),
+    MYSQL("mysql", "mysql", "com.mysql.cj.jdbc.Driver", "`", "`", "'", "'", PaginationEnum.LIMIT_OFFSET),
 
-    ORACLE("oracle", "oracle", "oracle.jdbc.driver.OracleDriver", "\"", "\"", "\"", "\""),
+    ORACLE("oracle", "oracle", "oracle.jdbc.driver.OracleDriver", "\"", "\"", "\"", "\"", PaginationEnum.ROWNUM),
 
-    SQLSERVER("sqlserver", "sqlserver", "com.microsoft.sqlserver.jdbc.SQLServerDriver", "\"", "\"", "\"", "\""),
+    SQLSERVER("sqlserver", "sqlserver", "com.microsoft.sqlserver.jdbc.SQLServerDriver", "\"", "\"", "\"", "\"", PaginationEnum.OFFSET_FETCH),
 
-    H2("h2", "h2", "org.h2.Driver", "`", "`", "\"", "\""),
+    H2("h2", "h2", "org.h2.Driver", "`", "`", "\"", "\"", PaginationEnum.LIMIT_OFFSET),
 
-    PHOENIX("phoenix", "hbase phoenix", "org.apache.phoenix.jdbc.PhoenixDriver", "", "", "\"", "\""),
+    PHOENIX("phoenix", "hbase phoenix", "org.apache.phoenix.jdbc.PhoenixDriver", "", "", "\"", "\"", PaginationEnum.LIMIT_OFFSET),
 
-    MONGODB("mongo", "mongodb", "mongodb.jdbc.MongoDriver", "`", "`", "\"", "\""),
+    MONGODB("mongo", "mongodb", "mongodb.jdbc.MongoDriver", "`", "`", "\"", "\"", PaginationEnum.NONE),
 
-    ELASTICSEARCH("elasticsearch", "elasticsearch", "com.amazon.opendistroforelasticsearch.jdbc.Driver", "", "", "'", "'"),
+    ELASTICSEARCH("elasticsearch", "elasticsearch", "com.amazon.opendistroforelasticsearch.jdbc.Driver", "", "", "'", "'", PaginationEnum.LIMIT),
 
-    PRESTO("presto", "presto", "com.facebook.presto.jdbc.PrestoDriver", "\"", "\"", "\"", "\""),
+    PRESTO("presto", "presto", "com.facebook.presto.jdbc.PrestoDriver", "\"", "\"", "\"", "\"", PaginationEnum.LIMIT),
 
-    MOONBOX("moonbox", "moonbox", "moonbox.jdbc.MbDriver", "`", "`", "`", "`"),
+    MOONBOX("moonbox", "moonbox", "moonbox.jdbc.MbDriver", "`", "`", "`", "`", PaginationEnum.LIMIT),
 
-    CASSANDRA("cassandra", "cassandra", "com.github.adejanovski.cassandra.jdbc.CassandraDriver", "", "", "'", "'"),
+    CASSANDRA("cassandra", "cassandra", "com.github.adejanovski.cassandra.jdbc.CassandraDriver", "", "", "'", "'", PaginationEnum.LIMIT),
 
-    CLICKHOUSE("clickhouse", "clickhouse", "ru.yandex.clickhouse.ClickHouseDriver", "", "", "\"", "\""),
+    CLICKHOUSE("clickhouse", "clickhouse", "ru.yandex.clickhouse.ClickHouseDriver", "", "", "\"", "\"", PaginationEnum.LIMIT_OFFSET),
 
-    KYLIN("kylin", "kylin", "org.apache.kylin.jdbc.Driver", "\"", "\"", "\"", "\""),
+    KYLIN("kylin", "kylin", "org.apache.kylin.jdbc.Driver", "\"", "\"", "\"", "\"", PaginationEnum.LIMIT_OFFSET),
 
-    VERTICA("vertica", "vertica", "com.vertica.jdbc.Driver", "", "", "'", "'"),
+    VERTICA("vertica", "vertica", "com.vertica.jdbc.Driver", "", "", "'", "'", PaginationEnum.LIMIT_OFFSET),
 
-    HANA("sap", "sap hana", "com.sap.db.jdbc.Driver", "", "", "'", "'"),
+    HANA("sap", "sap hana", "com.sap.db.jdbc.Driver", "", "", "'", "'", PaginationEnum.LIMIT_OFFSET),
 
-    IMPALA("impala", "impala", "com.cloudera.impala.jdbc41.Driver", "", "", "'", "'"),
+    IMPALA("impala", "impala", "com.cloudera.impala.jdbc41.Driver", "", "", "'", "'", PaginationEnum.LIMIT),
 
-    TDENGINE("TAOS", "TAOS", "com.taosdata.jdbc.TSDBDriver", "'", "'", "\"", "\"");
+    TDENGINE("TAOS", "TAOS", "com.taosdata.jdbc.TSDBDriver", "'", "'", "\"", "\"", PaginationEnum.LIMIT_OFFSET);
 
     private String feature;
     private String desc;
@@ -63,8 +63,9 @@ public enum DataTypeEnum {
     private String keywordSuffix;
     private String aliasPrefix;
     private String aliasSuffix;
+    private PaginationEnum pagination;
 
-    DataTypeEnum(String feature, String desc, String driver, String keywordPrefix, String keywordSuffix, String aliasPrefix, String aliasSuffix) {
+    DataTypeEnum(String feature, String desc, String driver, String keywordPrefix, String keywordSuffix, String aliasPrefix, String aliasSuffix, PaginationEnum pagination) {
         this.feature = feature;
         this.desc = desc;
         this.driver = driver;
@@ -72,6 +73,7 @@ public enum DataTypeEnum {
         this.keywordSuffix = keywordSuffix;
         this.aliasPrefix = aliasPrefix;
         this.aliasSuffix = aliasSuffix;
+        this.pagination = pagination;
     }
 
     public static DataTypeEnum urlOf(String jdbcUrl) throws SourceException {
@@ -111,4 +113,8 @@ public enum DataTypeEnum {
     public String getAliasSuffix() {
         return aliasSuffix;
     }
+
+    public PaginationEnum getPagination() {
+        return pagination;
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.core.enums;
+
+/**
+ * 分页下推方式
+ * 可下推的方式由数据库完成偏移，其余方式只限制返回行数，偏移在客户端跳过
+ */
+public enum PaginationEnum {
+
+    /**
+     * sql LIMIT n OFFSET m
+     */
+    LIMIT_OFFSET("limit_offset", true),
+
+    /**
+     * sql OFFSET m LIMIT n
+     */
+    OFFSET_LIMIT("offset_limit", true),
+
+    /**
+     * sql OFFSET m ROWS FETCH NEXT n ROWS ONLY，需要 ORDER BY
+     */
+    OFFSET_FETCH("offset_fetch", true),
+
+    /**
+     * ROWNUM 嵌套查询
+     */
+    ROWNUM("rownum", true),
+
+    /**
+     * sql LIMIT m+n，客户端跳过 m 行
+     */
+    LIMIT("limit", false),
+
+    /**
+     * SELECT TOP m+n，客户端跳过 m 行
+     */
+    TOP("top", false),
+
+    /**
+     * 不改写 sql
+     */
+    NONE("none", false);
+
+    public static final String ROW_NUMBER_COLUMN = "DAVINCI_RN_";
+
+    private static final String ROWNUM_SQL = "SELECT * FROM (SELECT T_.*, ROWNUM " + ROW_NUMBER_COLUMN + " FROM (%s) T_ WHERE ROWNUM <= %d) WHERE " + ROW_NUMBER_COLUMN + " > %d";
+
+    private static final String ORDER_BY_NULL = " ORDER BY (SELECT NULL)";
+
+    private String style;
+
+    private boolean pushdown;
+
+    PaginationEnum(String style, boolean pushdown) {
+        this.style = style;
+        this.pushdown = pushdown;
+    }
+
+    public static PaginationEnum styleOf(String style) {
+        if (null == style) {
+            return null;
+        }
+        String s = style.trim().toLowerCase();
+        for (PaginationEnum paginationEnum : values()) {
+            if (paginationEnum.style.equals(s)) {
+                return paginationEnum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 改写分页 sql
+     *
+     * @param sql     最外层查询不含分页子句
+     * @param offset  偏移行数
+     * @param rows    返回行数
+     * @param ordered 最外层查询是否已有 ORDER BY
+     * @return
+     */
+    public String paginate(String sql, int offset, int rows, boolean ordered) {
+        sql = trimTail(sql);
+        switch (this) {
+            case LIMIT_OFFSET:
+                return offset > 0 ? sql + " LIMIT " + rows + " OFFSET " + offset : sql + " LIMIT " + rows;
+            case OFFSET_LIMIT:
+                return offset > 0 ? sql + " OFFSET " + offset + " LIMIT " + rows : sql + " LIMIT " + rows;
+            case OFFSET_FETCH:
+                return sql + (ordered ? "" : ORDER_BY_NULL) + " OFFSET " + offset + " ROWS FETCH NEXT " + rows + " ROWS ONLY";
+            case ROWNUM:
+                return String.format(ROWNUM_SQL, sql, offset + rows, offset);
+            case LIMIT:
+                return sql + " LIMIT " + (offset + rows);
+            case TOP:
+                return sql.replaceFirst("(?is)^(\\s*SELECT\\s+(DISTINCT\\s+)?)", "$1TOP " + (offset + rows) + " ");
+            default:
+                return sql;
+        }
+    }
+
+    private static String trimTail(String sql) {
+        sql = sql.trim();
+        while (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1).trim();
+        }
+        return sql;
+    }
+
+    public String getStyle() {
+        return style;
+    }
+
+    public boolean isPushdown() {
+        return pushdown;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.core.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单列数据，数值类型以 long[]/double[] 存储，字符串以字典编码存储，null 以位图标记
+ */
+@Data
+@NoArgsConstructor
+public class ColumnVector implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    public enum Kind {
+        INT,
+        LONG,
+        FLOAT,
+        DOUBLE,
+        STRING,
+        OBJECT
+    }
+
+    /**
+     * 列存储类型，全部为 null 时为空
+     */
+    private Kind kind;
+
+    private int size;
+
+    /**
+     * null 位图，置位表示该行为 null
+     */
+    private long[] nulls = new long[1];
+
+    private long[] longs;
+
+    private double[] doubles;
+
+    private int[] codes;
+
+    private List<String> dictionary;
+
+    private Object[] objects;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<String, Integer> dictionaryIndex;
+
+    public void add(Object value) {
+        int row = size;
+        if (null == value) {
+            setNull(row);
+            size++;
+            return;
+        }
+
+        if (null == kind) {
+            kind = kindOf(value);
+        } else if (!accept(value)) {
+            if (kind == Kind.INT && value instanceof Long) {
+                kind = Kind.LONG;
+            } else {
+                toObjects();
+            }
+        }
+
+        switch (kind) {
+            case INT:
+            case LONG:
+                longs = ensureCapacity(longs, row);
+                longs[row] = ((Number) value).longValue();
+                break;
+            case FLOAT:
+            case DOUBLE:
+                doubles = ensureCapacity(doubles, row);
+                doubles[row] = ((Number) value).doubleValue();
+                break;
+            case STRING:
+                codes = ensureCapacity(codes, row);
+                codes[row] = encode((String) value);
+                break;
+            default:
+                objects = ensureCapacity(objects, row);
+                objects[row] = value;
+                break;
+        }
+        size++;
+    }
+
+    public Object get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+        if (null == kind || isNull(row)) {
+            return null;
+        }
+        switch (kind) {
+            case INT:
+                return (int) longs[row];
+            case LONG:
+                return longs[row];
+            case FLOAT:
+                return (float) doubles[row];
+            case DOUBLE:
+                return doubles[row];
+            case STRING:
+                return dictionary.get(codes[row]);
+            default:
+                return objects[row];
+        }
+    }
+
+    public boolean isNull(int row) {
+        int word = row >>> 6;
+        return word < nulls.length && (nulls[word] & (1L << row)) != 0;
+    }
+
+    /**
+     * 估算占用内存字节数
+     *
+     * @return
+     */
+    public long estimateSize() {
+        long bytes = 64L + nulls.length * 8L;
+        if (null != longs) {
+            bytes += longs.length * 8L;
+        }
+        if (null != doubles) {
+            bytes += doubles.length * 8L;
+        }
+        if (null != codes) {
+            bytes += codes.length * 4L;
+        }
+        if (null != dictionary) {
+            for (String value : dictionary) {
+                bytes += 40L + value.length() * 2L;
+            }
+        }
+        if (null != objects) {
+            bytes += objects.length * 40L;
+        }
+        return bytes;
+    }
+
+    /**
+     * 释放多余容量及构建期字典索引
+     */
+    public void trimToSize() {
+        if (null != longs && longs.length > size) {
+            longs = Arrays.copyOf(longs, size);
+        }
+        if (null != doubles && doubles.length > size) {
+            doubles = Arrays.copyOf(doubles, size);
+        }
+        if (null != codes && codes.length > size) {
+            codes = Arrays.copyOf(codes, size);
+        }
+        if (null != objects && objects.length > size) {
+            objects = Arrays.copyOf(objects, size);
+        }
+        int words = (size >>> 6) + 1;
+        if (nulls.length > words) {
+            nulls = Arrays.copyOf(nulls, words);
+        }
+        if (dictionary instanceof ArrayList) {
+            ((ArrayList<String>) dictionary).trimToSize();
+        }
+        dictionaryIndex = null;
+    }
+
+    private void setNull(int row) {
+        int word = row >>> 6;
+        if (word >= nulls.length) {
+            nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length << 1));
+        }
+        nulls[word] |= 1L << row;
+    }
+
+    private int encode(String value) {
+        if (null == dictionary) {
+            dictionary = new ArrayList<>();
+        }
+        if (null == dictionaryIndex) {
+            dictionaryIndex = new HashMap<>();
+            for (int i = 0; i < dictionary.size(); i++) {
+                dictionaryIndex.putIfAbsent(dictionary.get(i), i);
+            }
+        }
+        Integer code = dictionaryIndex.get(value);
+        if (null == code) {
+            code = dictionary.size();
+            dictionary.add(value);
+            dictionaryIndex.put(value, code);
+        }
+        return code;
+    }
+
+    private boolean accept(Object value) {
+        switch (kind) {
+            case INT:
+                return value instanceof Integer;
+            case LONG:
+                return value instanceof Long || value instanceof Integer;
+            case FLOAT:
+                return value instanceof Float;
+            case DOUBLE:
+                return value instanceof Double;
+            case STRING:
+                return value instanceof String;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 类型不一致时退化为对象存储
+     */
+    private void toObjects() {
+        Object[] values = new Object[Math.max(size + 1, DEFAULT_CAPACITY)];
+        for (int i = 0; i < size; i++) {
+            values[i] = get(i);
+        }
+        objects = values;
+        longs = null;
+        doubles = null;
+        codes = null;
+        dictionary = null;
+        dictionaryIndex = null;
+        kind = Kind.OBJECT;
+    }
+
+    private static Kind kindOf(Object value) {
+        if (value instanceof Integer) {
+            return Kind.INT;
+        }
+        if (value instanceof Long) {
+            return Kind.LONG;
+        }
+        if (value instanceof Float) {
+            return Kind.FLOAT;
+        }
+        if (value instanceof Double) {
+            return Kind.DOUBLE;
+        }
+        if (value instanceof String) {
+            return Kind.STRING;
+        }
+        return Kind.OBJECT;
+    }
+
+    private static int newCapacity(int length, int row) {
+        return Math.max(row + 1, Math.max(DEFAULT_CAPACITY, length + (length >> 1)));
+    }
+
+    private static long[] ensureCapacity(long[] array, int row) {
+        if (null == array) {
+            return new long[newCapacity(0, row)];
+        }
+        return row < array.length ? array : Arrays.copyOf(array, newCapacity(array.length, row));
+    }
+
+    private static double[] ensureCapacity(double[] array, int row) {
+        if (null == array) {
+            return new double[newCapacity(0, row)];
+        }
+        return row < array.length ? array : Arrays.copyOf(array, newCapacity(array.length, row));
+    }
+
+    private static int[] ensureCapacity(int[] array, int row) {
+        if (null == array) {
+            return new int[newCapacity(0, row)];
+        }
+        return row < array.length ? array : Arrays.copyOf(array, newCapacity(array.length, row));
+    }
+
+    private static Object[] ensureCapacity(Object[] array, int row) {
+        if (null == array) {
+            return new Object[newCapacity(0, row)];
+        }
+        return row < array.length ? array : Arrays.copyOf(array, newCapacity(array.length, row));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.core.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * 列式结果集，每列独立存储，行数据仅在读取时按需组装
+ */
+@Data
+public class ColumnarResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<QueryColumn> columns = new ArrayList<>();
+
+    private List<ColumnVector> vectors = new ArrayList<>();
+
+    private int rowCount;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<String, Integer> columnIndex;
+
+    public ColumnarResult() {
+
+    }
+
+    public ColumnarResult(List<QueryColumn> columns) {
+        this.columns = columns;
+        for (int i = 0; i < columns.size(); i++) {
+            this.vectors.add(new ColumnVector());
+        }
+    }
+
+    /**
+     * 追加一行，values 顺序与 columns 一致
+     *
+     * @param values
+     */
+    public void addRow(Object[] values) {
+        for (int i = 0; i < vectors.size(); i++) {
+            vectors.get(i).add(values[i]);
+        }
+        rowCount++;
+    }
+
+    public Object getValue(int row, int column) {
+        return vectors.get(column).get(row);
+    }
+
+    /**
+     * 列名对应的列序号，同名列取第一列
+     *
+     * @param name
+     * @return 不存在时返回 -1
+     */
+    public int indexOf(String name) {
+        Integer index = columnIndex().get(name);
+        return null == index ? -1 : index;
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * 估算占用内存字节数
+     *
+     * @return
+     */
+    public long estimateSize() {
+        long bytes = 64L;
+        for (ColumnVector vector : vectors) {
+            bytes += vector.estimateSize();
+        }
+        return bytes;
+    }
+
+    public void trimToSize() {
+        vectors.forEach(ColumnVector::trimToSize);
+    }
+
+    /**
+     * 以 List<Map> 的形式访问结果集，每行 Map 为列数据的只读视图
+     *
+     * @return
+     */
+    public List<Map<String, Object>> asMapList() {
+        return new RowList();
+    }
+
+    private Map<String, Integer> columnIndex() {
+        if (null == columnIndex) {
+            Map<String, Integer> index = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                index.putIfAbsent(columns.get(i).getName(), i);
+            }
+            columnIndex = index;
+        }
+        return columnIndex;
+    }
+
+    private class RowList extends AbstractList<Map<String, Object>> implements RandomAccess {
+
+        @Override
+        public Map<String, Object> get(int index) {
+            if (index < 0 || index >= rowCount) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rowCount);
+            }
+            return new RowMap(index);
+        }
+
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+
+    private class RowMap extends AbstractMap<String, Object> {
+
+        private final int row;
+
+        RowMap(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer index = columnIndex().get(key);
+            return null == index ? null : getValue(row, index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return columnIndex().containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return columnIndex().size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Entry<String, Integer>> iterator = columnIndex().entrySet().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<String, Integer> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), getValue(row, entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columnIndex().size();
+                }
+            };
+        }
+    }
+}
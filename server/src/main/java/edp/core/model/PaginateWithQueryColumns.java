@@ -19,6 +19,9 @@
 
 package edp.core.model;
 
+import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.util.List;
@@ -27,4 +30,25 @@ import java.util.Map;
 @Data
 public class PaginateWithQueryColumns extends Paginate<Map<String, Object>> {
     List<QueryColumn> columns;
+
+    /**
+     * totalCount 是否为执行计划估算值，仅为 true 时序列化
+     */
+    @JSONField(serialzeFeatures = SerializerFeature.NotWriteDefaultValue)
+    boolean approximate;
+
+    /**
+     * 列式存储的结果集，resultList 为其按行访问的视图
+     */
+    @JSONField(serialize = false)
+    ColumnarResult data;
+
+    @Override
+    @JsonIgnore
+    public List<Map<String, Object>> getResultList() {
+        if (null != data) {
+            return data.asMapList();
+        }
+        return super.getResultList();
+    }
 }
@@ -0,0 +1,606 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.core.utils;
+
+import edp.core.enums.SqlTypeEnum;
+import edp.core.model.ColumnVector;
+import edp.core.model.ColumnarResult;
+import edp.core.model.PaginateWithQueryColumns;
+import edp.core.model.QueryColumn;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+
+/**
+ * 查询结果二进制编码，按列类型写入并使用 LZ4 压缩
+ * 格式: MAGIC(2) | VERSION(1) | TYPE(1) | 原始长度(4) | LZ4 数据
+ */
+public class QueryResultCodec {
+
+    private static final byte[] MAGIC = new byte[]{'D', 'R'};
+
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_PAGINATE = 1;
+
+    private static final byte TYPE_MAP_LIST = 2;
+
+    private static final int HEADER_LENGTH = 8;
+
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_INTEGER = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_FLOAT = 5;
+    private static final byte VALUE_SHORT = 6;
+    private static final byte VALUE_BYTE = 7;
+    private static final byte VALUE_BOOLEAN = 8;
+    private static final byte VALUE_BIG_DECIMAL = 9;
+    private static final byte VALUE_BIG_INTEGER = 10;
+    private static final byte VALUE_TIMESTAMP = 11;
+    private static final byte VALUE_SQL_DATE = 12;
+    private static final byte VALUE_SQL_TIME = 13;
+    private static final byte VALUE_DATE = 14;
+    // 15 曾用于 java 原生序列化，已废弃，解码时按未知类型处理
+    private static final byte VALUE_LOCAL_DATE = 16;
+    private static final byte VALUE_LOCAL_TIME = 17;
+    private static final byte VALUE_LOCAL_DATE_TIME = 18;
+    private static final byte VALUE_INSTANT = 19;
+    private static final byte VALUE_OFFSET_DATE_TIME = 20;
+    private static final byte VALUE_ZONED_DATE_TIME = 21;
+    private static final byte VALUE_BYTES = 22;
+
+    /**
+     * 是否支持编码
+     *
+     * @param value
+     * @return
+     */
+    public static boolean isSupported(Object value) {
+        if (value instanceof PaginateWithQueryColumns) {
+            return true;
+        }
+        if (value instanceof List) {
+            for (Object row : (List) value) {
+                if (!(row instanceof Map)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 是否为本编码格式
+     *
+     * @param bytes
+     * @return
+     */
+    public static boolean isEncoded(byte[] bytes) {
+        return null != bytes && bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1] && bytes[2] == VERSION;
+    }
+
+    public static byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(bos);
+        byte type;
+        if (value instanceof PaginateWithQueryColumns) {
+            type = TYPE_PAGINATE;
+            writePaginate(out, (PaginateWithQueryColumns) value);
+        } else if (value instanceof List) {
+            type = TYPE_MAP_LIST;
+            writeMapList(out, (List<Map<String, Object>>) value);
+        } else {
+            throw new IOException("Unsupported value type: " + (null == value ? null : value.getClass().getName()));
+        }
+        out.flush();
+
+        byte[] raw = bos.toByteArray();
+        byte[] compressed = LZ4_FACTORY.fastCompressor().compress(raw);
+
+        byte[] bytes = new byte[HEADER_LENGTH + compressed.length];
+        bytes[0] = MAGIC[0];
+        bytes[1] = MAGIC[1];
+        bytes[2] = VERSION;
+        bytes[3] = type;
+        bytes[4] = (byte) (raw.length >>> 24);
+        bytes[5] = (byte) (raw.length >>> 16);
+        bytes[6] = (byte) (raw.length >>> 8);
+        bytes[7] = (byte) raw.length;
+        System.arraycopy(compressed, 0, bytes, HEADER_LENGTH, compressed.length);
+        return bytes;
+    }
+
+    public static Object decode(byte[] bytes) throws IOException {
+        if (!isEncoded(bytes)) {
+            throw new IOException("Invalid query result bytes");
+        }
+        int length = ((bytes[4] & 0xFF) << 24) | ((bytes[5] & 0xFF) << 16) | ((bytes[6] & 0xFF) << 8) | (bytes[7] & 0xFF);
+        byte[] raw = new byte[length];
+        LZ4_FACTORY.fastDecompressor().decompress(bytes, HEADER_LENGTH, raw, 0, length);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        switch (bytes[3]) {
+            case TYPE_PAGINATE:
+                return readPaginate(in);
+            case TYPE_MAP_LIST:
+                return readMapList(in);
+            default:
+                throw new IOException("Unknown query result type: " + bytes[3]);
+        }
+    }
+
+    private static void writePaginate(DataOutputStream out, PaginateWithQueryColumns paginate) throws IOException {
+        out.writeInt(paginate.getPageNo());
+        out.writeInt(paginate.getPageSize());
+        out.writeLong(paginate.getTotalCount());
+
+        List<QueryColumn> columns = paginate.getColumns();
+        out.writeInt(null == columns ? -1 : columns.size());
+        if (null != columns) {
+            for (QueryColumn column : columns) {
+                writeString(out, column.getName());
+                writeString(out, column.getType());
+            }
+        }
+
+        ColumnarResult data = paginate.getData();
+        if (null == data) {
+            List<Map<String, Object>> resultList = paginate.getResultList();
+            if (null != columns && !CollectionUtils.isEmpty(resultList)) {
+                List<String> names = new ArrayList<>(columns.size());
+                columns.forEach(column -> names.add(column.getName()));
+                data = toColumnar(names, resultList);
+            }
+        }
+        out.writeBoolean(null != data);
+        if (null != data) {
+            writeColumnar(out, data);
+        }
+    }
+
+    private static PaginateWithQueryColumns readPaginate(DataInputStream in) throws IOException {
+        PaginateWithQueryColumns paginate = new PaginateWithQueryColumns();
+        paginate.setPageNo(in.readInt());
+        paginate.setPageSize(in.readInt());
+        paginate.setTotalCount(in.readLong());
+
+        int columnCount = in.readInt();
+        if (columnCount >= 0) {
+            List<QueryColumn> columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                String name = readString(in);
+                String type = readString(in);
+                QueryColumn column = new QueryColumn(name, SqlTypeEnum.VARCHAR.getName());
+                column.setType(type);
+                columns.add(column);
+            }
+            paginate.setColumns(columns);
+        }
+
+        if (in.readBoolean()) {
+            ColumnarResult data = readColumnar(in);
+            if (null != paginate.getColumns()) {
+                data.setColumns(paginate.getColumns());
+            }
+            paginate.setData(data);
+        }
+        return paginate;
+    }
+
+    private static void writeMapList(DataOutputStream out, List<Map<String, Object>> list) throws IOException {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Map<String, Object> row : list) {
+            keys.addAll(row.keySet());
+        }
+        List<String> names = new ArrayList<>(keys);
+        out.writeInt(names.size());
+        for (String name : names) {
+            writeString(out, name);
+        }
+        writeColumnar(out, toColumnar(names, list));
+    }
+
+    private static List<Map<String, Object>> readMapList(DataInputStream in) throws IOException {
+        int columnCount = in.readInt();
+        String[] names = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = readString(in);
+        }
+        ColumnarResult data = readColumnar(in);
+        List<Map<String, Object>> list = new ArrayList<>(data.getRowCount());
+        for (int row = 0; row < data.getRowCount(); row++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int column = 0; column < columnCount; column++) {
+                map.put(names[column], data.getValue(row, column));
+            }
+            list.add(map);
+        }
+        return list;
+    }
+
+    private static ColumnarResult toColumnar(List<String> names, List<Map<String, Object>> list) {
+        ColumnarResult data = new ColumnarResult();
+        List<ColumnVector> vectors = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            vectors.add(new ColumnVector());
+        }
+        data.setVectors(vectors);
+        Object[] values = new Object[names.size()];
+        for (Map<String, Object> row : list) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = row.get(names.get(i));
+            }
+            data.addRow(values);
+        }
+        return data;
+    }
+
+    private static void writeColumnar(DataOutputStream out, ColumnarResult data) throws IOException {
+        out.writeInt(data.getRowCount());
+        out.writeInt(data.getVectors().size());
+        for (ColumnVector vector : data.getVectors()) {
+            writeVector(out, vector);
+        }
+    }
+
+    private static ColumnarResult readColumnar(DataInputStream in) throws IOException {
+        ColumnarResult data = new ColumnarResult();
+        data.setRowCount(in.readInt());
+        int vectorCount = in.readInt();
+        List<ColumnVector> vectors = new ArrayList<>(vectorCount);
+        for (int i = 0; i < vectorCount; i++) {
+            vectors.add(readVector(in));
+        }
+        data.setVectors(vectors);
+        return data;
+    }
+
+    private static void writeVector(DataOutputStream out, ColumnVector vector) throws IOException {
+        int size = vector.getSize();
+        ColumnVector.Kind kind = vector.getKind();
+        out.writeByte(null == kind ? -1 : kind.ordinal());
+        out.writeInt(size);
+
+        long[] nulls = vector.getNulls();
+        int words = Math.min(nulls.length, (size >>> 6) + 1);
+        out.writeInt(words);
+        for (int i = 0; i < words; i++) {
+            out.writeLong(nulls[i]);
+        }
+
+        if (null == kind) {
+            return;
+        }
+
+        switch (kind) {
+            case INT:
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(vector.isNull(i) ? 0 : (int) vector.getLongs()[i]);
+                }
+                break;
+            case LONG:
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(vector.isNull(i) ? 0L : vector.getLongs()[i]);
+                }
+                break;
+            case FLOAT:
+                for (int i = 0; i < size; i++) {
+                    out.writeFloat(vector.isNull(i) ? 0F : (float) vector.getDoubles()[i]);
+                }
+                break;
+            case DOUBLE:
+                for (int i = 0; i < size; i++) {
+                    out.writeDouble(vector.isNull(i) ? 0D : vector.getDoubles()[i]);
+                }
+                break;
+            case STRING:
+                List<String> dictionary = vector.getDictionary();
+                out.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    writeString(out, value);
+                }
+                int[] codes = vector.getCodes();
+                int dictionarySize = dictionary.size();
+                for (int i = 0; i < size; i++) {
+                    int code = vector.isNull(i) ? 0 : codes[i];
+                    if (dictionarySize <= 0xFF) {
+                        out.writeByte(code);
+                    } else if (dictionarySize <= 0xFFFF) {
+                        out.writeShort(code);
+                    } else {
+                        out.writeInt(code);
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < size; i++) {
+                    writeValue(out, vector.isNull(i) ? null : vector.getObjects()[i]);
+                }
+                break;
+        }
+    }
+
+    private static ColumnVector readVector(DataInputStream in) throws IOException {
+        ColumnVector vector = new ColumnVector();
+        byte kindOrdinal = in.readByte();
+        int size = in.readInt();
+        vector.setSize(size);
+
+        int words = in.readInt();
+        long[] nulls = new long[Math.max(1, words)];
+        for (int i = 0; i < words; i++) {
+            nulls[i] = in.readLong();
+        }
+        vector.setNulls(nulls);
+
+        if (kindOrdinal < 0) {
+            return vector;
+        }
+
+        ColumnVector.Kind kind = ColumnVector.Kind.values()[kindOrdinal];
+        vector.setKind(kind);
+        switch (kind) {
+            case INT: {
+                long[] longs = new long[size];
+                for (int i = 0; i < size; i++) {
+                    longs[i] = in.readInt();
+                }
+                vector.setLongs(longs);
+                break;
+            }
+            case LONG: {
+                long[] longs = new long[size];
+                for (int i = 0; i < size; i++) {
+                    longs[i] = in.readLong();
+                }
+                vector.setLongs(longs);
+                break;
+            }
+            case FLOAT: {
+                double[] doubles = new double[size];
+                for (int i = 0; i < size; i++) {
+                    doubles[i] = in.readFloat();
+                }
+                vector.setDoubles(doubles);
+                break;
+            }
+            case DOUBLE: {
+                double[] doubles = new double[size];
+                for (int i = 0; i < size; i++) {
+                    doubles[i] = in.readDouble();
+                }
+                vector.setDoubles(doubles);
+                break;
+            }
+            case STRING: {
+                int dictionarySize = in.readInt();
+                List<String> dictionary = new ArrayList<>(dictionarySize);
+                for (int i = 0; i < dictionarySize; i++) {
+                    dictionary.add(readString(in));
+                }
+                int[] codes = new int[size];
+                for (int i = 0; i < size; i++) {
+                    if (dictionarySize <= 0xFF) {
+                        codes[i] = in.readUnsignedByte();
+                    } else if (dictionarySize <= 0xFFFF) {
+                        codes[i] = in.readUnsignedShort();
+                    } else {
+                        codes[i] = in.readInt();
+                    }
+                }
+                vector.setDictionary(dictionary);
+                vector.setCodes(codes);
+                break;
+            }
+            default: {
+                Object[] objects = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    objects[i] = readValue(in);
+                }
+                vector.setObjects(objects);
+                break;
+            }
+        }
+        return vector;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (null == value) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(VALUE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(VALUE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(VALUE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(VALUE_BIG_DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(VALUE_BIG_INTEGER);
+            writeString(out, value.toString());
+        } else if (value instanceof Timestamp) {
+            out.writeByte(VALUE_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(VALUE_SQL_DATE);
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(VALUE_SQL_TIME);
+            out.writeLong(((Time) value).getTime());
+        } else if (value instanceof Date) {
+            out.writeByte(VALUE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof LocalDate) {
+            out.writeByte(VALUE_LOCAL_DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof LocalTime) {
+            out.writeByte(VALUE_LOCAL_TIME);
+            out.writeLong(((LocalTime) value).toNanoOfDay());
+        } else if (value instanceof LocalDateTime) {
+            out.writeByte(VALUE_LOCAL_DATE_TIME);
+            writeLocalDateTime(out, (LocalDateTime) value);
+        } else if (value instanceof Instant) {
+            out.writeByte(VALUE_INSTANT);
+            out.writeLong(((Instant) value).getEpochSecond());
+            out.writeInt(((Instant) value).getNano());
+        } else if (value instanceof OffsetDateTime) {
+            out.writeByte(VALUE_OFFSET_DATE_TIME);
+            writeLocalDateTime(out, ((OffsetDateTime) value).toLocalDateTime());
+            out.writeInt(((OffsetDateTime) value).getOffset().getTotalSeconds());
+        } else if (value instanceof ZonedDateTime) {
+            out.writeByte(VALUE_ZONED_DATE_TIME);
+            writeLocalDateTime(out, ((ZonedDateTime) value).toLocalDateTime());
+            out.writeInt(((ZonedDateTime) value).getOffset().getTotalSeconds());
+            writeString(out, ((ZonedDateTime) value).getZone().getId());
+        } else if (value instanceof byte[]) {
+            out.writeByte(VALUE_BYTES);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else {
+            // 未知类型统一按字符串缓存，不使用 java 原生序列化
+            out.writeByte(VALUE_STRING);
+            writeString(out, String.valueOf(value));
+        }
+    }
+
+    private static void writeLocalDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeLong(value.toLocalDate().toEpochDay());
+        out.writeLong(value.toLocalTime().toNanoOfDay());
+    }
+
+    private static LocalDateTime readLocalDateTime(DataInputStream in) throws IOException {
+        LocalDate date = LocalDate.ofEpochDay(in.readLong());
+        return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readLong()));
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(in);
+            case VALUE_INTEGER:
+                return in.readInt();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_FLOAT:
+                return in.readFloat();
+            case VALUE_SHORT:
+                return in.readShort();
+            case VALUE_BYTE:
+                return in.readByte();
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            case VALUE_BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case VALUE_BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case VALUE_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case VALUE_SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case VALUE_SQL_TIME:
+                return new Time(in.readLong());
+            case VALUE_DATE:
+                return new Date(in.readLong());
+            case VALUE_LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case VALUE_LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(in.readLong());
+            case VALUE_LOCAL_DATE_TIME:
+                return readLocalDateTime(in);
+            case VALUE_INSTANT:
+                return Instant.ofEpochSecond(in.readLong(), in.readInt());
+            case VALUE_OFFSET_DATE_TIME: {
+                LocalDateTime dateTime = readLocalDateTime(in);
+                return OffsetDateTime.of(dateTime, ZoneOffset.ofTotalSeconds(in.readInt()));
+            }
+            case VALUE_ZONED_DATE_TIME: {
+                LocalDateTime dateTime = readLocalDateTime(in);
+                ZoneOffset offset = ZoneOffset.ofTotalSeconds(in.readInt());
+                return ZonedDateTime.ofLocal(dateTime, ZoneId.of(readString(in)), offset);
+            }
+            case VALUE_BYTES: {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            }
+            default:
+                throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -38,6 +38,10 @@ public class RedisUtils {
 	@Qualifier("initRedisTemplate")
 	private RedisTemplate<String, Object> redisTemplate;
 
+	@Autowired(required = false)
+	@Qualifier("queryCacheRedisTemplate")
+	private RedisTemplate<String, Object> queryCacheRedisTemplate;
+
 	@Value("${spring.redis.isEnable:false}")
 	private boolean isRedisEnable;
 
@@ -73,6 +77,37 @@ public class RedisUtils {
 		return valueOperations.get(key);
 	}
 
+	public boolean setQueryResult(String key, Object value, Long l, TimeUnit timeUnit) {
+		if (!isRedisEnable) {
+			return false;
+		}
+		ValueOperations<String, Object> valueOperations = queryCacheRedisTemplate.opsForValue();
+		valueOperations.set(key, value, l, timeUnit);
+		return true;
+	}
+
+	public Object getQueryResult(String key) {
+		if (!isRedisEnable) {
+			return null;
+		}
+		ValueOperations<String, Object> valueOperations = queryCacheRedisTemplate.opsForValue();
+		return valueOperations.get(key);
+	}
+
+	/**
+	 * 查询结果缓存的剩余过期时间（秒），-1 表示未设置过期，-2 表示不存在
+	 */
+	public Long getQueryResultExpire(String key) {
+		if (!isRedisEnable) {
+			return -2L;
+		}
+		return queryCacheRedisTemplate.getExpire(key, TimeUnit.SECONDS);
+	}
+
+	public boolean deleteQueryResult(String key) {
+		return isRedisEnable && queryCacheRedisTemplate.delete(key);
+	}
+
 	public boolean delete(String key) {
 		return isRedisEnable && redisTemplate.delete(key);
 	}
@@ -136,6 +171,16 @@ public class RedisUtils {
 		return 1L == (Long) redisTemplate.execute(RedisScript.of(script, Long.class), keys, values);
 	}
 
+	/**
+	 * 执行返回整数的 lua 脚本
+	 */
+	public Long executeLongScript(String script, List<String> keys, Object... args) {
+		if (!isRedisEnable) {
+			throw new RuntimeException("Redis is disabled");
+		}
+		return (Long) redisTemplate.execute(RedisScript.of(script, Long.class), keys, args);
+	}
+
 	public boolean setIfAbsent(String key, Object value) {
 
 		if (!isRedisEnable) {
@@ -22,6 +22,7 @@ package edp.core.utils;
 import com.alibaba.druid.util.StringUtils;
 import edp.core.common.jdbc.ExtendedJdbcClassLoader;
 import edp.core.common.jdbc.JdbcDataSource;
+import edp.core.common.jdbc.SourceCircuitBreaker;
 import edp.core.consts.Consts;
 import edp.core.enums.DataTypeEnum;
 import edp.core.exception.ServerException;
@@ -93,44 +94,35 @@ public class SourceUtils {
 	}
 
     public Connection getConnection(JdbcSourceInfo jdbcSourceInfo) throws SourceException {
-        Connection conn = getConnectionWithRetry(jdbcSourceInfo);
-        if (conn == null) {
-            try {
-                releaseDataSource(jdbcSourceInfo);
-                DataSource dataSource = getDataSource(jdbcSourceInfo);
-                return dataSource.getConnection();
-            } catch (Exception e) {
+        SourceCircuitBreaker circuitBreaker = jdbcDataSource.getCircuitBreaker(jdbcSourceInfo);
+        if (!circuitBreaker.allowRequest()) {
+            throw new SourceException("Source is unavailable, jdbcUrl:" + jdbcSourceInfo.getJdbcUrl() + ", please try again after " + circuitBreaker.getRemainingSeconds() + " seconds");
+        }
+
+        try {
+            Connection connection = getDataSource(jdbcSourceInfo).getConnection();
+            circuitBreaker.onSuccess();
+            return connection;
+        } catch (Exception e) {
+            if (!SourceCircuitBreaker.isConnectFailure(e)) {
+                // 连接池等待超时等非连接错误，池本身可用，不重建也不计入熔断
+                circuitBreaker.onFailure(e);
                 log.error("Get connection error, jdbcUrl:{}, e:{}", jdbcSourceInfo.getJdbcUrl(), e);
                 throw new SourceException("Get connection error, jdbcUrl:" + jdbcSourceInfo.getJdbcUrl() + " you can try again later or reset datasource");
             }
+            log.warn("Get connection error, jdbcUrl:{}, e:{}", jdbcSourceInfo.getJdbcUrl(), e.getMessage());
         }
-        return conn;
-    }
-
-    private Connection getConnectionWithRetry(JdbcSourceInfo jdbcSourceInfo) {
-        int rc = 1;
-        for (; ; ) {
 
-            if (rc > 3) {
-                return null;
-            }
-
-            try {
-                Connection connection = getDataSource(jdbcSourceInfo).getConnection();
-                if (connection != null && connection.isValid(5)) {
-                    return connection;
-                }
-            } catch (Exception e) {
-
-            }
-
-            try {
-                Thread.sleep((long) Math.pow(2, rc) * 1000);
-            } catch (InterruptedException e) {
-
-            }
-
-            rc++;
+        // 连不上数据库，连接池可能已失效，重建后再试一次
+        try {
+            releaseDataSource(jdbcSourceInfo);
+            Connection connection = getDataSource(jdbcSourceInfo).getConnection();
+            circuitBreaker.onSuccess();
+            return connection;
+        } catch (Exception e) {
+            circuitBreaker.onFailure(e);
+            log.error("Get connection error, jdbcUrl:{}, e:{}", jdbcSourceInfo.getJdbcUrl(), e);
+            throw new SourceException("Get connection error, jdbcUrl:" + jdbcSourceInfo.getJdbcUrl() + " you can try again later or reset datasource");
         }
     }
 
@@ -20,25 +20,27 @@ package edp.core.utils;
 
 import com.alibaba.druid.sql.SQLUtils;
 import com.alibaba.druid.util.StringUtils;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import edp.core.common.jdbc.JdbcDataSource;
+import edp.core.common.jdbc.ResultStreamHandler;
 import edp.core.consts.Consts;
 import edp.core.enums.DataTypeEnum;
+import edp.core.enums.PaginationEnum;
 import edp.core.enums.SqlTypeEnum;
 import edp.core.exception.ServerException;
 import edp.core.exception.SourceException;
 import edp.core.model.*;
 import edp.davinci.core.enums.LogNameEnum;
 import edp.davinci.core.enums.SqlColumnEnum;
+import edp.davinci.core.utils.QueryResultCache;
 import edp.davinci.core.utils.SourcePasswordEncryptUtils;
+import edp.davinci.core.utils.SqlPlanCache;
 import edp.davinci.core.utils.SqlParseUtils;
 import edp.davinci.model.Source;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.Alias;
-import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Table;
-import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.*;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -49,11 +51,12 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
-import javax.sql.DataSource;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.Matcher;
 
 import static edp.core.consts.Consts.*;
@@ -69,12 +72,38 @@ public class SqlUtils {
     @Autowired
     private JdbcDataSource jdbcDataSource;
 
+    @Autowired
+    private QueryResultCache queryResultCache;
+
     @Value("${source.result-limit:1000000}")
     private int resultLimit;
 
     @Value("${source.enable-query-log:false}")
     private boolean isQueryLogEnable;
 
+    @Value("${source.parallel-count:false}")
+    private boolean isParallelCount;
+
+    @Value("${source.approximate-count:false}")
+    private boolean isApproximateCount;
+
+    @Value("${source.stream-fetch-size:500}")
+    private int streamFetchSize;
+
+    private static volatile ThreadPoolExecutor countWorkers;
+
+    /**
+     * 正在执行的精确总数查询，相同 count sql 只执行一次
+     */
+    private static final ConcurrentHashMap<String, CompletableFuture<Integer>> COUNTS_IN_FLIGHT = new ConcurrentHashMap<>();
+
+    /**
+     * 近似计数模式下精确总数在查询结果缓存中的 key 前缀及有效期（秒）
+     */
+    private static final String EXACT_COUNT_KEY_PREFIX = "count:";
+
+    private static final long EXACT_COUNT_EXPIRE_SECONDS = 600L;
+
     private static final String TABLE = "TABLE";
 
     private static final String VIEW = "VIEW";
@@ -99,6 +128,30 @@ public class SqlUtils {
         this.sqlTempDelimiter = delimiter;
     }
 
+    /**
+     * 并行计数线程池，核心线程数与最大线程数一致，队列满时在调用线程计数
+     *
+     * @param poolSize
+     * @param queueCapacity
+     */
+    @Autowired
+    public void initCountWorkers(@Value("${source.count-executor.pool-size:16}") int poolSize,
+                                 @Value("${source.count-executor.queue-capacity:32}") int queueCapacity) {
+        if (null != countWorkers) {
+            return;
+        }
+        synchronized (SqlUtils.class) {
+            if (null == countWorkers) {
+                int size = Math.max(1, poolSize);
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size,
+                        60_000, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                        new ThreadFactoryBuilder().setNameFormat("Count-worker-%d").setDaemon(true).build());
+                executor.allowCoreThreadTimeOut(true);
+                countWorkers = executor;
+            }
+        }
+    }
+
     public SqlUtils init(Source source) {
         // Password decryption
         String decrypt = SourcePasswordEncryptUtils.decrypt(source.getPassword());
@@ -115,6 +168,9 @@ public class SqlUtils {
                 .withJdbcDataSource(this.jdbcDataSource)
                 .withResultLimit(this.resultLimit)
                 .withIsQueryLogEnable(this.isQueryLogEnable)
+                .withIsParallelCount(this.isParallelCount)
+                .withIsApproximateCount(this.isApproximateCount)
+                .withQueryResultCache(this.queryResultCache)
                 .build();
     }
 
@@ -134,6 +190,9 @@ public class SqlUtils {
                 .withJdbcDataSource(this.jdbcDataSource)
                 .withResultLimit(this.resultLimit)
                 .withIsQueryLogEnable(this.isQueryLogEnable)
+                .withIsParallelCount(this.isParallelCount)
+                .withIsApproximateCount(this.isApproximateCount)
+                .withQueryResultCache(this.queryResultCache)
                 .build();
     }
 
@@ -184,142 +243,431 @@ public class SqlUtils {
     }
 
     public PaginateWithQueryColumns query4Paginate(String sql, int pageNo, int pageSize, int totalCount, int limit, Set<String> excludeColumns) {
-
         PaginateWithQueryColumns paginateWithQueryColumns = new PaginateWithQueryColumns();
 
+        stream4Paginate(sql, pageNo, pageSize, totalCount, limit, excludeColumns, new ResultStreamHandler() {
+
+            private ColumnarResult data;
+
+            @Override
+            public void onColumns(List<QueryColumn> columns) {
+                this.data = new ColumnarResult(columns);
+                paginateWithQueryColumns.setColumns(columns);
+                paginateWithQueryColumns.setData(data);
+            }
+
+            @Override
+            public void onRow(Object[] values) {
+                data.addRow(values);
+            }
+
+            @Override
+            public void onFinish(int pageNo, int pageSize, long totalCount) {
+                onFinish(pageNo, pageSize, totalCount, false);
+            }
+
+            @Override
+            public void onFinish(int pageNo, int pageSize, long totalCount, boolean approximate) {
+                if (null != data) {
+                    data.trimToSize();
+                }
+                paginateWithQueryColumns.setPageNo(pageNo);
+                paginateWithQueryColumns.setPageSize(pageSize);
+                paginateWithQueryColumns.setTotalCount(totalCount);
+                paginateWithQueryColumns.setApproximate(approximate);
+            }
+        });
+
+        return paginateWithQueryColumns;
+    }
+
+    /**
+     * 流式分页查询，列信息及行数据逐条交由 handler 处理，不在内存中聚合结果集
+     *
+     * @param sql
+     * @param pageNo
+     * @param pageSize
+     * @param totalCount
+     * @param limit
+     * @param excludeColumns
+     * @param handler
+     * @throws ServerException
+     */
+    public void syncStream4Paginate(String sql, Integer pageNo, Integer pageSize, Integer totalCount, Integer limit, Set<String> excludeColumns, ResultStreamHandler handler) throws ServerException {
+        if (null == pageNo || pageNo < 1) {
+            pageNo = 0;
+        }
+        if (null == pageSize || pageSize < 1) {
+            pageSize = 0;
+        }
+        if (null == totalCount || totalCount < 1) {
+            totalCount = 0;
+        }
+        if (null == limit) {
+            limit = -1;
+        }
+        stream4Paginate(sql, pageNo, pageSize, totalCount, limit, excludeColumns, handler);
+    }
+
+    public void stream4Paginate(String sql, int pageNo, int pageSize, int totalCount, int limit, Set<String> excludeColumns, ResultStreamHandler handler) throws ServerException {
+
         long before = System.currentTimeMillis();
 
         JdbcTemplate jdbcTemplate = jdbcTemplate();
         jdbcTemplate.setMaxRows(resultLimit);
-        if (pageNo < 1 && pageSize < 1) {
 
-            if (limit > 0) {
-                jdbcTemplate.setMaxRows(Math.min(limit, resultLimit));
-            }
+        Set<String> queryFromsAndJoins = getQueryFromsAndJoins(sql);
 
-            // special for mysql
-            if (getDataTypeEnum() == DataTypeEnum.MYSQL) {
-                jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
-            }
+        int count;
+        boolean approximate = false;
+        try {
+            if (pageNo < 1 && pageSize < 1) {
 
-            getResultForPaginate(sql, paginateWithQueryColumns, jdbcTemplate, excludeColumns, -1);
-            paginateWithQueryColumns.setPageNo(1);
-            int size = paginateWithQueryColumns.getResultList().size();
-            paginateWithQueryColumns.setPageSize(size);
-            paginateWithQueryColumns.setTotalCount(size);
+                if (limit > 0) {
+                    jdbcTemplate.setMaxRows(Math.min(limit, resultLimit));
+                }
 
-        } else {
-            paginateWithQueryColumns.setPageNo(pageNo);
-            paginateWithQueryColumns.setPageSize(pageSize);
+                // special for mysql
+                if (getDataTypeEnum() == DataTypeEnum.MYSQL) {
+                    jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+                } else if (streamFetchSize > 0) {
+                    // 其他驱动按批拉取，避免一次性读入全部结果
+                    jdbcTemplate.setFetchSize(streamFetchSize);
+                }
 
-            int startRow = (pageNo - 1) * pageSize;
+                count = getResultForPaginate(sql, queryFromsAndJoins, jdbcTemplate, excludeColumns, -1, handler);
+                pageNo = 1;
+                pageSize = count;
+                totalCount = count;
 
-            if (pageNo == 1 || totalCount == 0) {
-                Object o = jdbcTemplate.queryForList(getCountSql(sql), Object.class).get(0);
-                totalCount = Integer.parseInt(String.valueOf(o));
-            }
+            } else {
+                int startRow = (pageNo - 1) * pageSize;
 
-            if (limit > 0) {
-                totalCount = Math.min(Math.min(limit, resultLimit), totalCount);
-                if (limit < pageNo * pageSize) {
-                    jdbcTemplate.setMaxRows(limit - startRow);
+                Future<Integer> countFuture = null;
+                if (pageNo == 1 || totalCount == 0) {
+                    countFuture = submitCount(sql);
+                }
+
+                PaginationEnum pagination = getPagination(sql);
+                if (pagination.isPushdown()) {
+                    // 分页下推到数据库
+                    if (limit > 0) {
+                        if (limit < pageNo * pageSize) {
+                            jdbcTemplate.setMaxRows(limit - startRow);
+                        } else {
+                            jdbcTemplate.setMaxRows(Math.min(limit, pageSize));
+                        }
+                    } else {
+                        jdbcTemplate.setMaxRows(pageSize);
+                    }
+
+                    Set<String> columns = excludeColumns;
+                    if (pagination == PaginationEnum.ROWNUM) {
+                        columns = null == excludeColumns ? new HashSet<>() : new HashSet<>(excludeColumns);
+                        columns.add(PaginationEnum.ROW_NUMBER_COLUMN);
+                    }
+
+                    boolean ordered = SqlPlanCache.getStatementPlan(sql).isOrdered();
+                    sql = pagination.paginate(sql, startRow, pageSize, ordered);
+                    getResultForPaginate(sql, queryFromsAndJoins, jdbcTemplate, columns, -1, handler);
                 } else {
-                    jdbcTemplate.setMaxRows(Math.min(limit, pageSize));
+                    // 只限制返回行数，偏移在客户端跳过
+                    int maxRows = limit > 0 ? Math.min(limit, pageNo * pageSize) : pageNo * pageSize;
+                    jdbcTemplate.setMaxRows(maxRows);
+                    sql = pagination.paginate(sql, startRow, Math.max(maxRows - startRow, 0), true);
+                    getResultForPaginate(sql, queryFromsAndJoins, jdbcTemplate, excludeColumns, startRow, handler);
                 }
-            } else {
-                jdbcTemplate.setMaxRows(pageNo * pageSize);
-            }
 
-            paginateWithQueryColumns.setTotalCount(totalCount);
+                if (null != countFuture) {
+                    totalCount = getCount(countFuture);
+                    approximate = countFuture instanceof EstimatedCount;
+                }
 
-            if (this.dataTypeEnum == MYSQL) {
-                sql = sql + " LIMIT " + startRow + ", " + pageSize;
-                getResultForPaginate(sql, paginateWithQueryColumns, jdbcTemplate, excludeColumns, -1);
-            } else {
-                getResultForPaginate(sql, paginateWithQueryColumns, jdbcTemplate, excludeColumns, startRow);
+                if (limit > 0) {
+                    totalCount = Math.min(Math.min(limit, resultLimit), totalCount);
+                }
             }
+
+            handler.onFinish(pageNo, pageSize, totalCount, approximate);
+        } catch (IOException e) {
+            log.error(e.toString(), e);
+            throw new ServerException(e.getMessage(), e);
         }
 
         if (isQueryLogEnable) {
             String md5 = MD5Util.getMD5(sql + pageNo + pageSize + limit, true, 16);
             sqlLogger.info("{} query for {} ms, total count:{}, page size:{}, sql:{}",
                     md5, System.currentTimeMillis() - before,
-                    paginateWithQueryColumns.getTotalCount(),
-                    paginateWithQueryColumns.getPageSize(),
+                    totalCount,
+                    pageSize,
                     formatSql(sql));
         }
+    }
 
-        return paginateWithQueryColumns;
+    /**
+     * 提交总数查询
+     * 开启并行时在独立连接上与数据查询同时执行
+     * 开启近似计数时优先使用缓存的精确总数，单表查询可使用执行计划估算值，并在后台刷新精确总数
+     *
+     * @param sql
+     * @return 估算值以 EstimatedCount 返回
+     */
+    private Future<Integer> submitCount(String sql) {
+        String countSql = getCountSql(sql);
+        String key = getExactCountKey(countSql);
+
+        if (isApproximateCount) {
+            Integer count = getExactCount(key);
+            if (null != count) {
+                return CompletableFuture.completedFuture(count);
+            }
+
+            count = estimateCount(sql);
+            if (null != count) {
+                submitExactCount(countSql, key, true, true);
+                return new EstimatedCount(count);
+            }
+        }
+
+        return submitExactCount(countSql, key, isParallelCount, false);
     }
 
-    private void getResultForPaginate(String sql, PaginateWithQueryColumns paginateWithQueryColumns, JdbcTemplate jdbcTemplate, Set<String> excludeColumns, int startRow) {
-        Set<String> queryFromsAndJoins = getQueryFromsAndJoins(sql);
-        jdbcTemplate.query(sql, rs -> {
+    /**
+     * 执行精确总数查询，相同 count sql 正在执行时共享其结果
+     *
+     * @param countSql
+     * @param key
+     * @param async      是否交由计数线程池执行，线程池繁忙时在当前线程执行
+     * @param background 是否为后台刷新，线程池繁忙时直接放弃
+     * @return
+     */
+    private Future<Integer> submitExactCount(String countSql, String key, boolean async, boolean background) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        CompletableFuture<Integer> inFlight = COUNTS_IN_FLIGHT.putIfAbsent(key, future);
+        if (null != inFlight) {
+            return inFlight;
+        }
+
+        Runnable task = () -> {
+            try {
+                future.complete(queryCount(countSql, key));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                COUNTS_IN_FLIGHT.remove(key, future);
+            }
+        };
+
+        if (async && null != countWorkers) {
+            try {
+                countWorkers.execute(task);
+                return future;
+            } catch (RejectedExecutionException e) {
+                if (background) {
+                    log.debug("Count workers are busy, skip refreshing count");
+                    COUNTS_IN_FLIGHT.remove(key, future);
+                    future.cancel(false);
+                    return future;
+                }
+                log.debug("Count workers are busy, count in current thread");
+            }
+        }
+
+        if (background) {
+            COUNTS_IN_FLIGHT.remove(key, future);
+            future.cancel(false);
+            return future;
+        }
+
+        task.run();
+        return future;
+    }
+
+    private int queryCount(String countSql, String key) {
+        Object o = jdbcTemplate().queryForList(countSql, Object.class).get(0);
+        int count = Integer.parseInt(String.valueOf(o));
+        if (isApproximateCount && null != queryResultCache) {
+            queryResultCache.set(key, count, EXACT_COUNT_EXPIRE_SECONDS);
+        }
+        return count;
+    }
+
+    private Integer getExactCount(String key) {
+        if (null == queryResultCache) {
+            return null;
+        }
+        try {
+            Object count = queryResultCache.get(key, EXACT_COUNT_EXPIRE_SECONDS);
+            return count instanceof Number ? ((Number) count).intValue() : null;
+        } catch (Exception e) {
+            log.warn("Get exact count by cache error, {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String getExactCountKey(String countSql) {
+        return EXACT_COUNT_KEY_PREFIX + MD5Util.getMD5(jdbcSourceInfo.getJdbcUrl() + AT_SYMBOL + countSql, true, 32);
+    }
+
+    /**
+     * 失效近似计数模式下缓存的精确总数，与查询结果缓存的 flush 一同调用
+     *
+     * @param sql
+     */
+    public void invalidateCount(String sql) {
+        if (!isApproximateCount || null == queryResultCache) {
+            return;
+        }
+        queryResultCache.invalidate(getExactCountKey(getCountSql(sql)));
+    }
+
+    private int getCount(Future<Integer> countFuture) {
+        try {
+            return countFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException("Count query is interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ServerException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 根据执行计划估算总数，不支持的数据库或查询返回 null
+     *
+     * @param sql
+     * @return
+     */
+    private Integer estimateCount(String sql) {
+        // 多表、分组、去重及聚合查询的执行计划行数与结果行数无关
+        if (!SqlPlanCache.getStatementPlan(sql).isCountEstimable()) {
+            return null;
+        }
+        try {
+            if (dataTypeEnum == MYSQL) {
+                List<Map<String, Object>> plans = jdbcTemplate().queryForList("EXPLAIN " + sql);
+                if (!CollectionUtils.isEmpty(plans) && null != plans.get(0).get("rows")) {
+                    return Integer.parseInt(String.valueOf(plans.get(0).get("rows")));
+                }
+            }
+
+            if (dataTypeEnum == CLICKHOUSE) {
+                List<Map<String, Object>> plans = jdbcTemplate().queryForList("EXPLAIN ESTIMATE " + sql);
+                long rows = 0L;
+                for (Map<String, Object> plan : plans) {
+                    if (null != plan.get("rows")) {
+                        rows += Long.parseLong(String.valueOf(plan.get("rows")));
+                    }
+                }
+                return CollectionUtils.isEmpty(plans) ? null : (int) Math.min(rows, Integer.MAX_VALUE);
+            }
+        } catch (Exception e) {
+            log.debug("Estimate count error, sql:{}, e:{}", sql, e.getMessage());
+        }
+        return null;
+    }
+
+    private int getResultForPaginate(String sql, Set<String> queryFromsAndJoins, JdbcTemplate jdbcTemplate, Set<String> excludeColumns, int startRow, ResultStreamHandler handler) {
+        Integer count = jdbcTemplate.query(sql, rs -> {
             if (null == rs) {
-                return paginateWithQueryColumns;
+                return 0;
             }
 
             ResultSetMetaData metaData = rs.getMetaData();
             List<QueryColumn> queryColumns = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
             for (int i = 1; i <= metaData.getColumnCount(); i++) {
                 String key = getColumnLabel(queryFromsAndJoins, metaData.getColumnLabel(i));
                 if (!CollectionUtils.isEmpty(excludeColumns) && excludeColumns.contains(key)) {
                     continue;
                 }
                 queryColumns.add(new QueryColumn(key, metaData.getColumnTypeName(i)));
+                indexes.add(i);
             }
-            paginateWithQueryColumns.setColumns(queryColumns);
-
-            List<Map<String, Object>> resultList = new ArrayList<>();
 
             try {
+                handler.onColumns(queryColumns);
+
                 if (startRow > 0) {
-                    rs.absolute(startRow);
-                }
-                while (rs.next()) {
-                    resultList.add(getResultObjectMap(excludeColumns, rs, metaData, queryFromsAndJoins));
+                    boolean skipped;
+                    try {
+                        skipped = rs.absolute(startRow);
+                    } catch (Throwable e) {
+                        // forward only
+                        skipped = true;
+                        for (int i = 0; i < startRow && skipped; i++) {
+                            skipped = rs.next();
+                        }
+                    }
+                    if (!skipped) {
+                        return 0;
+                    }
                 }
-            } catch (Throwable e) {
-                int currentRow = 0;
+
+                int rows = 0;
+                Object[] values = new Object[indexes.size()];
                 while (rs.next()) {
-                    if (currentRow >= startRow) {
-                        resultList.add(getResultObjectMap(excludeColumns, rs, metaData, queryFromsAndJoins));
+                    for (int i = 0; i < values.length; i++) {
+                        Object value = rs.getObject(indexes.get(i));
+                        values[i] = value instanceof byte[] ? new String((byte[]) value) : value;
                     }
-                    currentRow++;
+                    handler.onRow(values);
+                    rows++;
                 }
+                return rows;
+            } catch (IOException e) {
+                throw new ServerException(e.getMessage(), e);
             }
-
-            paginateWithQueryColumns.setResultList(resultList);
-
-            return paginateWithQueryColumns;
         });
+        return null == count ? 0 : count;
     }
 
-    private Map<String, Object> getResultObjectMap(Set<String> excludeColumns, ResultSet rs, ResultSetMetaData metaData, Set<String> queryFromsAndJoins) throws SQLException {
-        Map<String, Object> map = new LinkedHashMap<>();
-
-        for (int i = 1; i <= metaData.getColumnCount(); i++) {
-            String key = metaData.getColumnLabel(i);
-            String label = getColumnLabel(queryFromsAndJoins, key);
+    /**
+     * 获取分页方式，datasource_driver.yml 中的配置优先
+     * 最外层查询已有分页子句时不改写
+     *
+     * @param sql
+     * @return
+     */
+    private PaginationEnum getPagination(String sql) {
+        PaginationEnum pagination = null;
+        CustomDataSource customDataSource = CustomDataSourceUtils.getInstance(jdbcSourceInfo.getJdbcUrl(), jdbcSourceInfo.getDbVersion());
+        if (null != customDataSource) {
+            pagination = PaginationEnum.styleOf(customDataSource.getPagination());
+        }
+        if (null == pagination) {
+            pagination = null == dataTypeEnum ? PaginationEnum.NONE : dataTypeEnum.getPagination();
+        }
 
-            if (!CollectionUtils.isEmpty(excludeColumns) && excludeColumns.contains(label)) {
-                continue;
-            }
-            Object value = rs.getObject(key);
-            map.put(label, value instanceof byte[] ? new String((byte[]) value) : value);
+        // 无法解析的 sql 不能确认是否已有分页子句，退回不改写 sql 的方式
+        SqlPlanCache.StatementPlan plan = SqlPlanCache.getStatementPlan(sql);
+        if (!plan.isSelect() || plan.isLimited()) {
+            return PaginationEnum.NONE;
         }
-        return map;
+        return pagination;
     }
 
     public static String getCountSql(String sql) {
+        return SqlPlanCache.getStatementPlan(sql).getCountSql();
+    }
+
+    /**
+     * 根据已解析的 AST 生成 count sql，会移除 order by
+     *
+     * @param select 解析失败时为 null
+     * @param sql
+     * @return
+     */
+    public static String getCountSql(Select select, String sql) {
         String countSql = String.format(Consts.QUERY_COUNT_SQL, sql);
-        try {
-            Select select = (Select) CCJSqlParserUtil.parse(sql);
+        if (null != select && select.getSelectBody() instanceof PlainSelect) {
             PlainSelect plainSelect = (PlainSelect) select.getSelectBody();
             plainSelect.setOrderByElements(null);
             countSql = String.format(QUERY_COUNT_SQL, select.toString());
-        } catch (JSQLParserException e) {
-            log.debug(e.getMessage(), e);
         }
         return SqlParseUtils.rebuildSqlWithFragment(countSql);
     }
@@ -328,41 +676,34 @@ public class SqlUtils {
         if (StringUtils.isEmpty(src)) {
             return false;
         }
-        try {
-            Statement parse = CCJSqlParserUtil.parse(src);
-            return parse instanceof Select;
-        } catch (JSQLParserException e) {
-            return false;
-        }
+        return SqlPlanCache.getStatementPlan(src).isSelect();
     }
 
     public static Set<String> getQueryFromsAndJoins(String sql) {
-        Set<String> columnPrefixes = new HashSet<>();
-        try {
-            Statement parse = CCJSqlParserUtil.parse(sql);
-            Select select = (Select) parse;
-            SelectBody selectBody = select.getSelectBody();
-            if (selectBody instanceof PlainSelect) {
-                PlainSelect plainSelect = (PlainSelect) selectBody;
-                columnPrefixExtractor(columnPrefixes, plainSelect);
-            }
+        return SqlPlanCache.getStatementPlan(sql).getQueryFromsAndJoins();
+    }
 
-            if (selectBody instanceof SetOperationList) {
-                SetOperationList setOperationList = (SetOperationList) selectBody;
-                List<SelectBody> selects = setOperationList.getSelects();
-                for (SelectBody optSelectBody : selects) {
-                    PlainSelect plainSelect = (PlainSelect) optSelectBody;
-                    columnPrefixExtractor(columnPrefixes, plainSelect);
-                }
-            }
+    public static Set<String> getQueryFromsAndJoins(Select select) {
+        Set<String> columnPrefixes = new HashSet<>();
+        SelectBody selectBody = select.getSelectBody();
+        if (selectBody instanceof PlainSelect) {
+            PlainSelect plainSelect = (PlainSelect) selectBody;
+            columnPrefixExtractor(columnPrefixes, plainSelect);
+        }
 
-            if (selectBody instanceof WithItem) {
-                WithItem withItem = (WithItem) selectBody;
-                PlainSelect plainSelect = (PlainSelect) withItem.getSelectBody();
+        if (selectBody instanceof SetOperationList) {
+            SetOperationList setOperationList = (SetOperationList) selectBody;
+            List<SelectBody> selects = setOperationList.getSelects();
+            for (SelectBody optSelectBody : selects) {
+                PlainSelect plainSelect = (PlainSelect) optSelectBody;
                 columnPrefixExtractor(columnPrefixes, plainSelect);
             }
-        } catch (JSQLParserException e) {
-            log.debug(e.getMessage(), e);
+        }
+
+        if (selectBody instanceof WithItem) {
+            WithItem withItem = (WithItem) selectBody;
+            PlainSelect plainSelect = (PlainSelect) withItem.getSelectBody();
+            columnPrefixExtractor(columnPrefixes, plainSelect);
         }
         return columnPrefixes;
     }
@@ -672,17 +1013,18 @@ public class SqlUtils {
 //        }
     }
 
+    /**
+     * 基于数据源共享的 JdbcTemplate 派生，调用方可自行设置 maxRows/fetchSize
+     * 不再预先借出连接校验，连接有效性由 druid 空闲检测保证，失败由熔断器处理
+     *
+     * @return
+     * @throws SourceException
+     */
     public JdbcTemplate jdbcTemplate() throws SourceException {
-        Connection connection = null;
-        try {
-            connection = sourceUtils.getConnection(jdbcSourceInfo);
-        } finally {
-            SourceUtils.releaseConnection(connection);
-        }
-        DataSource dataSource = sourceUtils.getDataSource(jdbcSourceInfo);
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-        jdbcTemplate.setDatabaseProductName(jdbcSourceInfo.getDatabase());
-        jdbcTemplate.setFetchSize(500);
+        JdbcTemplate sharedTemplate = jdbcDataSource.getJdbcTemplate(jdbcSourceInfo);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(sharedTemplate.getDataSource(), true);
+        jdbcTemplate.setExceptionTranslator(sharedTemplate.getExceptionTranslator());
+        jdbcTemplate.setFetchSize(sharedTemplate.getFetchSize());
         return jdbcTemplate;
     }
 
@@ -958,10 +1300,22 @@ public class SqlUtils {
         this.dataTypeEnum = DataTypeEnum.urlOf(jdbcSourceInfo.getJdbcUrl());
     }
 
+    /**
+     * 执行计划估算的总数
+     */
+    private static final class EstimatedCount extends CompletableFuture<Integer> {
+        EstimatedCount(int count) {
+            complete(count);
+        }
+    }
+
     public static final class SqlUtilsBuilder {
         private JdbcDataSource jdbcDataSource;
         private int resultLimit;
         private boolean isQueryLogEnable;
+        private boolean isParallelCount;
+        private boolean isApproximateCount;
+        private QueryResultCache queryResultCache;
         private String name;
         private String type;
         private String jdbcUrl;
@@ -994,6 +1348,21 @@ public class SqlUtils {
             return this;
         }
 
+        SqlUtilsBuilder withIsParallelCount(boolean isParallelCount) {
+            this.isParallelCount = isParallelCount;
+            return this;
+        }
+
+        SqlUtilsBuilder withIsApproximateCount(boolean isApproximateCount) {
+            this.isApproximateCount = isApproximateCount;
+            return this;
+        }
+
+        SqlUtilsBuilder withQueryResultCache(QueryResultCache queryResultCache) {
+            this.queryResultCache = queryResultCache;
+            return this;
+        }
+
         SqlUtilsBuilder withName(String name) {
             this.name = name;
             return this;
@@ -1056,6 +1425,9 @@ public class SqlUtils {
             sqlUtils.jdbcDataSource = this.jdbcDataSource;
             sqlUtils.resultLimit = this.resultLimit;
             sqlUtils.isQueryLogEnable = this.isQueryLogEnable;
+            sqlUtils.isParallelCount = this.isParallelCount;
+            sqlUtils.isApproximateCount = this.isApproximateCount;
+            sqlUtils.queryResultCache = this.queryResultCache;
             sqlUtils.sourceUtils = new SourceUtils(this.jdbcDataSource);
 
             return sqlUtils;
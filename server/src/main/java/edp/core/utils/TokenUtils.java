@@ -221,6 +221,39 @@ public class TokenUtils {
         return password;
     }
 
+    /**
+     * 解析 token，解析失败（签名错误、已过期等）返回 null
+     * 同一请求内多次校验时应复用解析结果
+     *
+     * @param token
+     * @return
+     */
+    public Claims parseToken(String token) {
+        if (StringUtils.isEmpty(token)) {
+            return null;
+        }
+        try {
+            return getClaims(token);
+        } catch (Exception e) {
+            log.debug("Parse token error: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从已解析的 claims 获取用户名
+     *
+     * @param claims
+     * @return
+     */
+    public String getUsername(Claims claims) {
+        if (null == claims) {
+            return null;
+        }
+        Object username = claims.get(Consts.TOKEN_USER_NAME);
+        return null == username ? null : username.toString();
+    }
+
     /**
      * 获取token claims
      *
@@ -255,10 +288,26 @@ public class TokenUtils {
      * @return
      */
     public boolean validateToken(String token, TokenDetail tokenDetail) {
-        TokenDetail user = (TokenDetail) tokenDetail;
-        String username = getUsername(token);
-        String password = getPassword(token);
-        return (username.equals(user.getUsername()) && password.equals(user.getPassword()) && !(isExpired(token)));
+        return validateToken(parseToken(token), tokenDetail);
+    }
+
+    /**
+     * 根据 TokenDetail 验证已解析的 claims
+     *
+     * @param claims
+     * @param tokenDetail
+     * @return
+     */
+    public boolean validateToken(Claims claims, TokenDetail tokenDetail) {
+        if (null == claims || null == tokenDetail) {
+            return false;
+        }
+        Object username = claims.get(Consts.TOKEN_USER_NAME);
+        Object password = claims.get(Consts.TOKEN_USER_PASSWORD);
+        Date expiration = claims.getExpiration();
+        return null != username && username.toString().equals(tokenDetail.getUsername())
+                && null != password && password.toString().equals(tokenDetail.getPassword())
+                && (null == expiration || !expiration.before(new Date(System.currentTimeMillis())));
     }
 
     /**
@@ -20,19 +20,68 @@
 package edp.davinci.common.controller;
 
 import edp.core.utils.TokenUtils;
+import edp.davinci.core.common.ResultMap;
+import edp.davinci.core.utils.MetadataVersionManager;
+import edp.davinci.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
+import javax.servlet.http.HttpServletRequest;
+
 @Component
 public class BaseController {
 
     @Autowired
     public TokenUtils tokenUtils;
 
+    @Autowired
+    protected MetadataVersionManager metadataVersionManager;
+
     public boolean invalidId(Long value) {
         if (null == value || value.longValue() < 1L) {
             return true;
         }
         return false;
     }
+
+    /**
+     * 根据元数据版本生成 ETag，版本未启用时返回 null
+     *
+     * @param user
+     * @param versionKeys
+     * @return
+     */
+    public String getVersionETag(User user, String... versionKeys) {
+        return metadataVersionManager.getETag(null == user ? null : user.getId(), versionKeys);
+    }
+
+    public boolean notModified(HttpServletRequest request, String eTag) {
+        return null != eTag && eTag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    public ResponseEntity notModifiedResponse(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+
+    /**
+     * 带 ETag 的成功结果，响应可能被客户端缓存，此时不携带刷新的 token
+     *
+     * @param request
+     * @param eTag
+     * @return
+     */
+    public ResultMap successResult(HttpServletRequest request, String eTag) {
+        return null == eTag ? new ResultMap(tokenUtils).successAndRefreshToken(request) : new ResultMap().success();
+    }
+
+    public ResponseEntity okWithETag(String eTag, ResultMap resultMap) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (null != eTag) {
+            builder.eTag(eTag);
+        }
+        return builder.body(resultMap);
+    }
 }
@@ -22,19 +22,43 @@ package edp.davinci.common.utils;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import edp.core.exception.ServerException;
 import edp.davinci.core.common.Constants;
 import edp.davinci.core.model.ExcelHeader;
 import edp.davinci.dto.viewDto.Param;
 import edp.davinci.dto.viewDto.SimpleView;
 import edp.davinci.dto.viewDto.ViewExecuteParam;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
 import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * 执行参数及表头生成
+ * 默认 verify：以 js 脚本结果为准，同时执行 java 实现（ViewExecuteParamResolver、TableHeaderResolver）并记录差异；
+ * native 使用 java 实现，不支持的配置回退到 js 脚本；
+ * js 脚本的所有 Context 共享同一个 Engine 及已解析的 Source，Context 非线程安全，按需创建并池化复用，
+ * 池大小为 cpu 核数
+ */
+@Slf4j
 public class ScriptUtils {
 
     private static final String LANGUAGE = "js";
@@ -43,45 +67,322 @@ public class ScriptUtils {
 
     private static final ClassLoader classLoader = ScriptUtils.class.getClassLoader();
 
+    private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final long BORROW_WAIT_MILLIS = 100L;
+
+    private static volatile ScriptMode mode = ScriptMode.VERIFY;
+
+    private static final AtomicLong fallbacks = new AtomicLong();
+
+    private static final AtomicLong mismatches = new AtomicLong();
+
+    /**
+     * js 引擎是否已加载，未加载时统计不触发初始化
+     */
+    private static volatile boolean scriptLoaded = false;
+
+    /**
+     * native: java 实现，不支持时回退到 js
+     * js: 仅使用 js 脚本
+     * verify: 同时执行 java 实现及 js 脚本，结果不一致时记录日志，返回 js 结果；未知配置按 verify 处理
+     */
+    public enum ScriptMode {
+        NATIVE,
+        JS,
+        VERIFY;
+
+        public static ScriptMode modeOf(String mode) {
+            for (ScriptMode scriptMode : values()) {
+                if (scriptMode.name().equalsIgnoreCase(mode)) {
+                    return scriptMode;
+                }
+            }
+            return VERIFY;
+        }
+    }
+
     private enum ScriptEnum {
         INSTANCE;
 
-        private Value tableFormatJs;
-        private Value executeParamFormatJs;
+        private Engine engine;
+        private Source tableFormatSource;
+        private Source executeParamFormatSource;
+
+        private final BlockingQueue<ScriptContext> idle = new LinkedBlockingQueue<>();
+        private final AtomicInteger created = new AtomicInteger();
 
         ScriptEnum() {
             try {
-                tableFormatJs = createScriptEngine(Constants.TABLE_FORMAT_JS, FUNC_FIELDS_HEADER);
-                executeParamFormatJs = createScriptEngine(Constants.EXECUTE_PARAM_FORMAT_JS, FUNC_DASHBOARD_ITEM_EXECUTE_PARAM);
+                engine = Engine.create();
+                tableFormatSource = createSource(Constants.TABLE_FORMAT_JS);
+                executeParamFormatSource = createSource(Constants.EXECUTE_PARAM_FORMAT_JS);
+                // 预热一个 Context
+                created.incrementAndGet();
+                idle.offer(new ScriptContext(engine, tableFormatSource, executeParamFormatSource));
+                scriptLoaded = true;
             } catch (Exception e) {
-                e.printStackTrace();
+                log.error(e.toString(), e);
+            }
+        }
+
+        private static Source createSource(String sourcePath) throws Exception {
+            return Source.newBuilder(LANGUAGE, Objects.requireNonNull(classLoader.getResource(sourcePath))).build();
+        }
+
+        private ScriptContext borrow() throws InterruptedException {
+            for (; ; ) {
+                ScriptContext scriptContext = idle.poll();
+                if (null != scriptContext) {
+                    return scriptContext;
+                }
+
+                if (created.incrementAndGet() <= POOL_SIZE) {
+                    try {
+                        return new ScriptContext(engine, tableFormatSource, executeParamFormatSource);
+                    } catch (RuntimeException e) {
+                        created.decrementAndGet();
+                        throw e;
+                    }
+                }
+                created.decrementAndGet();
+
+                // 损坏的 Context 关闭后不再归还，限时等待后重新检查是否可以新建
+                scriptContext = idle.poll(BORROW_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (null != scriptContext) {
+                    return scriptContext;
+                }
             }
         }
 
-        private static Value createScriptEngine(String sourcePath, String member) throws Exception {
-            Context context = Context.create(LANGUAGE);
-            Source source = Source.newBuilder(LANGUAGE, Objects.requireNonNull(classLoader.getResource(sourcePath))).build();
+        private void release(ScriptContext scriptContext, boolean broken) {
+            if (broken) {
+                created.decrementAndGet();
+                scriptContext.close();
+                return;
+            }
+            idle.offer(scriptContext);
+        }
+
+        private <T> T execute(Function<ScriptContext, T> function) {
+            ScriptContext scriptContext;
+            try {
+                scriptContext = borrow();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServerException("Interrupted while waiting for script context");
+            }
+
+            boolean broken = false;
+            try {
+                return function.apply(scriptContext);
+            } catch (PolyglotException e) {
+                broken = e.isInternalError() || e.isCancelled() || e.isExit();
+                throw e;
+            } finally {
+                release(scriptContext, broken);
+            }
+        }
+    }
+
+    /**
+     * 单个 js Context 及其中已加载的函数
+     */
+    private static final class ScriptContext {
+
+        private final Context context;
+        private final Value tableFormatJs;
+        private final Value executeParamFormatJs;
+
+        ScriptContext(Engine engine, Source tableFormatSource, Source executeParamFormatSource) {
+            this.context = Context.newBuilder(LANGUAGE).engine(engine).build();
+            this.tableFormatJs = getFunction(tableFormatSource, FUNC_FIELDS_HEADER);
+            this.executeParamFormatJs = getFunction(executeParamFormatSource, FUNC_DASHBOARD_ITEM_EXECUTE_PARAM);
+        }
+
+        private Value getFunction(Source source, String member) {
             context.eval(source);
             Value function = context.getBindings(LANGUAGE).getMember(member);
             return function.canExecute() ? function : null;
         }
+
+        private void close() {
+            try {
+                context.close(true);
+            } catch (Exception e) {
+                log.warn("Close script context error, {}", e.getMessage());
+            }
+        }
     }
 
 
-    public static synchronized ViewExecuteParam getViewExecuteParam(String dashboardConfig, String widgetConfig, Set<SimpleView> views,
-                                                                    Long relationId) {
+    public static void setMode(ScriptMode scriptMode) {
+        mode = null == scriptMode ? ScriptMode.VERIFY : scriptMode;
+    }
 
-        Value js = ScriptEnum.INSTANCE.executeParamFormatJs;
-        Value result = js.execute(dashboardConfig, widgetConfig, JSON.toJSONString(views), relationId);
-        ViewExecuteParam viewExecuteParam = JSONObject.parseObject(result.asString(), ViewExecuteParam.class);
-        return viewExecuteParam;
+    public static Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("fallbacks", fallbacks.get());
+        metrics.put("mismatches", mismatches.get());
+        if (scriptLoaded) {
+            metrics.put("contexts", (long) ScriptEnum.INSTANCE.created.get());
+            metrics.put("idleContexts", (long) ScriptEnum.INSTANCE.idle.size());
+        }
+        return metrics;
+    }
+
+    public static ViewExecuteParam getViewExecuteParam(String dashboardConfig, String widgetConfig, Set<SimpleView> views,
+                                                       Long relationId) {
+
+        return execute(FUNC_DASHBOARD_ITEM_EXECUTE_PARAM,
+                nativeExecuteParam(dashboardConfig, widgetConfig, views, relationId),
+                scriptExecuteParam(dashboardConfig, widgetConfig, views, relationId));
+    }
+
+    public static List<ExcelHeader> formatHeader(String widgetConfig, List<Param> params) {
+
+        return execute(FUNC_FIELDS_HEADER, nativeHeader(widgetConfig, params), scriptHeader(widgetConfig, params));
+    }
+
+    /**
+     * 同时执行 java 实现及 js 脚本并比较执行参数，不受 script.mode 影响，不计入 metrics
+     *
+     * @param dashboardConfig
+     * @param widgetConfig
+     * @param views
+     * @param relationId
+     * @return
+     */
+    public static Comparison compareViewExecuteParam(String dashboardConfig, String widgetConfig, Set<SimpleView> views,
+                                                     Long relationId) {
+
+        return compare(nativeExecuteParam(dashboardConfig, widgetConfig, views, relationId),
+                scriptExecuteParam(dashboardConfig, widgetConfig, views, relationId));
+    }
+
+    /**
+     * 同时执行 java 实现及 js 脚本并比较表头，不受 script.mode 影响，不计入 metrics
+     *
+     * @param widgetConfig
+     * @param params
+     * @return
+     */
+    public static Comparison compareHeader(String widgetConfig, List<Param> params) {
+
+        return compare(nativeHeader(widgetConfig, params), scriptHeader(widgetConfig, params));
+    }
+
+    private static Supplier<ViewExecuteParam> nativeExecuteParam(String dashboardConfig, String widgetConfig,
+                                                                 Set<SimpleView> views, Long relationId) {
+        return () -> ViewExecuteParamResolver.resolve(
+                ViewExecuteParamResolver.parse(dashboardConfig, "{}"),
+                ViewExecuteParamResolver.parse(widgetConfig, "{}"),
+                views, relationId);
+    }
+
+    private static Supplier<ViewExecuteParam> scriptExecuteParam(String dashboardConfig, String widgetConfig,
+                                                                 Set<SimpleView> views, Long relationId) {
+        return () -> {
+            String viewsJson = JSON.toJSONString(views);
+            String result = ScriptEnum.INSTANCE.execute(c ->
+                    c.executeParamFormatJs.execute(dashboardConfig, widgetConfig, viewsJson, relationId).asString());
+            return JSONObject.parseObject(result, ViewExecuteParam.class);
+        };
+    }
+
+    private static Supplier<List<ExcelHeader>> nativeHeader(String widgetConfig, List<Param> params) {
+        return () -> TableHeaderResolver.resolve(
+                null == widgetConfig || widgetConfig.isEmpty() ? null : ViewExecuteParamResolver.parse(widgetConfig, null),
+                params);
+    }
+
+    private static Supplier<List<ExcelHeader>> scriptHeader(String widgetConfig, List<Param> params) {
+        return () -> {
+            String paramsJson = JSON.toJSONString(params);
+            String result = ScriptEnum.INSTANCE.execute(c ->
+                    c.tableFormatJs.execute(widgetConfig, paramsJson).toString());
+            return JSONArray.parseArray(result, ExcelHeader.class);
+        };
+    }
+
+    private static <T> T execute(String function, Supplier<T> nativeSupplier, Supplier<T> scriptSupplier) {
+        ScriptMode currentMode = mode;
+        if (currentMode == ScriptMode.JS) {
+            return scriptSupplier.get();
+        }
+
+        if (currentMode == ScriptMode.VERIFY) {
+            // 以 js 结果为准，java 实现出错只记录，不影响请求
+            T scriptResult = scriptSupplier.get();
+            Comparison comparison = compare(nativeSupplier, () -> scriptResult);
+            if (comparison.isFallback()) {
+                fallbacks.incrementAndGet();
+                log.debug("{} falls back to script: {}", function, comparison.getNativeResult());
+            } else if (!comparison.isMatched()) {
+                mismatches.incrementAndGet();
+                log.warn("{} native result differs from script, native: {}, script: {}", function,
+                        comparison.getNativeResult(), comparison.getScriptResult());
+            }
+            return scriptResult;
+        }
+
+        try {
+            return nativeSupplier.get();
+        } catch (ScriptFallbackException e) {
+            fallbacks.incrementAndGet();
+            log.debug("{} falls back to script: {}", function, e.getMessage());
+            return scriptSupplier.get();
+        }
+    }
+
+    private static <T> Comparison compare(Supplier<T> nativeSupplier, Supplier<T> scriptSupplier) {
+        String nativeResult;
+        boolean nativeFailed = false;
+        try {
+            nativeResult = JSON.toJSONString(nativeSupplier.get());
+        } catch (ScriptFallbackException e) {
+            return new Comparison(true, e.getMessage(), null, false, false);
+        } catch (RuntimeException e) {
+            nativeResult = e.toString();
+            nativeFailed = true;
+        }
+
+        String scriptResult;
+        boolean scriptFailed = false;
+        try {
+            scriptResult = JSON.toJSONString(scriptSupplier.get());
+        } catch (RuntimeException e) {
+            scriptResult = e.toString();
+            scriptFailed = true;
+        }
+        return new Comparison(false, nativeResult, scriptResult, nativeFailed, scriptFailed);
     }
 
-    public static synchronized List<ExcelHeader> formatHeader(String widgetConfig, List<Param> params) {
+    /**
+     * java 实现与 js 脚本的比较结果，结果为 json，执行出错时为异常信息
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Comparison {
+
+        /**
+         * java 实现不支持，回退到 js，此时 nativeResult 为回退原因
+         */
+        private final boolean fallback;
 
-        Value js = ScriptEnum.INSTANCE.tableFormatJs;
-        Value result = js.execute(widgetConfig, JSON.toJSONString(params));
-        List<ExcelHeader> excelHeaders = JSONArray.parseArray(result.toString(), ExcelHeader.class);
-        return excelHeaders;
+        private final String nativeResult;
+
+        private final String scriptResult;
+
+        private final boolean nativeFailed;
+
+        private final boolean scriptFailed;
+
+        /**
+         * 回退、两者均出错或结果相同时视为一致
+         */
+        public boolean isMatched() {
+            return fallback || (nativeFailed && scriptFailed) || (!nativeFailed && !scriptFailed && nativeResult.equals(scriptResult));
+        }
     }
-}
\ No newline at end of file
+}
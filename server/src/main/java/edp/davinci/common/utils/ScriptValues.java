@@ -0,0 +1,232 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.common.utils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 按 js 语义处理 fastjson 解析出的值（真值判断、全等、字符串转换、Object.entries 顺序等），
+ * 供 executeParam.js 及 formatCellValue.js 的 java 实现使用
+ * 无法与 js 等价处理时抛出 ScriptFallbackException，由调用方回退到 js 执行
+ */
+final class ScriptValues {
+
+    private static final Pattern ARRAY_INDEX = Pattern.compile("^(0|[1-9]\\d{0,9})$");
+
+    private static final Pattern JS_DECIMAL = Pattern.compile("^[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?$");
+
+    private static final double MAX_SAFE_INTEGER = 9007199254740991D;
+
+    private ScriptValues() {
+    }
+
+    static ScriptFallbackException unsupported(String message) {
+        return new ScriptFallbackException(message);
+    }
+
+    static boolean truthy(Object value) {
+        if (null == value) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            return d != 0D && !Double.isNaN(d);
+        }
+        if (value instanceof String) {
+            return !((String) value).isEmpty();
+        }
+        return true;
+    }
+
+    static boolean isBlankString(Object value) {
+        return value instanceof String && ((String) value).trim().isEmpty();
+    }
+
+    /**
+     * js ===，对象按引用比较
+     */
+    static boolean strictEquals(Object a, Object b) {
+        if (null == a || null == b) {
+            return a == b;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+        }
+        if (a instanceof String || a instanceof Boolean) {
+            return a.equals(b);
+        }
+        return a == b;
+    }
+
+    static Map<String, Object> asMap(Object value, String name) {
+        if (value instanceof Map) {
+            return (Map<String, Object>) value;
+        }
+        throw unsupported(name + " is not an object");
+    }
+
+    static List<Object> asList(Object value, String name) {
+        if (value instanceof List) {
+            return (List<Object>) value;
+        }
+        throw unsupported(name + " is not an array");
+    }
+
+    static Object get(Object object, String key) {
+        if (null == object) {
+            throw unsupported("Cannot read property '" + key + "' of null");
+        }
+        return object instanceof Map ? ((Map) object).get(key) : null;
+    }
+
+    /**
+     * Object.entries，整数键按数值升序排在前面，其余键保持插入顺序
+     */
+    static List<Map.Entry<String, Object>> entries(Object object, String name) {
+        Map<String, Object> map = asMap(object, name);
+        List<Map.Entry<String, Object>> indexes = new ArrayList<>();
+        List<Map.Entry<String, Object>> others = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (ARRAY_INDEX.matcher(entry.getKey()).matches() && Long.parseLong(entry.getKey()) < 4294967295L) {
+                indexes.add(entry);
+            } else {
+                others.add(entry);
+            }
+        }
+        indexes.sort((e1, e2) -> Long.compare(Long.parseLong(e1.getKey()), Long.parseLong(e2.getKey())));
+        indexes.addAll(others);
+        return indexes;
+    }
+
+    /**
+     * js Number(value)，无法转换时返回 NaN
+     */
+    static double toNumber(Object value) {
+        if (null == value) {
+            return 0D;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1D : 0D;
+        }
+        if (value instanceof String) {
+            String str = ((String) value).trim();
+            if (str.isEmpty()) {
+                return 0D;
+            }
+            if (JS_DECIMAL.matcher(str).matches()) {
+                return Double.parseDouble(str);
+            }
+            switch (str) {
+                case "Infinity":
+                case "+Infinity":
+                    return Double.POSITIVE_INFINITY;
+                case "-Infinity":
+                    return Double.NEGATIVE_INFINITY;
+                default:
+                    if (str.length() > 2 && str.charAt(0) == '0' && "xXoObB".indexOf(str.charAt(1)) >= 0) {
+                        throw unsupported("Non-decimal number literal " + str);
+                    }
+                    return Double.NaN;
+            }
+        }
+        if (value instanceof List) {
+            List list = (List) value;
+            return list.isEmpty() ? 0D : list.size() == 1 ? toNumber(toJsString(list.get(0))) : Double.NaN;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * js String(value)
+     */
+    static String toJsString(Object value) {
+        if (null == value) {
+            return "null";
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Number) {
+            return numberToString((Number) value);
+        }
+        if (value instanceof List) {
+            return ((List<Object>) value).stream()
+                    .map(v -> null == v ? "" : toJsString(v))
+                    .collect(Collectors.joining(","));
+        }
+        if (value instanceof Map) {
+            return "[object Object]";
+        }
+        throw unsupported("Cannot convert " + value.getClass().getSimpleName() + " to string");
+    }
+
+    /**
+     * 数值按 js number(double) 归一，超出安全整数范围等无法保证一致的情况抛出异常
+     */
+    static Number normalizeNumber(Number number) {
+        if (number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            return number;
+        }
+        double d = number.doubleValue();
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw unsupported("Non-finite number " + number);
+        }
+        if (number instanceof Long || number instanceof java.math.BigInteger) {
+            if (Math.abs(d) > MAX_SAFE_INTEGER) {
+                throw unsupported("Number " + number + " exceeds js safe integer");
+            }
+            return number.longValue();
+        }
+        BigDecimal decimal = BigDecimal.valueOf(d);
+        if (number instanceof BigDecimal && decimal.compareTo((BigDecimal) number) != 0) {
+            throw unsupported("Number " + number + " loses precision as js number");
+        }
+        if (d == Math.rint(d) && Math.abs(d) <= MAX_SAFE_INTEGER) {
+            return (long) d;
+        }
+        if (Math.abs(d) < 1e-6 || Math.abs(d) >= 1e21) {
+            throw unsupported("Number " + number + " would be printed in exponent form");
+        }
+        return decimal.stripTrailingZeros();
+    }
+
+    static Object normalize(Object value) {
+        return value instanceof Number ? normalizeNumber((Number) value) : value;
+    }
+
+    static String numberToString(Number number) {
+        Number normalized = normalizeNumber(number);
+        return normalized instanceof BigDecimal ? ((BigDecimal) normalized).toPlainString() : normalized.toString();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.common.utils;
+
+import edp.davinci.dto.viewDto.Param;
+import edp.davinci.dto.viewDto.SimpleView;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * java 实现与 js 脚本对比用例，对比任务按此格式导出，回放测试按此格式读取
+ */
+@Data
+public class ScriptVerifyCase {
+
+    private String name;
+
+    private String dashboardConfig;
+
+    private String widgetConfig;
+
+    private List<SimpleView> views;
+
+    private Long relationId;
+
+    /**
+     * 表头参数，为 null 时不比较表头
+     */
+    private List<Param> params;
+}
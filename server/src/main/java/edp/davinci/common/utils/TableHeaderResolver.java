@@ -0,0 +1,414 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.common.utils;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import edp.davinci.core.model.ExcelHeader;
+import edp.davinci.dto.viewDto.Param;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static edp.davinci.common.utils.ScriptValues.*;
+
+/**
+ * formatCellValue.js 中 getFieldsHeader 的 java 实现
+ * 字段别名使用 js 表达式时无法处理，抛出 ScriptFallbackException
+ */
+public class TableHeaderResolver {
+
+    private static final String DEFAULT_SPLITER = "@davinci@";
+
+    private TableHeaderResolver() {
+    }
+
+    /**
+     * 对应 getFieldsHeader
+     *
+     * @param widgetConfig 已解析的 widget config，为空时返回空列表
+     * @param params       查询变量，仅用于 js 表达式别名
+     * @return
+     */
+    public static List<ExcelHeader> resolve(Object widgetConfig, List<Param> params) {
+        List<ExcelHeader> headers = new ArrayList<>();
+        if (null == widgetConfig) {
+            return headers;
+        }
+
+        Map<String, Object> config = asMap(widgetConfig, "widgetConfig");
+        Object table = get(config.get("chartStyles"), "table");
+        if (!truthy(table)) {
+            return headers;
+        }
+
+        Object headerConfig = get(table, "headerConfig");
+        List<Object> fields = getWidgetFields(config);
+        if (!asList(headerConfig, "headerConfig").isEmpty()) {
+            return parseTableHeader((List<Object>) headerConfig, fields);
+        }
+
+        for (int i = 0; i < fields.size(); i++) {
+            Object field = fields.get(i);
+            String col = String.valueOf(i);
+            ExcelHeader header = new ExcelHeader();
+            header.setKey(getDecodeName(field));
+            header.setAlias(getFieldAlias(field));
+            header.setIsMerged(false);
+            header.setRow("0");
+            header.setCol(col);
+            header.setRowspan("1");
+            header.setColspan("1");
+            header.setRange(new int[]{0, 0, i, i});
+            setFieldInfo(header, field);
+            headers.add(header);
+        }
+        return headers;
+    }
+
+    private static List<Object> getWidgetFields(Map<String, Object> widgetConfig) {
+        Object table = get(widgetConfig.get("chartStyles"), "table");
+        boolean withNoAggregators = truthy(table) && truthy(get(table, "withNoAggregators"));
+
+        List<Object> fields = new ArrayList<>(asList(widgetConfig.get("cols"), "cols"));
+        fields.addAll(asList(widgetConfig.get("rows"), "rows"));
+        for (Object metric : asList(widgetConfig.get("metrics"), "metrics")) {
+            if (withNoAggregators) {
+                asMap(metric, "metric").put("agg", "");
+            }
+            fields.add(metric);
+        }
+        return fields;
+    }
+
+    private static String getDecodeName(Object field) {
+        Object name = get(field, "name");
+        if (!(name instanceof String)) {
+            throw unsupported("Field name is not a string");
+        }
+        String decodeName = (String) name;
+        int index = decodeName.indexOf(DEFAULT_SPLITER);
+        if (index >= 0) {
+            decodeName = decodeName.substring(0, index);
+        }
+        Object agg = get(field, "agg");
+        if (truthy(agg)) {
+            decodeName = toJsString(agg) + "(" + decodeName + ")";
+        }
+        return decodeName;
+    }
+
+    private static String getFieldAlias(Object field) {
+        if (!truthy(field)) {
+            return "";
+        }
+        Object fieldConfig = get(field, "field");
+        if (!truthy(fieldConfig)) {
+            return getDecodeName(field);
+        }
+        if (truthy(get(fieldConfig, "useExpression"))) {
+            throw unsupported("Field alias uses expression");
+        }
+        Object alias = get(fieldConfig, "alias");
+        if (null != alias && !(alias instanceof String)) {
+            throw unsupported("Field alias is not a string");
+        }
+        return (String) alias;
+    }
+
+    private static void setFieldInfo(ExcelHeader header, Object field) {
+        Object type = get(field, "type");
+        if (null != type) {
+            header.setType(toJsString(type));
+        }
+        Object format = get(field, "format");
+        if (truthy(format)) {
+            header.setFormat(JSON.toJSONString(format));
+        }
+    }
+
+    private static Object findFieldByKey(List<Object> fields, Object key) {
+        if (fields.isEmpty() || !truthy(key)) {
+            return null;
+        }
+        for (Object field : fields) {
+            if (strictEquals(get(field, "name"), key)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static int findFieldIndex(List<Object> fields, Object name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (strictEquals(get(fields.get(i), "name"), name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean findHeaderConfig(List<Object> config, Object headerName, List<Object> found) {
+        for (Object cfg : config) {
+            if (strictEquals(get(cfg, "headerName"), headerName)) {
+                found.add(cfg);
+                return true;
+            }
+            Object children = get(cfg, "children");
+            if (children instanceof List && !((List) children).isEmpty()
+                    && findHeaderConfig((List<Object>) children, headerName, found)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void traverseConfig(List<Object> config, List<Object> visited) {
+        for (Object cfg : config) {
+            Object children = get(cfg, "children");
+            if (children instanceof List && !((List) children).isEmpty()) {
+                traverseConfig((List<Object>) children, visited);
+            }
+            visited.add(cfg);
+        }
+    }
+
+    private static long lcm(long a, long b) {
+        long c = a * b;
+        while (b > 0) {
+            long t = b;
+            b = a % b;
+            a = t;
+        }
+        return c / a;
+    }
+
+    private static long rowsToUse(Object headerConfig) {
+        boolean isGroup = truthy(get(headerConfig, "isGroup"));
+        if (!isGroup) {
+            return 1;
+        }
+        List<Object> children = asList(get(headerConfig, "children"), "children");
+        long childrenRows = children.isEmpty() ? 0 : 1;
+        for (Object child : children) {
+            childrenRows = lcm(childrenRows, rowsToUse(child));
+        }
+        return 1 + childrenRows;
+    }
+
+    private static long colsToUse(Object cfg) {
+        if (!truthy(get(cfg, "isGroup")) || asList(get(cfg, "children"), "children").isEmpty()) {
+            return 1;
+        }
+        long colspan = 0;
+        for (Object child : (List<Object>) get(cfg, "children")) {
+            colspan += colsToUse(child);
+        }
+        return colspan;
+    }
+
+    private static void sortByFields(List<Object> configs, List<Object> fields) {
+        configs.sort((cfg1, cfg2) -> {
+            if (truthy(get(cfg1, "isGroup")) || truthy(get(cfg2, "isGroup"))) {
+                return 0;
+            }
+            return Integer.compare(findFieldIndex(fields, get(cfg1, "headerName")), findFieldIndex(fields, get(cfg2, "headerName")));
+        });
+    }
+
+    private static void getCells(Object cfg, long row, long col, long rowsLeft, List<Object> fields, List<HeaderCell> cells) {
+        long rowsUsed = rowsToUse(cfg);
+        if (rowsLeft % rowsUsed != 0) {
+            throw unsupported("Header rowspan is not an integer");
+        }
+        long rootRows = rowsLeft / rowsUsed;
+        boolean isGroup = truthy(get(cfg, "isGroup"));
+        Object headerName = get(cfg, "headerName");
+
+        HeaderCell cell = new HeaderCell();
+        Object field = null;
+        if (!isGroup) {
+            field = findFieldByKey(fields, headerName);
+            if (null == field) {
+                return;
+            }
+            cell.key = getDecodeName(field);
+            String alias = getFieldAlias(field);
+            cell.alias = truthy(alias) ? alias : getDecodeName(field);
+        } else {
+            if (null != headerName && !(headerName instanceof String)) {
+                throw unsupported("Header name is not a string");
+            }
+            cell.key = (String) headerName;
+            cell.alias = (String) headerName;
+        }
+        cell.row = row;
+        cell.col = col;
+        cell.rowspan = rootRows;
+        cell.colspan = colsToUse(cfg);
+        cell.style = get(cfg, "style");
+        cell.field = field;
+        cells.add(cell);
+
+        if (!isGroup) {
+            return;
+        }
+        List<Object> children = asList(get(cfg, "children"), "children");
+        if (children.isEmpty()) {
+            return;
+        }
+
+        sortByFields(children, fields);
+        for (Object child : children) {
+            getCells(child, row + rootRows, col, rowsLeft - rootRows, fields, cells);
+            col += colsToUse(child);
+        }
+    }
+
+    private static List<Object> validateHeaderConfig(List<Object> headerConfig, List<Object> fields) {
+        List<Object> validHeaderConfig = new ArrayList<>();
+        for (Object field : fields) {
+            Object name = get(field, "name");
+            if (!findHeaderConfig(headerConfig, name, validHeaderConfig)) {
+                JSONObject cfg = new JSONObject(true);
+                cfg.put("key", name);
+                cfg.put("headerName", name);
+                cfg.put("alias", "");
+                cfg.put("isGroup", false);
+                validHeaderConfig.add(cfg);
+            }
+        }
+
+        List<Object> groupedConfig = new ArrayList<>();
+        List<Object> visited = new ArrayList<>();
+        traverseConfig(headerConfig, visited);
+        for (Object currentConfig : visited) {
+            if (!truthy(get(currentConfig, "isGroup"))) {
+                continue;
+            }
+
+            List<Object> childrenConfig = new ArrayList<>();
+            for (Object child : asList(get(currentConfig, "children"), "children")) {
+                boolean isGroup = truthy(get(child, "isGroup"));
+                if ((!isGroup && indexOf(validHeaderConfig, "headerName", get(child, "headerName")) >= 0)
+                        || (isGroup && indexOf(groupedConfig, "key", get(child, "key")) >= 0)) {
+                    childrenConfig.add(child);
+                }
+            }
+            if (childrenConfig.isEmpty()) {
+                continue;
+            }
+
+            Map<String, Object> newConfig = new LinkedHashMap<>(asMap(currentConfig, "headerConfig"));
+            List<Object> newChildren = new ArrayList<>();
+            newConfig.put("children", newChildren);
+
+            sortByFields(childrenConfig, fields);
+
+            int insertIdx = Integer.MAX_VALUE;
+            for (Object child : childrenConfig) {
+                int configIdx = indexOf(validHeaderConfig, "key", get(child, "key"));
+                if (configIdx < 0) {
+                    throw unsupported("Header config key not found");
+                }
+                insertIdx = Math.min(insertIdx, configIdx);
+                newChildren.add(validHeaderConfig.remove(configIdx));
+            }
+            validHeaderConfig.add(Math.min(insertIdx, validHeaderConfig.size()), newConfig);
+            groupedConfig.add(newConfig);
+        }
+        return validHeaderConfig;
+    }
+
+    private static int indexOf(List<Object> configs, String key, Object value) {
+        for (int i = 0; i < configs.size(); i++) {
+            if (strictEquals(get(configs.get(i), key), value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<ExcelHeader> parseTableHeader(List<Object> headerConfig, List<Object> fields) {
+        JSONObject root = new JSONObject(true);
+        root.put("key", "root");
+        root.put("headerName", "root");
+        root.put("isGroup", true);
+        root.put("children", validateHeaderConfig(headerConfig, fields));
+
+        List<HeaderCell> cells = new ArrayList<>();
+        getCells(root, 0, 0, rowsToUse(root), fields, cells);
+        cells.remove(0);
+
+        List<ExcelHeader> headers = new ArrayList<>(cells.size());
+        for (HeaderCell cell : cells) {
+            int row = (int) cell.row - 1;
+            int col = (int) cell.col;
+            int rowspan = (int) cell.rowspan;
+            int colspan = (int) cell.colspan;
+
+            ExcelHeader header = new ExcelHeader();
+            header.setKey(cell.key);
+            header.setAlias(cell.alias);
+            header.setRow(String.valueOf(row));
+            header.setCol(String.valueOf(col));
+            header.setRowspan(String.valueOf(rowspan));
+            header.setColspan(String.valueOf(colspan));
+            header.setRange(new int[]{row, row + rowspan - 1, col, col + colspan - 1});
+            header.setIsMerged(rowspan != 1 || colspan != 1);
+            if (null != cell.style) {
+                header.setStyle(toStyle(cell.style));
+            }
+            if (null != cell.field) {
+                setFieldInfo(header, cell.field);
+            }
+            headers.add(header);
+        }
+        return headers;
+    }
+
+    /**
+     * 与 fastjson 将 style 转换为 List<String> 的结果一致
+     */
+    private static List<String> toStyle(Object style) {
+        List<String> styles = new ArrayList<>();
+        if (style instanceof List) {
+            for (Object item : (List<Object>) style) {
+                styles.add(null == item || item instanceof String ? (String) item : JSON.toJSONString(item));
+            }
+        } else {
+            styles.add(style instanceof String ? (String) style : JSON.toJSONString(style));
+        }
+        return styles;
+    }
+
+    private static final class HeaderCell {
+        private String key;
+        private String alias;
+        private long row;
+        private long col;
+        private long rowspan;
+        private long colspan;
+        private Object style;
+        private Object field;
+    }
+}
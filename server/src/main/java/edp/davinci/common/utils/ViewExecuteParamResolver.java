@@ -0,0 +1,960 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.common.utils;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import edp.davinci.dto.viewDto.SimpleView;
+import edp.davinci.dto.viewDto.ViewExecuteParam;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static edp.davinci.common.utils.ScriptValues.*;
+
+/**
+ * executeParam.js 的 java 实现
+ * 根据 dashboard、widget 配置及控制器默认值生成 ViewExecuteParam，
+ * 遇到无法与 js 等价处理的配置时抛出 ScriptFallbackException
+ */
+public class ViewExecuteParamResolver {
+
+    private static final String DEFAULT_SPLITER = "@davinci@";
+
+    private static final String METRIC_NAME_GROUP = "指标名称";
+
+    private static final Set<String> SQL_NUMBER_TYPES = new HashSet<>(Arrays.asList(
+            "BIT", "TINYINT", "SMALLINT", "MEDIUMINT", "INT", "INTEGER", "BIGINT",
+            "FLOAT", "DOUBLE", "DOUBLE PRECISION", "REAL", "DECIMAL",
+            "SERIAL", "BOOL", "BOOLEAN", "DEC", "FIXED", "NUMBER", "NUMERIC",
+            "UINT8", "UINT16", "UINT32", "UINT64", "INT8", "INT16", "INT32", "INT64",
+            "FLOAT32", "FLOAT64", "DECIMAL32", "DECIMAL64", "DECIMAL128"
+    ));
+
+    private static final Map<String, Object[]> LEGACY_DATE_DEFAULT_VALUES = new HashMap<>();
+
+    static {
+        LEGACY_DATE_DEFAULT_VALUES.put("today", new Object[]{"current", 0, "day"});
+        LEGACY_DATE_DEFAULT_VALUES.put("yesterday", new Object[]{"prev", 1, "day"});
+        LEGACY_DATE_DEFAULT_VALUES.put("week", new Object[]{"current", 0, "week"});
+        LEGACY_DATE_DEFAULT_VALUES.put("day7", new Object[]{"prev", 7, "day"});
+        LEGACY_DATE_DEFAULT_VALUES.put("lastWeek", new Object[]{"prev", 1, "week"});
+        LEGACY_DATE_DEFAULT_VALUES.put("month", new Object[]{"current", 0, "month"});
+        LEGACY_DATE_DEFAULT_VALUES.put("day30", new Object[]{"prev", 30, "day"});
+        LEGACY_DATE_DEFAULT_VALUES.put("lastMonth", new Object[]{"prev", 1, "month"});
+        LEGACY_DATE_DEFAULT_VALUES.put("quarter", new Object[]{"current", 0, "quarter"});
+        LEGACY_DATE_DEFAULT_VALUES.put("day90", new Object[]{"prev", 90, "day"});
+        LEGACY_DATE_DEFAULT_VALUES.put("lastQuarter", new Object[]{"prev", 1, "quarter"});
+        LEGACY_DATE_DEFAULT_VALUES.put("year", new Object[]{"current", 0, "year"});
+        LEGACY_DATE_DEFAULT_VALUES.put("day365", new Object[]{"prev", 365, "day"});
+        LEGACY_DATE_DEFAULT_VALUES.put("lastYear", new Object[]{"prev", 1, "year"});
+    }
+
+    private ViewExecuteParamResolver() {
+    }
+
+    /**
+     * 按 js 的键顺序解析配置
+     *
+     * @param json
+     * @param defaultJson json 为空时使用
+     * @return
+     */
+    public static Object parse(String json, String defaultJson) {
+        return JSON.parse(null == json || json.isEmpty() ? defaultJson : json, Feature.OrderedField);
+    }
+
+    /**
+     * 对应 getDashboardItemExecuteParam
+     *
+     * @param dashboardConfig 已解析的 dashboard config
+     * @param widgetConfig    已解析的 widget config
+     * @param views
+     * @param itemId          dashboard item id，可为空
+     * @return
+     */
+    public static ViewExecuteParam resolve(Object dashboardConfig, Object widgetConfig, Collection<SimpleView> views, Long itemId) {
+        Map<String, Object> dashboard = migrateDashboardConfig(asMap(dashboardConfig, "dashboardConfig"));
+        Map<String, Object> widget = migrateWidgetConfig(asMap(widgetConfig, "widgetConfig"));
+        Map<String, FormedView> formedViews = getFormedViews(views);
+
+        InitialValues globalValues = getGlobalControlInitialValues(dashboard, formedViews, null == itemId ? 0D : itemId.doubleValue());
+        InitialValues localValues = getLocalControlInitialValues(widget, formedViews);
+
+        JSONObject executeParam = getWidgetExecuteParam(widget);
+        List<Object> filters = (List<Object>) executeParam.get("filters");
+        filters.addAll(globalValues.filters);
+        filters.addAll(localValues.filters);
+        JSONArray filterStrings = new JSONArray(filters.size());
+        for (Object filter : filters) {
+            filterStrings.add(null == filter ? null : JSON.toJSONString(filter, SerializerFeature.WriteMapNullValue));
+        }
+        executeParam.put("filters", filterStrings);
+
+        List<Object> params = (List<Object>) executeParam.get("params");
+        params.addAll(globalValues.params);
+        params.addAll(localValues.params);
+
+        return executeParam.toJavaObject(ViewExecuteParam.class);
+    }
+
+    private static InitialValues getGlobalControlInitialValues(Map<String, Object> dashboardConfig,
+                                                               Map<String, FormedView> formedViews, double dashboardItemId) {
+        InitialValues initialValues = new InitialValues();
+        Object filters = dashboardConfig.get("filters");
+        if (!truthy(filters)) {
+            return initialValues;
+        }
+
+        for (Object item : asList(filters, "filters")) {
+            Map<String, Object> control = asMap(item, "control");
+            Object defaultValue = getPreciseDefaultValue(control);
+            if (!truthy(defaultValue)) {
+                continue;
+            }
+
+            for (Map.Entry<String, Object> relatedItem : entries(control.get("relatedItems"), "relatedItems")) {
+                if (toNumber(relatedItem.getKey()) != dashboardItemId) {
+                    continue;
+                }
+                Object config = relatedItem.getValue();
+                for (Map.Entry<String, Object> relatedView : entries(control.get("relatedViews"), "relatedViews")) {
+                    String viewId = relatedView.getKey();
+                    if (truthy(get(config, "checked"))
+                            && strictEquals(get(config, "viewId"), toNumber(viewId))
+                            && formedViews.containsKey(viewId)) {
+                        addControlValues(initialValues, control, viewId, relatedView.getValue(), defaultValue, formedViews.get(viewId));
+                    }
+                }
+            }
+        }
+        return initialValues;
+    }
+
+    private static InitialValues getLocalControlInitialValues(Map<String, Object> widgetConfig, Map<String, FormedView> formedViews) {
+        InitialValues initialValues = new InitialValues();
+        for (Object item : asList(widgetConfig.get("controls"), "controls")) {
+            Map<String, Object> control = asMap(item, "control");
+            Object defaultValue = getPreciseDefaultValue(control);
+            if (!truthy(defaultValue)) {
+                continue;
+            }
+            for (Map.Entry<String, Object> relatedView : entries(control.get("relatedViews"), "relatedViews")) {
+                String viewId = relatedView.getKey();
+                if (formedViews.containsKey(viewId)) {
+                    addControlValues(initialValues, control, viewId, relatedView.getValue(), defaultValue, formedViews.get(viewId));
+                }
+            }
+        }
+        return initialValues;
+    }
+
+    private static void addControlValues(InitialValues initialValues, Map<String, Object> control, String viewId,
+                                         Object relatedView, Object defaultValue, FormedView formedView) {
+        if (truthy(control.get("optionWithVariable"))) {
+            initialValues.params.addAll(getCustomOptionVariableParams(control, toNumber(viewId), defaultValue, formedView.variable));
+        } else if ("column".equals(get(relatedView, "fieldType"))) {
+            initialValues.filters.addAll(getFilterParams(control, get(relatedView, "fields"), defaultValue, formedView.model));
+        } else {
+            initialValues.params.addAll(getVariableParams(control, get(relatedView, "fields"), defaultValue, formedView.variable));
+        }
+    }
+
+    private static JSONObject getWidgetExecuteParam(Map<String, Object> widgetConfig) {
+        Object chartStyles = widgetConfig.get("chartStyles");
+        Object nativeQuery = false;
+        if (truthy(chartStyles) && truthy(get(chartStyles, "table"))) {
+            nativeQuery = get(get(chartStyles, "table"), "withNoAggregators");
+        }
+
+        List<Object> groups = new ArrayList<>();
+        for (Object dimension : concat(widgetConfig.get("cols"), widgetConfig.get("rows"))) {
+            Object name = get(dimension, "name");
+            if (!strictEquals(name, METRIC_NAME_GROUP)) {
+                groups.add(name);
+            }
+        }
+
+        List<Object> aggregators = new ArrayList<>();
+        for (Object metric : asList(widgetConfig.get("metrics"), "metrics")) {
+            aggregators.add(getAggregator(metric));
+        }
+
+        Object color = widgetConfig.get("color");
+        if (truthy(color)) {
+            for (Object item : asList(get(color, "items"), "color.items")) {
+                groups.add(get(item, "name"));
+            }
+        }
+
+        Object label = widgetConfig.get("label");
+        if (truthy(label)) {
+            List<Object> items = asList(get(label, "items"), "label.items");
+            for (Object item : items) {
+                if (strictEquals(get(item, "type"), "category")) {
+                    groups.add(get(item, "name"));
+                }
+            }
+            for (Object item : items) {
+                if (strictEquals(get(item, "type"), "value")) {
+                    aggregators.add(getAggregator(item));
+                }
+            }
+        }
+
+        for (String key : new String[]{"size", "xAxis", "tip"}) {
+            Object config = widgetConfig.get(key);
+            if (truthy(config)) {
+                for (Object item : asList(get(config, "items"), key + ".items")) {
+                    aggregators.add(getAggregator(item));
+                }
+            }
+        }
+
+        JSONArray requestFilters = new JSONArray();
+        for (Object item : asList(widgetConfig.get("filters"), "filters")) {
+            Object sqlModel = get(get(item, "config"), "sqlModel");
+            if (sqlModel instanceof List) {
+                requestFilters.addAll((List) sqlModel);
+            } else {
+                requestFilters.add(sqlModel);
+            }
+        }
+
+        JSONObject requestParams = new JSONObject(true);
+        requestParams.put("groups", groups);
+        requestParams.put("aggregators", aggregators);
+        requestParams.put("filters", requestFilters);
+        requestParams.put("params", new JSONArray());
+        requestParams.put("orders", widgetConfig.get("orders"));
+        requestParams.put("cache", widgetConfig.get("cache"));
+        requestParams.put("expired", widgetConfig.get("expired"));
+        requestParams.put("nativeQuery", nativeQuery);
+        return requestParams;
+    }
+
+    private static JSONObject getAggregator(Object metric) {
+        JSONObject aggregator = new JSONObject(true);
+        aggregator.put("column", decodeMetricName(get(metric, "name")));
+        aggregator.put("func", get(metric, "agg"));
+        return aggregator;
+    }
+
+    private static String decodeMetricName(Object encodedName) {
+        if (!(encodedName instanceof String)) {
+            throw unsupported("Metric name is not a string");
+        }
+        String name = (String) encodedName;
+        int index = name.indexOf(DEFAULT_SPLITER);
+        return index < 0 ? name : name.substring(0, index);
+    }
+
+    private static Map<String, FormedView> getFormedViews(Collection<SimpleView> views) {
+        Map<String, FormedView> formedViews = new HashMap<>();
+        if (null == views) {
+            return formedViews;
+        }
+        for (SimpleView view : views) {
+            if (null == view) {
+                throw unsupported("View is null");
+            }
+            FormedView formedView = new FormedView();
+            formedView.model = parse(view.getModel(), "{}");
+            formedView.variable = parse(view.getVariable(), "[]");
+            formedViews.put(String.valueOf(view.getId()), formedView);
+        }
+        return formedViews;
+    }
+
+    private static List<Object> getVariableParams(Map<String, Object> control, Object fields, Object value, Object variables) {
+        Object type = control.get("type");
+        Object dateFormat = control.get("dateFormat");
+        boolean multiple = truthy(control.get("multiple"));
+
+        List<Map<String, Object>> fieldsVariables = new ArrayList<>();
+        List<Object> variableList = asList(variables, "variables");
+        for (Object name : asList(fields, "fields")) {
+            for (Object variable : variableList) {
+                if (strictEquals(get(variable, "name"), name)) {
+                    if (truthy(variable)) {
+                        fieldsVariables.add(asMap(variable, "variable"));
+                    }
+                    break;
+                }
+            }
+        }
+
+        List<Object> params = new ArrayList<>();
+        if (null == value || isBlankString(value) || fieldsVariables.isEmpty()) {
+            return params;
+        }
+
+        switch (String.valueOf(type)) {
+            case "inputText":
+            case "radio":
+                for (Map<String, Object> variable : fieldsVariables) {
+                    params.add(param(variable, getValidVariableValue(value, variable.get("valueType"))));
+                }
+                break;
+            case "select":
+            case "treeSelect":
+                if (multiple) {
+                    if (value instanceof List) {
+                        List<Object> values = (List<Object>) value;
+                        if (!values.isEmpty()) {
+                            for (Map<String, Object> variable : fieldsVariables) {
+                                List<Object> validValues = new ArrayList<>();
+                                for (Object val : values) {
+                                    validValues.add(getValidVariableValue(val, variable.get("valueType")));
+                                }
+                                params.add(param(variable, toJsString(validValues)));
+                            }
+                        }
+                    } else if (value instanceof String) {
+                        throw unsupported("Multiple select value is a string");
+                    }
+                } else {
+                    for (Map<String, Object> variable : fieldsVariables) {
+                        params.add(param(variable, getValidVariableValue(value, variable.get("valueType"))));
+                    }
+                }
+                break;
+            case "numberRange":
+            case "slider":
+                List<Object> range = asList(value, "range value");
+                for (int i = 0; i < range.size(); i++) {
+                    Object val = range.get(i);
+                    if (i < fieldsVariables.size() && !strictEquals(val, "") && !Double.isNaN(toNumber(val))) {
+                        Map<String, Object> variable = fieldsVariables.get(i);
+                        params.add(param(variable, getValidVariableValue(val, variable.get("valueType"))));
+                    }
+                }
+                break;
+            case "date":
+                if (multiple) {
+                    if (!(value instanceof String)) {
+                        throw unsupported("Multiple date value is not a string");
+                    }
+                    String dates = quoteSplit((String) value);
+                    for (Map<String, Object> variable : fieldsVariables) {
+                        params.add(param(variable, dates));
+                    }
+                } else {
+                    String date = "'" + Moment.of(value).format(dateFormat) + "'";
+                    for (Map<String, Object> variable : fieldsVariables) {
+                        params.add(param(variable, date));
+                    }
+                }
+                break;
+            case "dateRange":
+                for (Object val : rangeValues(value)) {
+                    int index = params.size();
+                    if (index >= fieldsVariables.size()) {
+                        break;
+                    }
+                    params.add(param(fieldsVariables.get(index), "'" + Moment.of(val).format(dateFormat) + "'"));
+                }
+                break;
+            default:
+                String val = getTargetValue(value).trim();
+                if (!val.isEmpty()) {
+                    for (Map<String, Object> variable : fieldsVariables) {
+                        params.add(param(variable, getValidVariableValue(val, variable.get("valueType"))));
+                    }
+                }
+                break;
+        }
+        return params;
+    }
+
+    private static List<Object> getCustomOptionVariableParams(Map<String, Object> control, double viewId, Object value, Object variables) {
+        List<Object> params = new ArrayList<>();
+        if (null == value || isBlankString(value)) {
+            return params;
+        }
+
+        List<Object> customOptions = asList(control.get("customOptions"), "customOptions");
+        List<Object> values = value instanceof List ? (List<Object>) value : Arrays.asList(value);
+        String viewKey = numberToString(viewId);
+        for (Object val : values) {
+            Object selectedOption = null;
+            for (Object option : customOptions) {
+                if (strictEquals(get(option, "value"), val)) {
+                    selectedOption = option;
+                    break;
+                }
+            }
+            if (truthy(selectedOption)) {
+                Object variable = get(get(selectedOption, "variables"), viewKey);
+                if (truthy(variable)) {
+                    Map<String, Object> singleControl = new LinkedHashMap<>(control);
+                    singleControl.put("multiple", false);
+                    params.addAll(getVariableParams(singleControl, Arrays.asList(variable), val, variables));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static List<Object> getFilterParams(Map<String, Object> control, Object fields, Object value, Object models) {
+        Object type = control.get("type");
+        Object dateFormat = control.get("dateFormat");
+        boolean multiple = truthy(control.get("multiple"));
+
+        List<Object> fieldList = asList(fields, "fields");
+        Object filterFieldName = fieldList.isEmpty() ? null : fieldList.get(0);
+        List<Object> filters = new ArrayList<>();
+
+        Object model = null;
+        if (null != filterFieldName) {
+            model = asMap(models, "model").get(filterFieldName instanceof String ? filterFieldName : toJsString(filterFieldName));
+        }
+        if (null == value || isBlankString(value) || !truthy(model)) {
+            return filters;
+        }
+
+        Object sqlType = get(model, "sqlType");
+        JSONObject filterBase = new JSONObject(true);
+        filterBase.put("name", filterFieldName);
+        filterBase.put("type", "filter");
+        filterBase.put("value", null);
+        if (((Map) model).containsKey("sqlType")) {
+            filterBase.put("sqlType", sqlType);
+        }
+        if (control.containsKey("operator")) {
+            filterBase.put("operator", control.get("operator"));
+        }
+
+        switch (String.valueOf(type)) {
+            case "inputText":
+            case "radio":
+                filters.add(filter(filterBase, null, getValidColumnValue(value, sqlType)));
+                break;
+            case "select":
+            case "treeSelect":
+                if (multiple) {
+                    if (value instanceof List && !((List) value).isEmpty()) {
+                        JSONArray values = new JSONArray();
+                        for (Object val : (List<Object>) value) {
+                            values.add(getValidColumnValue(val, sqlType));
+                        }
+                        filters.add(filter(filterBase, null, values));
+                    }
+                } else {
+                    filters.add(filter(filterBase, null, getValidColumnValue(value, sqlType)));
+                }
+                break;
+            case "numberRange":
+            case "slider":
+                List<Object> range = asList(value, "range value");
+                for (int i = 0; i < range.size(); i++) {
+                    Object val = range.get(i);
+                    if (!strictEquals(val, "") && !Double.isNaN(toNumber(val))) {
+                        filters.add(filter(filterBase, i == 0 ? ">=" : "<=", getValidColumnValue(val, sqlType)));
+                    }
+                }
+                break;
+            case "date":
+                if (multiple) {
+                    if (!(value instanceof String)) {
+                        throw unsupported("Multiple date value is not a string");
+                    }
+                    JSONArray values = new JSONArray();
+                    for (String val : ((String) value).split(",", -1)) {
+                        values.add(getValidColumnValue(val, sqlType));
+                    }
+                    filters.add(filter(filterBase, null, values));
+                } else {
+                    filters.add(filter(filterBase, null, getValidColumnValue(Moment.of(value).format(dateFormat), sqlType)));
+                }
+                break;
+            case "dateRange":
+                List<Object> values = rangeValues(value);
+                for (int i = 0; i < values.size(); i++) {
+                    filters.add(filter(filterBase, i == 0 ? ">=" : "<=",
+                            getValidColumnValue(Moment.of(values.get(i)).format(dateFormat), sqlType)));
+                }
+                break;
+            default:
+                String inputValue = getTargetValue(value).trim();
+                if (!inputValue.isEmpty()) {
+                    filters.add(filter(filterBase, null, getValidColumnValue(inputValue, sqlType)));
+                }
+                break;
+        }
+        return filters;
+    }
+
+    private static Object getPreciseDefaultValue(Map<String, Object> control) {
+        Object type = control.get("type");
+        boolean dynamic = strictEquals(control.get("defaultValueType"), "dynamic");
+        Object defaultValue = control.get("defaultValue");
+
+        if ("dateRange".equals(type)) {
+            if (dynamic) {
+                List<Object> values = new ArrayList<>();
+                for (Object val : asList(defaultValue, "defaultValue")) {
+                    values.add(transformRelativeDateValue(val));
+                }
+                return values;
+            }
+            if (defaultValue instanceof List) {
+                List<Object> values = new ArrayList<>();
+                for (Object val : (List<Object>) defaultValue) {
+                    values.add(Moment.of(val));
+                }
+                return values;
+            }
+            return defaultValue;
+        }
+
+        if ("date".equals(type) && truthy(defaultValue)) {
+            if (dynamic) {
+                return transformRelativeDateValue(defaultValue);
+            }
+            return truthy(control.get("multiple")) ? defaultValue : Moment.of(defaultValue);
+        }
+
+        return defaultValue;
+    }
+
+    private static Moment transformRelativeDateValue(Object val) {
+        Map<String, Object> relative = asMap(val, "relative date value");
+        Object type = relative.get("type");
+        double amount = toNumber(relative.get("value"));
+        if (Double.isNaN(amount) || amount != Math.rint(amount)) {
+            throw unsupported("Relative date value is not an integer");
+        }
+        long value = (long) amount;
+        if (strictEquals(relative.get("valueType"), "prev")) {
+            value = -value;
+        }
+        return Moment.now().add(value, String.valueOf(type)).startOf(String.valueOf(type));
+    }
+
+    private static Object getValidVariableValue(Object value, Object valueType) {
+        switch (String.valueOf(valueType)) {
+            case "string":
+            case "date":
+                return "'" + toJsString(value) + "'";
+            case "boolean":
+                if (value instanceof String) {
+                    String str = (String) value;
+                    return !(str.toLowerCase().equals("false") || str.trim().isEmpty());
+                }
+                return truthy(value);
+            default:
+                return normalize(value);
+        }
+    }
+
+    private static Object getValidColumnValue(Object value, Object sqlType) {
+        if (!truthy(value) || !truthy(sqlType)) {
+            return normalize(value);
+        }
+        return sqlType instanceof String && SQL_NUMBER_TYPES.contains(sqlType) ? normalize(value) : "'" + toJsString(value) + "'";
+    }
+
+    private static JSONObject param(Map<String, Object> variable, Object value) {
+        JSONObject param = new JSONObject(true);
+        param.put("name", variable.get("name"));
+        param.put("value", value);
+        return param;
+    }
+
+    private static JSONObject filter(JSONObject filterBase, String operator, Object value) {
+        JSONObject filter = new JSONObject(new LinkedHashMap<>(filterBase));
+        filter.put("value", value);
+        if (null != operator) {
+            filter.put("operator", operator);
+        }
+        return filter;
+    }
+
+    private static String quoteSplit(String value) {
+        StringBuilder builder = new StringBuilder();
+        for (String val : value.split(",", -1)) {
+            if (builder.length() > 0) {
+                builder.append(",");
+            }
+            builder.append("'").append(val).append("'");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 日期范围值，js 中 value.length 为假时不处理
+     */
+    private static List<Object> rangeValues(Object value) {
+        if (value instanceof List) {
+            return (List<Object>) value;
+        }
+        if (value instanceof String && !((String) value).isEmpty()) {
+            throw unsupported("Date range value is a string");
+        }
+        return new ArrayList<>();
+    }
+
+    private static String getTargetValue(Object value) {
+        Object target = get(value, "target");
+        Object targetValue = get(target, "value");
+        if (!(targetValue instanceof String)) {
+            throw unsupported("Control value has no target value");
+        }
+        return (String) targetValue;
+    }
+
+    private static List<Object> concat(Object first, Object second) {
+        List<Object> list = new ArrayList<>(asList(first, "cols"));
+        list.addAll(asList(second, "rows"));
+        return list;
+    }
+
+    private static Map<String, Object> migrateDashboardConfig(Map<String, Object> config) {
+        Map<String, Object> migrated = new LinkedHashMap<>(config);
+        List<Object> controls = new ArrayList<>();
+        Object filters = config.get("filters");
+        if (truthy(filters)) {
+            for (Object control : asList(filters, "filters")) {
+                controls.add(migrateControl(control));
+            }
+        }
+        migrated.put("filters", controls);
+        return migrated;
+    }
+
+    private static Map<String, Object> migrateWidgetConfig(Map<String, Object> config) {
+        if (strictEquals(config.get("mode"), "chart") && strictEquals(config.get("selectedChart"), 3)) {
+            // js 中迁移旧版柱状图配置时会读取 spec
+            Object chartStyles = config.get("chartStyles");
+            Object bar = get(chartStyles, "bar");
+            if ((!truthy(bar) || !truthy(get(bar, "stack"))) && null == get(chartStyles, "spec")) {
+                throw unsupported("Bar chart has no spec");
+            }
+        }
+        asList(config.get("cols"), "cols");
+        asList(config.get("rows"), "rows");
+
+        Map<String, Object> migrated = new LinkedHashMap<>(config);
+        List<Object> controls = new ArrayList<>();
+        for (Object control : asList(config.get("controls"), "controls")) {
+            controls.add(migrateControl(control));
+        }
+        migrated.put("controls", controls);
+        return migrated;
+    }
+
+    /**
+     * 对应 controlMigration，仅处理影响执行参数的字段
+     */
+    private static Object migrateControl(Object item) {
+        Map<String, Object> control = asMap(item, "control");
+        Object interactionType = control.get("interactionType");
+        if (!truthy(interactionType)) {
+            return control;
+        }
+        if (truthy(control.get("fields"))) {
+            // js 中 options 未传入，访问 opts.viewId 时抛出异常
+            throw unsupported("Legacy control fields migration");
+        }
+
+        Object type = control.get("type");
+        Object customOptions = control.get("customOptions");
+        Map<String, Object> relatedViews = new LinkedHashMap<>();
+        Map<String, Object> valueInfo = null;
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : entries(control.get("relatedViews"), "relatedViews")) {
+            Object fields = entry.getValue();
+            JSONObject relatedView = new JSONObject(true);
+            relatedView.put("fieldType", interactionType);
+            Map<String, Object> info = null;
+            if (fields instanceof List) {
+                JSONArray names = new JSONArray();
+                for (Object field : (List<Object>) fields) {
+                    JSONObject name = new JSONObject(true);
+                    name.put("name", get(field, "name"));
+                    names.add(name);
+                }
+                relatedView.put("fields", names);
+            } else {
+                relatedView.put("fields", new JSONArray(Arrays.asList(get(fields, "name"))));
+                info = new HashMap<>();
+                if ("select".equals(type)) {
+                    if ("variable".equals(interactionType) && truthy(get(fields, "optionsFromColumn"))) {
+                        info.put("optionType", "manual");
+                    } else {
+                        info.put("optionType", truthy(customOptions) ? "custom" : "auto");
+                        info.put("customOptions", truthy(customOptions) ? control.get("options") : null);
+                        info.put("optionWithVariable", truthy(customOptions) ? false : null);
+                    }
+                }
+            }
+            relatedViews.put(entry.getKey(), relatedView);
+            if (first) {
+                valueInfo = info;
+                first = false;
+            }
+        }
+
+        Map<String, Object> migrated = new LinkedHashMap<>(control);
+        migrated.remove("interactionType");
+        migrated.remove("options");
+        migrated.remove("dynamicDefaultValue");
+        migrated.put("relatedViews", relatedViews);
+        migrated.put("customOptions", null == valueInfo ? null : valueInfo.get("customOptions"));
+        migrated.put("optionWithVariable", null == valueInfo ? null : valueInfo.get("optionWithVariable"));
+
+        Object dynamicDefaultValue = control.get("dynamicDefaultValue");
+        if ("date".equals(type)) {
+            if (!truthy(dynamicDefaultValue) || strictEquals(dynamicDefaultValue, "custo")) {
+                migrated.put("defaultValueType", "fixed");
+                migrated.put("defaultValue", control.get("defaultValue"));
+            } else {
+                Object[] legacy = LEGACY_DATE_DEFAULT_VALUES.get(dynamicDefaultValue);
+                Map<String, Object> transformed = null;
+                if (null != legacy) {
+                    transformed = new LinkedHashMap<>();
+                    transformed.put("valueType", legacy[0]);
+                    transformed.put("value", legacy[1]);
+                    transformed.put("type", legacy[2]);
+                }
+                migrated.put("defaultValueType", "dynamic");
+                migrated.put("defaultValue", transformed);
+            }
+        } else {
+            migrated.put("defaultValueType", "fixed");
+            migrated.put("defaultValue", null);
+        }
+        return migrated;
+    }
+
+    private static final class FormedView {
+        private Object model;
+        private Object variable;
+    }
+
+    private static final class InitialValues {
+        private final List<Object> filters = new ArrayList<>();
+        private final List<Object> params = new ArrayList<>();
+    }
+
+    /**
+     * moment.js 中用到的部分功能，时间均为系统时区的本地时间
+     */
+    static final class Moment {
+
+        private static final Pattern ISO_DATE = Pattern.compile(
+                "^(\\d{4})-(\\d{2})(?:-(\\d{2})(?:[T ](\\d{2}):(\\d{2})(?::(\\d{2})(?:[.,](\\d+))?)?(Z|[+-]\\d{2}(?::?\\d{2})?)?)?)?$");
+
+        private static final Pattern FORMAT_TOKENS = Pattern.compile(
+                "\\[[^\\]]*]|YYYY|YY|Q|MMMM|MMM|MM|M|DDDD|DDD|DD|D|dddd|ddd|HH|H|hh|h|mm|m|ss|s|SSS|SS|S|A|ZZ|Z|[a-zA-Z]|[^a-zA-Z\\[]+|\\[");
+
+        private static final String DEFAULT_FORMAT = "YYYY-MM-DDTHH:mm:ssZ";
+
+        private static final Map<String, String> TOKENS = new HashMap<>();
+
+        private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+        static {
+            TOKENS.put("YYYY", "uuuu");
+            TOKENS.put("YY", "uu");
+            TOKENS.put("Q", "Q");
+            TOKENS.put("MMMM", "MMMM");
+            TOKENS.put("MMM", "MMM");
+            TOKENS.put("MM", "MM");
+            TOKENS.put("M", "M");
+            TOKENS.put("DDDD", "DDD");
+            TOKENS.put("DDD", "D");
+            TOKENS.put("DD", "dd");
+            TOKENS.put("D", "d");
+            TOKENS.put("dddd", "EEEE");
+            TOKENS.put("ddd", "EEE");
+            TOKENS.put("HH", "HH");
+            TOKENS.put("H", "H");
+            TOKENS.put("hh", "hh");
+            TOKENS.put("h", "h");
+            TOKENS.put("mm", "mm");
+            TOKENS.put("m", "m");
+            TOKENS.put("ss", "ss");
+            TOKENS.put("s", "s");
+            TOKENS.put("SSS", "SSS");
+            TOKENS.put("SS", "SS");
+            TOKENS.put("S", "S");
+            TOKENS.put("A", "a");
+            TOKENS.put("ZZ", "xx");
+            TOKENS.put("Z", "xxx");
+        }
+
+        private final LocalDateTime time;
+
+        private Moment(LocalDateTime time) {
+            this.time = time;
+        }
+
+        static Moment now() {
+            return new Moment(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        }
+
+        /**
+         * moment(value)，仅支持 moment、时间戳及 ISO 8601 字符串
+         */
+        static Moment of(Object value) {
+            if (value instanceof Moment) {
+                return (Moment) value;
+            }
+            if (value instanceof Number) {
+                double millis = ((Number) value).doubleValue();
+                if (millis != Math.rint(millis)) {
+                    throw unsupported("Timestamp is not an integer");
+                }
+                return new Moment(LocalDateTime.ofInstant(Instant.ofEpochMilli((long) millis), ZoneId.systemDefault()));
+            }
+            if (!(value instanceof String)) {
+                throw unsupported("Cannot create moment from " + (null == value ? "null" : value.getClass().getSimpleName()));
+            }
+
+            Matcher matcher = ISO_DATE.matcher((String) value);
+            if (!matcher.matches()) {
+                throw unsupported("Not an ISO 8601 date: " + value);
+            }
+            try {
+                int nanos = 0;
+                if (null != matcher.group(7)) {
+                    String fraction = (matcher.group(7) + "00").substring(0, 3);
+                    nanos = Integer.parseInt(fraction) * 1000000;
+                }
+                LocalDateTime time = LocalDateTime.of(
+                        Integer.parseInt(matcher.group(1)),
+                        Integer.parseInt(matcher.group(2)),
+                        null == matcher.group(3) ? 1 : Integer.parseInt(matcher.group(3)),
+                        null == matcher.group(4) ? 0 : Integer.parseInt(matcher.group(4)),
+                        null == matcher.group(5) ? 0 : Integer.parseInt(matcher.group(5)),
+                        null == matcher.group(6) ? 0 : Integer.parseInt(matcher.group(6)),
+                        nanos);
+                String offset = matcher.group(8);
+                if (null != offset) {
+                    ZoneOffset zoneOffset = "Z".equals(offset) ? ZoneOffset.UTC
+                            : ZoneOffset.of(offset.length() == 5 ? offset.substring(0, 3) + ":" + offset.substring(3) : offset);
+                    time = OffsetDateTime.of(time, zoneOffset).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+                }
+                return new Moment(time);
+            } catch (RuntimeException e) {
+                throw unsupported("Invalid date: " + value);
+            }
+        }
+
+        Moment add(long amount, String unit) {
+            switch (unit) {
+                case "day":
+                    return new Moment(time.plusDays(amount));
+                case "week":
+                    return new Moment(time.plusWeeks(amount));
+                case "month":
+                    return new Moment(time.plusMonths(amount));
+                case "quarter":
+                    return new Moment(time.plusMonths(amount * 3));
+                case "year":
+                    return new Moment(time.plusYears(amount));
+                default:
+                    throw unsupported("Unknown relative date type " + unit);
+            }
+        }
+
+        /**
+         * 默认 en locale，一周从周日开始
+         */
+        Moment startOf(String unit) {
+            LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+            switch (unit) {
+                case "day":
+                    return new Moment(day);
+                case "week":
+                    return new Moment(day.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY)));
+                case "month":
+                    return new Moment(day.withDayOfMonth(1));
+                case "quarter":
+                    return new Moment(day.withDayOfMonth(1).withMonth((time.getMonthValue() - 1) / 3 * 3 + 1));
+                case "year":
+                    return new Moment(day.withDayOfYear(1));
+                default:
+                    throw unsupported("Unknown relative date type " + unit);
+            }
+        }
+
+        String format(Object dateFormat) {
+            String pattern = null == dateFormat ? DEFAULT_FORMAT : toJsString(dateFormat);
+            DateTimeFormatter formatter = FORMATTERS.computeIfAbsent(pattern, Moment::toFormatter);
+            return time.atZone(ZoneId.systemDefault()).format(formatter);
+        }
+
+        private static DateTimeFormatter toFormatter(String pattern) {
+            StringBuilder builder = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            Matcher matcher = FORMAT_TOKENS.matcher(pattern);
+            while (matcher.find()) {
+                String token = matcher.group();
+                if (TOKENS.containsKey(token)) {
+                    appendLiteral(builder, literal);
+                    builder.append(TOKENS.get(token));
+                } else if ("T".equals(token)) {
+                    literal.append(token);
+                } else if (token.startsWith("[") && token.endsWith("]") && token.length() > 1) {
+                    literal.append(token, 1, token.length() - 1);
+                } else if (Character.isLetter(token.charAt(0)) || "[".equals(token)) {
+                    throw unsupported("Unsupported date format token " + token + " in " + pattern);
+                } else {
+                    literal.append(token);
+                }
+            }
+            appendLiteral(builder, literal);
+            return DateTimeFormatter.ofPattern(builder.toString(), Locale.ENGLISH);
+        }
+
+        private static void appendLiteral(StringBuilder builder, StringBuilder literal) {
+            if (literal.length() > 0) {
+                builder.append('\'').append(literal.toString().replace("'", "''")).append('\'');
+                literal.setLength(0);
+            }
+        }
+    }
+}
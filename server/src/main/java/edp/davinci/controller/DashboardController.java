@@ -23,9 +23,11 @@ package edp.davinci.controller;
 import com.alibaba.druid.util.StringUtils;
 import edp.core.annotation.CurrentUser;
 import edp.core.exception.ServerException;
+import edp.core.utils.MD5Util;
 import edp.davinci.common.controller.BaseController;
 import edp.davinci.core.common.Constants;
 import edp.davinci.core.common.ResultMap;
+import edp.davinci.core.utils.MetadataVersionManager;
 import edp.davinci.dto.dashboardDto.*;
 import edp.davinci.dto.shareDto.ShareEntity;
 import edp.davinci.model.Dashboard;
@@ -52,6 +54,8 @@ import javax.validation.Valid;
 import java.util.List;
 import java.util.regex.Matcher;
 
+import static edp.core.consts.Consts.COLON;
+
 @Api(value = "/dashboardPortals", tags = "dashboardPortals", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
 @ApiResponses(@ApiResponse(code = 404, message = "dashboardPortal not found"))
 @Slf4j
@@ -82,8 +86,13 @@ public class DashboardController extends BaseController {
             ResultMap resultMap = new ResultMap(tokenUtils).failAndRefreshToken(request).message("Invalid project id");
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
+        String eTag = getVersionETag(user, MetadataVersionManager.projectKey(projectId));
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         List<DashboardPortal> dashboardPortals = dashboardPortalService.getDashboardPortals(projectId, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payloads(dashboardPortals));
+        return okWithETag(eTag, successResult(request, eTag).payloads(dashboardPortals));
     }
 
 
@@ -105,8 +114,13 @@ public class DashboardController extends BaseController {
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
 
+        String eTag = getPortalETag(user, id);
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         List<Dashboard> dashboards = dashboardService.getDashboards(id, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payloads(dashboards));
+        return okWithETag(eTag, successResult(request, eTag).payloads(dashboards));
     }
 
 
@@ -177,9 +191,65 @@ public class DashboardController extends BaseController {
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
 
+        String eTag = getPortalETag(user, portalId);
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         DashboardWithMem dashboardMemWidgets = dashboardService.getDashboardMemWidgets(portalId, dashboardId, user);
+        return okWithETag(eTag, successResult(request, eTag).payload(dashboardMemWidgets));
+    }
 
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payload(dashboardMemWidgets));
+    /**
+     * 一次获取打开dashboard所需的portal、dashboard列表、widgets关联信息、widgets及views
+     * 支持 If-None-Match，ETag 由集群共享的项目元数据版本（见 MetadataVersionManager）及请求的 portal、dashboard 生成，
+     * 元数据未变更时返回 304
+     * 响应可能被客户端缓存，不携带刷新的token
+     *
+     * @param portalId
+     * @param dashboardId
+     * @param user
+     * @param request
+     * @return
+     */
+    @ApiOperation(value = "get dashboard bootstrap")
+    @GetMapping("/{portalId}/dashboards/{dashboardId}/bootstrap")
+    public ResponseEntity getDashboardBootstrap(@PathVariable("portalId") Long portalId,
+                                                @PathVariable("dashboardId") Long dashboardId,
+                                                @ApiIgnore @CurrentUser User user,
+                                                HttpServletRequest request) {
+        if (invalidId(portalId)) {
+            ResultMap resultMap = new ResultMap(tokenUtils).failAndRefreshToken(request).message("Invalid dashboard portal id");
+            return ResponseEntity.status(resultMap.getCode()).body(resultMap);
+        }
+
+        if (invalidId(dashboardId)) {
+            ResultMap resultMap = new ResultMap(tokenUtils).failAndRefreshToken(request).message("Invalid dashboard id");
+            return ResponseEntity.status(resultMap.getCode()).body(resultMap);
+        }
+
+        String eTag = getPortalETag(user, portalId);
+        if (null != eTag) {
+            eTag = "\"" + MD5Util.getMD5(eTag + portalId + COLON + dashboardId, false, 32) + "\"";
+        }
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
+        DashboardBootstrap bootstrap = dashboardService.getDashboardBootstrap(portalId, dashboardId, user);
+        return okWithETag(eTag, new ResultMap().success().payload(bootstrap));
+    }
+
+    /**
+     * dashboardPortal 下的元数据随所属项目版本变化
+     *
+     * @param user
+     * @param portalId
+     * @return
+     */
+    private String getPortalETag(User user, Long portalId) {
+        Long projectId = dashboardPortalService.getProjectId(portalId);
+        return null == projectId ? null : getVersionETag(user, MetadataVersionManager.projectKey(projectId));
     }
 
     /**
@@ -24,6 +24,7 @@ import edp.core.annotation.CurrentUser;
 import edp.davinci.common.controller.BaseController;
 import edp.davinci.core.common.Constants;
 import edp.davinci.core.common.ResultMap;
+import edp.davinci.core.utils.MetadataVersionManager;
 import edp.davinci.dto.displayDto.*;
 import edp.davinci.dto.shareDto.ShareEntity;
 import edp.davinci.model.Display;
@@ -421,8 +422,13 @@ public class DisplayController extends BaseController {
             ResultMap resultMap = new ResultMap(tokenUtils).failAndRefreshToken(request).message("Invalid project id");
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
+        String eTag = getVersionETag(user, MetadataVersionManager.projectKey(projectId));
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         List<Display> displayList = displayService.getDisplayListByProject(projectId, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payloads(displayList));
+        return okWithETag(eTag, successResult(request, eTag).payloads(displayList));
     }
 
 
@@ -443,8 +449,13 @@ public class DisplayController extends BaseController {
             ResultMap resultMap = new ResultMap(tokenUtils).failAndRefreshToken(request).message("Invalid Display id");
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
+        String eTag = getDisplayETag(user, id);
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         DisplayWithSlides displayWithSlides = displaySlideService.getDisplaySlideList(id, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payload(displayWithSlides));
+        return okWithETag(eTag, successResult(request, eTag).payload(displayWithSlides));
     }
 
 
@@ -474,8 +485,25 @@ public class DisplayController extends BaseController {
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
 
+        String eTag = getDisplayETag(user, displayId);
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         SlideWithMem displaySlideMem = displaySlideService.getDisplaySlideMem(displayId, slideId, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payload(displaySlideMem));
+        return okWithETag(eTag, successResult(request, eTag).payload(displaySlideMem));
+    }
+
+    /**
+     * display 下的元数据随所属项目版本变化
+     *
+     * @param user
+     * @param displayId
+     * @return
+     */
+    private String getDisplayETag(User user, Long displayId) {
+        Long projectId = displayService.getProjectId(displayId);
+        return null == projectId ? null : getVersionETag(user, MetadataVersionManager.projectKey(projectId));
     }
 
 
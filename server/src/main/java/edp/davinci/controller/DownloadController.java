@@ -98,7 +98,7 @@ public class DownloadController extends BaseController {
         DownloadRecord record = downloadService.downloadById(id, token);
         FileInputStream is = null;
         try {
-            encodeFileName(request, response, record.getName() + FileTypeEnum.XLSX.getFormat());
+            encodeFileName(request, response, record.getName() + getFileFormat(record.getPath()));
             is = new FileInputStream(new File(record.getPath()));
             Streams.copy(is, response.getOutputStream(), true);
         } catch (Exception e) {
@@ -116,9 +116,11 @@ public class DownloadController extends BaseController {
                                              @PathVariable Long id,
                                              @ApiIgnore @CurrentUser User user,
                                              @Valid @RequestBody(required = false) DownloadViewExecuteParam[] params,
+                                             @RequestParam(required = false) String engine,
+                                             @RequestParam(required = false) String format,
                                              HttpServletRequest request) {
         List<DownloadViewExecuteParam> downloadViewExecuteParams = Arrays.asList(params);
-        boolean rst = downloadService.submit(DownloadType.getDownloadType(type), id, user, downloadViewExecuteParams);
+        boolean rst = downloadService.submit(DownloadType.getDownloadType(type), id, user, downloadViewExecuteParams, engine, format);
         return ResponseEntity.ok(rst ? new ResultMap(tokenUtils).successAndRefreshToken(request).payload(null) :
                 new ResultMap(tokenUtils).failAndRefreshToken(request).payload(null));
     }
@@ -132,10 +134,12 @@ public class DownloadController extends BaseController {
                                                   @PathVariable(name = "uuid") String uuid,
                                                   @PathVariable(name = "type") String type,
                                                   @ApiIgnore @CurrentUser User user,
-                                                  @Valid @RequestBody(required = false) DownloadViewExecuteParam[] params) {
+                                                  @Valid @RequestBody(required = false) DownloadViewExecuteParam[] params,
+                                                  @RequestParam(required = false) String engine,
+                                                  @RequestParam(required = false) String format) {
 
         List<DownloadViewExecuteParam> downloadViewExecuteParams = Arrays.asList(params);
-        boolean rst = shareDownloadService.submit(DownloadType.getDownloadType(type), uuid, downloadViewExecuteParams);
+        boolean rst = shareDownloadService.submit(DownloadType.getDownloadType(type), uuid, downloadViewExecuteParams, engine, format);
         return ResponseEntity.ok(rst ? new ResultMap().success() : new ResultMap().fail());
     }
 
@@ -151,7 +155,7 @@ public class DownloadController extends BaseController {
         ShareDownloadRecord record = shareDownloadService.downloadById(id, uuid);
         FileInputStream is = null;
         try {
-            encodeFileName(request, response, record.getName() + FileTypeEnum.XLSX.getFormat());
+            encodeFileName(request, response, record.getName() + getFileFormat(record.getPath()));
             is = new FileInputStream(new File(record.getPath()));
             Streams.copy(is, response.getOutputStream(), true);
         } catch (Exception e) {
@@ -194,6 +198,17 @@ public class DownloadController extends BaseController {
         response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
     }
 
+    /**
+     * 文件名后缀与实际生成的文件一致，无法识别时按 xlsx 处理
+     *
+     * @param path
+     * @return
+     */
+    private static String getFileFormat(String path) {
+        FileTypeEnum fileType = FileTypeEnum.typeOfPath(path);
+        return (null != fileType ? fileType : FileTypeEnum.XLSX).getFormat();
+    }
+
     private static boolean isIE(HttpServletRequest request) {
         String ua = request.getHeader("User-Agent").toLowerCase();
         return ((ua.indexOf("rv") > 0 && ua.contains("like gecko")) || ua.indexOf("msie") > 0);
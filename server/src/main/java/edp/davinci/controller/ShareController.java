@@ -24,6 +24,7 @@ import edp.core.annotation.CurrentUser;
 import edp.core.model.Paginate;
 import edp.davinci.common.controller.BaseController;
 import edp.davinci.core.common.Constants;
+import edp.davinci.core.common.JsonResultStreamWriter;
 import edp.davinci.core.common.ResultMap;
 import edp.davinci.dto.shareDto.ShareDashboard;
 import edp.davinci.dto.shareDto.ShareDisplay;
@@ -49,7 +50,9 @@ import org.springframework.web.bind.annotation.*;
 import springfox.documentation.annotations.ApiIgnore;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
@@ -212,6 +215,48 @@ public class ShareController extends BaseController {
         }
     }
 
+    /**
+     * share页以流的方式获取源数据
+     *
+     * @param token
+     * @param password
+     * @param executeParam
+     * @param user
+     * @param request
+     * @param response
+     * @return
+     */
+    @ApiOperation(value = "get share data as stream")
+    @AuthShare(type = ShareType.DATA, operation = ShareOperation.LOAD_DATA)
+    @PostMapping(value = "/data/{token}/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity getShareDataStream(@PathVariable String token,
+                                             @RequestParam(required = false) String password,
+                                             @RequestBody(required = false) ViewExecuteParam executeParam,
+                                             @ApiIgnore @CurrentUser User user,
+                                             HttpServletRequest request,
+                                             HttpServletResponse response) throws IOException {
+
+        ResultMap resultMap;
+        if (null == user || user.getId() == null) {
+            resultMap = new ResultMap().success();
+        } else {
+            resultMap = new ResultMap(tokenUtils).successAndRefreshToken(request);
+        }
+
+        JsonResultStreamWriter writer = new JsonResultStreamWriter(resultMap, response);
+        try {
+            shareService.getShareDataStream(executeParam, user, writer);
+        } catch (RuntimeException e) {
+            if (!writer.abort(e)) {
+                throw e;
+            }
+            log.error("share data stream aborted: {}", e.getMessage(), e);
+            return null;
+        }
+        writer.close();
+        return null;
+    }
+
 
     /**
      * share获取控制器的值
@@ -22,10 +22,14 @@ package edp.davinci.controller;
 import edp.core.annotation.CurrentUser;
 import edp.core.model.Paginate;
 import edp.core.model.PaginateWithQueryColumns;
+import edp.core.utils.CollectionUtils;
 import edp.davinci.common.controller.BaseController;
 import edp.davinci.core.common.Constants;
+import edp.davinci.core.common.JsonResultStreamWriter;
+import edp.davinci.core.common.NdjsonBatchDataWriter;
 import edp.davinci.core.common.ResultMap;
 import edp.davinci.core.utils.DacChannelUtil;
+import edp.davinci.core.utils.MetadataVersionManager;
 import edp.davinci.dto.viewDto.*;
 import edp.davinci.model.DacChannel;
 import edp.davinci.model.User;
@@ -43,7 +47,9 @@ import org.springframework.web.bind.annotation.*;
 import springfox.documentation.annotations.ApiIgnore;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
@@ -80,8 +86,13 @@ public class ViewController extends BaseController {
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
 
+        String eTag = getVersionETag(user, MetadataVersionManager.projectKey(projectId));
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         List<ViewBaseInfo> views = viewService.getViews(projectId, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payloads(views));
+        return okWithETag(eTag, successResult(request, eTag).payloads(views));
     }
 
 
@@ -104,8 +115,13 @@ public class ViewController extends BaseController {
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
 
+        String eTag = getVersionETag(user, MetadataVersionManager.viewKey(id));
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         ViewWithSourceBaseInfo view = viewService.getView(id, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payload(view));
+        return okWithETag(eTag, successResult(request, eTag).payload(view));
     }
 
 
@@ -244,6 +260,70 @@ public class ViewController extends BaseController {
         return ResponseEntity.ok().body(new ResultMap(tokenUtils).successAndRefreshToken(request).payload(paginate));
     }
 
+    /**
+     * 以流的方式获取当前view对应的源数据，resultList 每行为与 columns 顺序一致的数组
+     *
+     * @param id
+     * @param executeParam
+     * @param user
+     * @param request
+     * @param response
+     * @return
+     */
+    @ApiOperation(value = "get data as stream")
+    @PostMapping(value = "/{id}/getdata/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity getDataStream(@PathVariable Long id,
+                                        @RequestBody(required = false) ViewExecuteParam executeParam,
+                                        @ApiIgnore @CurrentUser User user,
+                                        HttpServletRequest request,
+                                        HttpServletResponse response) throws IOException {
+        if (invalidId(id)) {
+            ResultMap resultMap = new ResultMap(tokenUtils).failAndRefreshToken(request).message("Invalid view id");
+            return ResponseEntity.status(resultMap.getCode()).body(resultMap);
+        }
+
+        JsonResultStreamWriter writer = new JsonResultStreamWriter(new ResultMap(tokenUtils).successAndRefreshToken(request), response);
+        try {
+            viewService.getDataStream(id, executeParam, user, writer);
+        } catch (RuntimeException e) {
+            if (!writer.abort(e)) {
+                throw e;
+            }
+            log.error("view data stream aborted: {}", e.getMessage(), e);
+            return null;
+        }
+        writer.close();
+        return null;
+    }
+
+
+    /**
+     * 批量获取多个view的源数据，如一个dashboard或display页的所有widget
+     * 以 NDJSON 返回，每个查询完成后输出一行，key 与请求中一致
+     *
+     * @param params
+     * @param user
+     * @param request
+     * @param response
+     * @return
+     */
+    @ApiOperation(value = "get data of views in batch")
+    @PostMapping(value = "/getdata/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity getBatchData(@RequestBody List<BatchViewExecuteParam> params,
+                                       @ApiIgnore @CurrentUser User user,
+                                       HttpServletRequest request,
+                                       HttpServletResponse response) throws IOException {
+        if (CollectionUtils.isEmpty(params)) {
+            ResultMap resultMap = new ResultMap(tokenUtils).failAndRefreshToken(request).message("Invalid params");
+            return ResponseEntity.status(resultMap.getCode()).body(resultMap);
+        }
+
+        NdjsonBatchDataWriter writer = new NdjsonBatchDataWriter(new ResultMap(tokenUtils).successAndRefreshToken(request), response);
+        viewService.getBatchData(params, user, writer);
+        writer.close();
+        return null;
+    }
+
 
     @ApiOperation(value = "get distinct value")
     @PostMapping(value = "/{id}/getdistinctvalue", consumes = MediaType.APPLICATION_JSON_VALUE)
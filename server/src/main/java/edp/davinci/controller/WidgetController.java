@@ -24,6 +24,7 @@ import edp.core.annotation.CurrentUser;
 import edp.davinci.common.controller.BaseController;
 import edp.davinci.core.common.Constants;
 import edp.davinci.core.common.ResultMap;
+import edp.davinci.core.utils.MetadataVersionManager;
 import edp.davinci.dto.shareDto.ShareEntity;
 import edp.davinci.dto.viewDto.ViewExecuteParam;
 import edp.davinci.dto.widgetDto.WidgetCreate;
@@ -77,8 +78,13 @@ public class WidgetController extends BaseController {
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
 
+        String eTag = getVersionETag(user, MetadataVersionManager.projectKey(projectId));
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         List<WidgetWithViewName> widgets = widgetService.getWidgets(projectId, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payloads(widgets));
+        return okWithETag(eTag, successResult(request, eTag).payloads(widgets));
     }
 
 
@@ -99,8 +105,14 @@ public class WidgetController extends BaseController {
             ResultMap resultMap = new ResultMap(tokenUtils).failAndRefreshToken(request).message("Invalid id");
             return ResponseEntity.status(resultMap.getCode()).body(resultMap);
         }
+
+        String eTag = getVersionETag(user, MetadataVersionManager.widgetKey(id));
+        if (notModified(request, eTag)) {
+            return notModifiedResponse(eTag);
+        }
+
         Widget widget = widgetService.getWidget(id, user);
-        return ResponseEntity.ok(new ResultMap(tokenUtils).successAndRefreshToken(request).payload(widget));
+        return okWithETag(eTag, successResult(request, eTag).payload(widget));
     }
 
 
@@ -0,0 +1,48 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.common;
+
+import edp.core.model.Paginate;
+
+import java.util.Map;
+
+/**
+ * 批量获取数据时逐个接收结果，可能被多个线程调用
+ */
+public interface BatchDataHandler {
+
+    /**
+     * 单个查询成功
+     *
+     * @param key      请求中的 key
+     * @param viewId
+     * @param paginate
+     */
+    void onResult(String key, Long viewId, Paginate<Map<String, Object>> paginate);
+
+    /**
+     * 单个查询失败，不影响其它查询
+     *
+     * @param key
+     * @param viewId
+     * @param e
+     */
+    void onError(String key, Long viewId, Throwable e);
+}
@@ -0,0 +1,128 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.core.common;
+
+import edp.core.common.jdbc.ResultStreamHandler;
+import edp.core.model.QueryColumn;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 将结果集以流的方式写入 csv：BOM + 列名行 + 列类型行 + 数据行，内存占用与结果集大小无关
+ */
+public class CsvResultStreamWriter implements ResultStreamHandler, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim();
+
+    private final Writer writer;
+
+    private CSVPrinter printer;
+
+    private boolean started = false;
+
+    private long rows = 0L;
+
+    public CsvResultStreamWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * 写入文件，gzip 为 true 时以 gzip 格式压缩
+     *
+     * @param filePath
+     * @param gzip
+     * @return
+     * @throws IOException
+     */
+    public static CsvResultStreamWriter open(String filePath, boolean gzip) throws IOException {
+        OutputStream out = new FileOutputStream(filePath);
+        try {
+            return new CsvResultStreamWriter(gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void onColumns(List<QueryColumn> columns) throws IOException {
+        if (started || null == columns || columns.isEmpty()) {
+            return;
+        }
+        writer.write("\uFEFF"); //解决csv用excel打开乱码问题
+        printer = new CSVPrinter(writer, CSV_FORMAT);
+        for (QueryColumn column : columns) {
+            printer.print(column.getName());
+        }
+        printer.println();
+        for (QueryColumn column : columns) {
+            printer.print(column.getType());
+        }
+        printer.println();
+        started = true;
+    }
+
+    @Override
+    public void onRow(Object[] values) throws IOException {
+        if (!started) {
+            return;
+        }
+        printer.printRecord(values);
+        rows++;
+    }
+
+    @Override
+    public void onFinish(int pageNo, int pageSize, long totalCount) throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * 是否已写入列信息，未写入时结果为空文件
+     *
+     * @return
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * 只刷新缓冲，不关闭底层输出流，用于写入 zip 等多段输出
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.common;
+
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeWriter;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import edp.core.common.jdbc.ResultStreamHandler;
+import edp.core.model.QueryColumn;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static edp.core.consts.Consts.EMPTY;
+
+/**
+ * 将结果集以流的方式写入 response，payload 格式为：
+ * {"columns":[...],"resultList":[[...],[...]],"pageNo":1,"pageSize":10,"totalCount":100}
+ * resultList 中每行为与 columns 顺序一致的数组，内存占用与结果集大小无关
+ */
+public class JsonResultStreamWriter implements ResultStreamHandler, Closeable {
+
+    private static final SerializerFeature[] FEATURES = new SerializerFeature[]{
+            SerializerFeature.QuoteFieldNames,
+            SerializerFeature.WriteEnumUsingToString,
+            SerializerFeature.WriteMapNullValue,
+            SerializerFeature.WriteDateUseDateFormat,
+            SerializerFeature.DisableCircularReferenceDetect
+    };
+
+    private final ResultMap resultMap;
+
+    private final HttpServletResponse response;
+
+    private SerializeWriter out;
+
+    private JSONSerializer serializer;
+
+    private boolean started = false;
+
+    private boolean hasRow = false;
+
+    private boolean finished = false;
+
+    private boolean closed = false;
+
+    public JsonResultStreamWriter(ResultMap resultMap, HttpServletResponse response) {
+        this.resultMap = resultMap;
+        this.response = response;
+    }
+
+    private void open() throws IOException {
+        if (null != out) {
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        out = new SerializeWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), FEATURES);
+        serializer = new JSONSerializer(out);
+    }
+
+    @Override
+    public void onColumns(List<QueryColumn> columns) throws IOException {
+        if (started) {
+            return;
+        }
+        open();
+        out.write("{\"header\":");
+        serializer.write(resultMap.get("header"));
+        out.write(",\"payload\":{\"columns\":");
+        serializer.write(columns);
+        out.write(",\"resultList\":[");
+        started = true;
+    }
+
+    @Override
+    public void onRow(Object[] values) throws IOException {
+        if (hasRow) {
+            out.write(',');
+        }
+        out.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            serializer.write(formatValue(values[i]));
+        }
+        out.write(']');
+        hasRow = true;
+    }
+
+    @Override
+    public void onFinish(int pageNo, int pageSize, long totalCount) throws IOException {
+        onFinish(pageNo, pageSize, totalCount, false);
+    }
+
+    @Override
+    public void onFinish(int pageNo, int pageSize, long totalCount, boolean approximate) throws IOException {
+        if (!started) {
+            onColumns(new ArrayList<>());
+        }
+        out.write("],\"pageNo\":");
+        out.writeInt(pageNo);
+        out.write(",\"pageSize\":");
+        out.writeInt(pageSize);
+        out.write(",\"totalCount\":");
+        out.writeLong(totalCount);
+        if (approximate) {
+            out.write(",\"approximate\":true");
+        }
+        out.write("}}");
+        finished = true;
+    }
+
+    /**
+     * 与 WebMvcConfig 中 ValueFilter 保持一致
+     *
+     * @param value
+     * @return
+     */
+    private Object formatValue(Object value) {
+        if (null == value) {
+            return EMPTY;
+        }
+        if ((value instanceof Long || value instanceof BigInteger) && value.toString().length() > 15) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * 结束写入，未产生任何结果时输出空 payload
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (null == out) {
+            open();
+            serializer.write(resultMap);
+        }
+        out.flush();
+        out.close();
+    }
+
+    /**
+     * 输出中途失败时结束响应：已开始写出结果则补齐 JSON 并附带 error 标记，
+     * 尚未写出任何内容时返回 false，由调用方按普通异常处理
+     *
+     * @param e
+     * @return 是否已在响应中标记错误
+     */
+    public boolean abort(Throwable e) {
+        if (!started || closed) {
+            return closed;
+        }
+        closed = true;
+        try {
+            if (!finished) {
+                out.write("],\"error\":");
+                serializer.write(null == e.getMessage() ? e.getClass().getName() : e.getMessage());
+                out.write("}}");
+            }
+            out.flush();
+            out.close();
+        } catch (Exception ignore) {
+            // client may have gone away
+        }
+        return true;
+    }
+}
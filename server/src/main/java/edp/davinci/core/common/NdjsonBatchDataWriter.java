@@ -0,0 +1,160 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.common;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializeFilter;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.alibaba.fastjson.serializer.ValueFilter;
+import edp.core.enums.HttpCodeEnum;
+import edp.core.exception.ForbiddenException;
+import edp.core.exception.NotFoundException;
+import edp.core.exception.UnAuthorizedException;
+import edp.core.model.Paginate;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static edp.core.consts.Consts.EMPTY;
+
+/**
+ * 以 NDJSON 的方式逐行写出批量查询结果，每个查询完成后立即输出一行：
+ * {"key":"...","id":1,"header":{"code":200,"msg":"Success"},"payload":{...}}
+ * 第一行的 header 中带有刷新后的 token
+ */
+@Slf4j
+public class NdjsonBatchDataWriter implements BatchDataHandler, Closeable {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson;charset=UTF-8";
+
+    private static final SerializerFeature[] FEATURES = new SerializerFeature[]{
+            SerializerFeature.QuoteFieldNames,
+            SerializerFeature.WriteEnumUsingToString,
+            SerializerFeature.WriteMapNullValue,
+            SerializerFeature.WriteDateUseDateFormat,
+            SerializerFeature.DisableCircularReferenceDetect
+    };
+
+    /**
+     * 与 WebMvcConfig 中 ValueFilter 保持一致
+     */
+    private static final SerializeFilter[] FILTERS = new SerializeFilter[]{
+            (ValueFilter) (o, s, source) -> {
+                if (null != source && (source instanceof Long || source instanceof BigInteger) && source.toString().length() > 15) {
+                    return source.toString();
+                }
+                return null == source ? EMPTY : source;
+            }
+    };
+
+    private final HttpServletResponse response;
+
+    private String token;
+
+    private OutputStream out;
+
+    private boolean broken = false;
+
+    public NdjsonBatchDataWriter(ResultMap resultMap, HttpServletResponse response) {
+        this.response = response;
+        Object header = resultMap.get("header");
+        if (header instanceof Map) {
+            Object token = ((Map) header).get("token");
+            this.token = null == token ? null : token.toString();
+        }
+    }
+
+    @Override
+    public void onResult(String key, Long viewId, Paginate<Map<String, Object>> paginate) {
+        write(key, viewId, HttpCodeEnum.OK.getCode(), "Success", paginate);
+    }
+
+    @Override
+    public void onError(String key, Long viewId, Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && null != e.getCause()) {
+            e = e.getCause();
+        }
+
+        HttpCodeEnum code = HttpCodeEnum.FAIL;
+        if (e instanceof UnAuthorizedException) {
+            code = HttpCodeEnum.UNAUTHORIZED;
+        } else if (e instanceof ForbiddenException) {
+            code = HttpCodeEnum.FORBIDDEN;
+        } else if (e instanceof NotFoundException) {
+            code = HttpCodeEnum.NOT_FOUND;
+        }
+
+        log.error("Batch get data error, key:{}, view:{}, e:{}", key, viewId, e.toString());
+        write(key, viewId, code.getCode(), null == e.getMessage() ? code.getMessage() : e.getMessage(), null);
+    }
+
+    private synchronized void write(String key, Long viewId, int code, String msg, Object payload) {
+        if (broken) {
+            return;
+        }
+
+        Map<String, Object> header = new HashMap<>();
+        header.put("code", code);
+        header.put("msg", msg);
+        if (null != token) {
+            header.put("token", token);
+            token = null;
+        }
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("key", key);
+        line.put("id", viewId);
+        line.put("header", header);
+        line.put("payload", null == payload ? EMPTY : payload);
+
+        try {
+            if (null == out) {
+                response.setContentType(CONTENT_TYPE);
+                out = response.getOutputStream();
+            }
+            out.write(JSON.toJSONString(line, FILTERS, FEATURES).getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            // 客户端断开后不再写出
+            broken = true;
+            log.warn("Batch data write error: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (null == out) {
+            response.setContentType(CONTENT_TYPE);
+            out = response.getOutputStream();
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.core.enums;
+
+import lombok.Getter;
+
+/**
+ * xlsx 导出引擎
+ * SXSSF：POI SXSSFWorkbook
+ * STREAM：直接写 SpreadsheetML，不创建 POI 行、单元格对象
+ */
+@Getter
+public enum ExcelEngineEnum {
+    SXSSF("sxssf"),
+    STREAM("stream");
+
+    private String engine;
+
+    ExcelEngineEnum(String engine) {
+        this.engine = engine;
+    }
+
+    public static ExcelEngineEnum engineOf(String engine) {
+        for (ExcelEngineEnum engineEnum : values()) {
+            if (engineEnum.engine.equalsIgnoreCase(engine)) {
+                return engineEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -22,7 +22,10 @@ package edp.davinci.core.enums;
 public enum FileTypeEnum {
     XLSX("excel", ".xlsx"),
     XLS("excel", ".xls"),
-    CSV("csv", ".csv");
+    CSV("csv", ".csv"),
+    CSV_GZ("csv", ".csv.gz"),
+    ZIP("zip", ".zip"),
+    ARROW("arrow", ".arrow");
 
     private String type;
     private String format;
@@ -39,4 +42,50 @@ public enum FileTypeEnum {
         this.type = type;
         this.format = format;
     }
+
+    /**
+     * 导出格式，目前支持 xlsx、csv 与 arrow（Arrow IPC 文件，即 Feather V2），无法识别时返回 null
+     *
+     * @param format
+     * @return
+     */
+    public static FileTypeEnum exportTypeOf(String format) {
+        if (null == format) {
+            return null;
+        }
+        String value = format.trim().toLowerCase();
+        if (value.startsWith(".")) {
+            value = value.substring(1);
+        }
+        if (CSV.type.equals(value)) {
+            return CSV;
+        }
+        if (ARROW.type.equals(value) || "feather".equals(value)) {
+            return ARROW;
+        }
+        if (XLSX.type.equals(value) || XLSX.format.equals("." + value)) {
+            return XLSX;
+        }
+        return null;
+    }
+
+    /**
+     * 根据文件路径的后缀获取文件类型，无法识别时返回 null
+     *
+     * @param path
+     * @return
+     */
+    public static FileTypeEnum typeOfPath(String path) {
+        if (null == path) {
+            return null;
+        }
+        String lowerPath = path.toLowerCase();
+        FileTypeEnum fileType = null;
+        for (FileTypeEnum value : values()) {
+            if (lowerPath.endsWith(value.format) && (null == fileType || value.format.length() > fileType.format.length())) {
+                fileType = value;
+            }
+        }
+        return fileType;
+    }
 }
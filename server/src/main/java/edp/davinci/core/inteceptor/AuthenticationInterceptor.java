@@ -28,9 +28,12 @@ import edp.core.utils.TokenUtils;
 import edp.davinci.core.common.Constants;
 import edp.davinci.core.common.ErrorMsg;
 import edp.davinci.core.common.ResultMap;
+import edp.davinci.core.utils.PermissionSnapshotCache;
 import edp.davinci.model.User;
 import edp.davinci.service.UserService;
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -49,6 +52,9 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private PermissionSnapshotCache permissionSnapshotCache;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
 
@@ -73,8 +79,7 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
         AuthShare authShareMethod = method.getAnnotation(AuthShare.class);
         if (null != authShareMethod) {
             if (!StringUtils.isEmpty(token) && token.startsWith(Constants.TOKEN_PREFIX)) {
-                String username = tokenUtils.getUsername(token);
-                User user = userService.getByUsername(username);
+                User user = getUser(tokenUtils.getUsername(tokenUtils.parseToken(token)));
                 request.setAttribute(Constants.CURRENT_USER, user);
             }
             return true;
@@ -88,8 +93,8 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
             response.getWriter().print(ErrorMsg.ERR_MSG_AUTHENTICATION);
             return false;
         }
-        String username = tokenUtils.getUsername(token);
-        User user = userService.getByUsername(username);
+        Claims claims = tokenUtils.parseToken(token);
+        User user = getUser(tokenUtils.getUsername(claims));
         if (null == user) {
             if (!request.getServletPath().endsWith("/download/page")) {
                 log.debug("{} : token user not found", request.getServletPath());
@@ -99,7 +104,7 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
             return false;
 
         }
-        if (!tokenUtils.validateToken(token, user)) {
+        if (!tokenUtils.validateToken(claims, user)) {
             if (!request.getServletPath().endsWith("/download/page")) {
                 log.debug("{} : token validation fails", request.getServletPath());
             }
@@ -123,6 +128,27 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
         return true;
     }
 
+    /**
+     * 获取 token 对应用户，用户信息变更时缓存失效
+     * 请求内可能修改当前用户，返回副本
+     *
+     * @param username
+     * @return
+     */
+    private User getUser(String username) {
+        if (StringUtils.isEmpty(username)) {
+            return null;
+        }
+        User cachedUser = permissionSnapshotCache.get(PermissionSnapshotCache.key("user", username),
+                () -> userService.getByUsername(username));
+        if (null == cachedUser) {
+            return null;
+        }
+        User user = new User();
+        BeanUtils.copyProperties(cachedUser, user);
+        return user;
+    }
+
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
 
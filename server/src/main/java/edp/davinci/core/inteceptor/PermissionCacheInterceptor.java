@@ -0,0 +1,112 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.inteceptor;
+
+import edp.davinci.core.utils.MetadataVersionManager;
+import edp.davinci.core.utils.PermissionSnapshotCache;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 用户、角色、关系及项目相关 Mapper 写操作后失效权限快照缓存并递增权限版本（见 MetadataVersionManager）
+ * 收藏数等计数语句不影响权限，不做处理；viz 变更由 BaseEntityService.bumpVersion 按项目失效
+ */
+@Component
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class PermissionCacheInterceptor implements Interceptor {
+
+    private static final String MAPPER_PACKAGE = "edp.davinci.dao.";
+
+    private static final Set<String> PERMISSION_MAPPERS = new HashSet<>(Arrays.asList(
+            "ProjectMapper",
+            "OrganizationMapper",
+            "RoleMapper",
+            "RelUserOrganizationMapper",
+            "RelProjectAdminMapper",
+            "RelRoleProjectMapper",
+            "RelRoleUserMapper",
+            "RelRolePortalMapper",
+            "RelRoleDashboardMapper",
+            "RelRoleDisplayMapper",
+            "RelRoleSlideMapper",
+            "RelRoleDashboardWidgetMapper",
+            "RelRoleDisplaySlideWidgetMapper",
+            "RelRoleViewMapper",
+            "UserMapper"
+    ));
+
+    private static final Set<String> COUNTER_STATEMENTS = new HashSet<>(Arrays.asList(
+            MAPPER_PACKAGE + "ProjectMapper.starNumAdd",
+            MAPPER_PACKAGE + "ProjectMapper.starNumReduce"
+    ));
+
+    @Lazy
+    @Autowired
+    private PermissionSnapshotCache permissionSnapshotCache;
+
+    @Lazy
+    @Autowired
+    private MetadataVersionManager metadataVersionManager;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        String mapper = getMapperName(statement.getId());
+        if (null == mapper || COUNTER_STATEMENTS.contains(statement.getId())) {
+            return result;
+        }
+        if (PERMISSION_MAPPERS.contains(mapper)) {
+            permissionSnapshotCache.invalidateAll();
+            metadataVersionManager.bump(MetadataVersionManager.PERMISSION);
+        }
+        return result;
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return target instanceof Executor ? Plugin.wrap(target, this) : target;
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    private String getMapperName(String statementId) {
+        if (null == statementId || !statementId.startsWith(MAPPER_PACKAGE)) {
+            return null;
+        }
+        int index = statementId.lastIndexOf('.');
+        return index > MAPPER_PACKAGE.length() ? statementId.substring(MAPPER_PACKAGE.length(), index) : null;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.utils;
+
+import edp.core.exception.ServerException;
+import edp.core.utils.CollectionUtils;
+import edp.core.utils.MD5Util;
+import edp.davinci.core.enums.ConcurrencyStrategyEnum;
+import edp.davinci.dto.viewDto.ConcurrencyQueryFactor;
+import edp.davinci.dto.viewDto.ConcurrencyStrategy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static edp.core.consts.Consts.MINUS;
+
+/**
+ * 相同查询并发合并
+ * DIRTY_READ: 共享正在执行的查询结果
+ * FAIL_FAST: 存在正在执行的相同查询时直接拒绝
+ */
+@Slf4j
+public class ConcurrencyQueryUtils {
+
+    private static final ConcurrentHashMap<String, CompletableFuture<Object>> IN_FLIGHT_QUERIES = new ConcurrentHashMap<>();
+
+    private static final AtomicLong EXECUTED = new AtomicLong();
+
+    private static final AtomicLong COALESCED = new AtomicLong();
+
+    private static final AtomicLong REJECTED = new AtomicLong();
+
+    private static final AtomicLong TIMEOUT = new AtomicLong();
+
+    /**
+     * 按并发策略执行查询
+     *
+     * @param strategy
+     * @param factor
+     * @param waitMillis 合并到正在执行的查询时的最长等待时间
+     * @param query
+     * @param <T>
+     * @return
+     * @throws Exception
+     */
+    public static <T> T execute(ConcurrencyStrategy strategy, ConcurrencyQueryFactor factor, long waitMillis, Callable<T> query) throws Exception {
+        if (null == strategy || !strategy.isConcurrencyOptimization()) {
+            return query.call();
+        }
+
+        ConcurrencyStrategyEnum strategyEnum = ConcurrencyStrategyEnum.strategyOf(strategy.getConcurrencyOptimizationStrategy());
+        if (null == strategyEnum) {
+            strategyEnum = ConcurrencyStrategyEnum.DIRTY_READ;
+        }
+
+        String key = getKey(factor);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = IN_FLIGHT_QUERIES.putIfAbsent(key, future);
+
+        if (null != inFlight) {
+            if (strategyEnum == ConcurrencyStrategyEnum.FAIL_FAST) {
+                REJECTED.incrementAndGet();
+                log.info("Query {} is rejected, the same query is executing", key);
+                throw new ServerException("The same query is executing, please try again later");
+            }
+
+            long coalesced = COALESCED.incrementAndGet();
+            log.debug("Query {} is coalesced, total coalesced: {}", key, coalesced);
+            try {
+                return (T) inFlight.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                TIMEOUT.incrementAndGet();
+                log.warn("Query {} is not finished after waiting {} ms", key, waitMillis);
+                throw new ServerException("Waiting for the same query timeout, please try again later");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw new ServerException(cause.getMessage(), cause);
+            }
+        }
+
+        EXECUTED.incrementAndGet();
+        try {
+            T result = query.call();
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT_QUERIES.remove(key, future);
+        }
+    }
+
+    /**
+     * 查询合并统计
+     *
+     * @return
+     */
+    public static Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("executed", EXECUTED.get());
+        metrics.put("coalesced", COALESCED.get());
+        metrics.put("rejected", REJECTED.get());
+        metrics.put("timeout", TIMEOUT.get());
+        metrics.put("inFlight", (long) IN_FLIGHT_QUERIES.size());
+        return metrics;
+    }
+
+    private static String getKey(ConcurrencyQueryFactor factor) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(factor.getSourceId()).append(MINUS)
+                .append(factor.isDistinct()).append(MINUS)
+                .append(factor.getPageNo()).append(MINUS)
+                .append(factor.getPageSize()).append(MINUS)
+                .append(factor.getTotalCount()).append(MINUS)
+                .append(factor.getLimit()).append(MINUS);
+        appendAll(builder, CollectionUtils.isEmpty(factor.getExcludeColumns()) ? null : new TreeSet<>(factor.getExcludeColumns()));
+        appendAll(builder, factor.getSqlList());
+        return MD5Util.getMD5(builder.toString(), true, 32);
+    }
+
+    /**
+     * 按 个数-长度:内容 追加，避免 {"ab"} 与 {"a","b"} 等不同的列表拼出相同的 key
+     */
+    private static void appendAll(StringBuilder builder, Collection<String> values) {
+        if (CollectionUtils.isEmpty(values)) {
+            builder.append(0).append(MINUS);
+            return;
+        }
+        builder.append(values.size()).append(MINUS);
+        for (String value : values) {
+            if (null == value) {
+                builder.append(-1).append(':');
+                continue;
+            }
+            builder.append(value.length()).append(':').append(value);
+        }
+    }
+}
@@ -19,7 +19,6 @@
 
 package edp.davinci.core.utils;
 
-import com.alibaba.druid.util.StringUtils;
 import edp.core.exception.ServerException;
 import edp.core.model.QueryColumn;
 import edp.core.utils.CollectionUtils;
@@ -30,7 +29,6 @@ import edp.davinci.core.enums.SqlColumnEnum;
 import edp.davinci.core.model.DataUploadEntity;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -107,94 +105,4 @@ public class CsvUtils {
 
         return dataUploadEntity;
     }
-
-
-    /**
-     * 写入csv
-     *
-     * @param filePath
-     * @param fileName
-     * @param columns
-     * @param dataList
-     * @return
-     * @throws ServerException
-     */
-    public static String formatCsvWithFirstAsHeader(String filePath, String fileName, List<QueryColumn> columns, List<Map<String, Object>> dataList) throws ServerException {
-
-        String csvFullName = null;
-        if (!CollectionUtils.isEmpty(columns)) {
-
-            List<String> headers = new ArrayList<>();
-            List<String> headerTypes = new ArrayList<>();
-            for (QueryColumn column : columns) {
-                headers.add(column.getName());
-                headerTypes.add(column.getType());
-            }
-
-            if (!fileName.toLowerCase().endsWith(FileTypeEnum.CSV.getFormat())) {
-                fileName = fileName.trim() + FileTypeEnum.CSV.getFormat();
-            }
-
-            if (!StringUtils.isEmpty(filePath)) {
-                File dir = new File(filePath);
-                if (!dir.exists() || !dir.isDirectory()) {
-                    dir.mkdirs();
-                }
-            }
-
-            File file = new File(filePath + File.separator + fileName);
-            if (file.exists()) {
-                fileName = fileName.substring(0, fileName.lastIndexOf(".") - 1) + "_" + UUID.randomUUID() + FileTypeEnum.CSV.getFormat();
-            }
-
-            csvFullName = filePath + File.separator + fileName;
-
-            FileWriter fileWriter = null;
-
-            CSVPrinter csvPrinter = null;
-
-            try {
-                CSVFormat csvFormat = CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim();
-
-
-                fileWriter = new FileWriter(csvFullName, true);
-
-                fileWriter.write("\uFEFF"); //解决csv用excel打开乱码问题
-
-                csvPrinter = new CSVPrinter(fileWriter, csvFormat);
-
-                csvPrinter.printRecord(headers);
-                csvPrinter.printRecord(headerTypes);
-
-                if (!CollectionUtils.isEmpty(dataList)) {
-                    for (Map<String, Object> map : dataList) {
-                        List<Object> list = new ArrayList<>();
-                        for (String key : headers) {
-                            list.add(map.get(key));
-                        }
-                        csvPrinter.printRecord(list);
-                    }
-                }
-
-            } catch (Exception e) {
-                throw new ServerException(e.getMessage());
-            } finally {
-                flushFlushable(csvPrinter);
-                flushFlushable(fileWriter);
-                FileUtils.closeCloseable(csvPrinter);
-                FileUtils.closeCloseable(fileWriter);
-            }
-        }
-        return csvFullName;
-    }
-
-    private static void flushFlushable(Flushable f) {
-        if (f != null) {
-            try {
-                f.flush();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-    }
 }
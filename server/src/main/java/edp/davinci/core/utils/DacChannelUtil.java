@@ -20,11 +20,20 @@
 package edp.davinci.core.utils;
 
 import com.alibaba.druid.util.StringUtils;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import edp.core.exception.NotFoundException;
 import edp.davinci.core.common.ResultMap;
 import edp.davinci.model.DacChannel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -36,10 +45,19 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.stream.Collectors.groupingBy;
 
@@ -61,6 +79,72 @@ public class DacChannelUtil {
     @Autowired
     private RestTemplate restTemplate;
 
+    /**
+     * 权限数据过期时间（秒），过期后同步回源；小于等于 0 时不缓存
+     */
+    @Value("${data-auth-center.cache.expire-seconds:600}")
+    private long cacheExpireSeconds;
+
+    /**
+     * 权限数据刷新时间（秒），超过后后台异步刷新，刷新完成前返回旧值
+     */
+    @Value("${data-auth-center.cache.refresh-seconds:60}")
+    private long cacheRefreshSeconds;
+
+    @Value("${data-auth-center.cache.maximum-size:10000}")
+    private long cacheMaximumSize;
+
+    @Value("${data-auth-center.cache.refresh-threads:4}")
+    private int cacheRefreshThreads;
+
+    private LoadingCache<DataKey, Optional<List<Object>>> dataCache;
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    private final AtomicLong dacRequests = new AtomicLong();
+
+    private final AtomicLong dacFailures = new AtomicLong();
+
+    private final AtomicLong dacTotalMillis = new AtomicLong();
+
+    private final AtomicLong dacMaxMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (cacheExpireSeconds <= 0L) {
+            return;
+        }
+
+        int threads = Math.max(1, cacheRefreshThreads);
+        refreshExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1024),
+                new ThreadFactoryBuilder().setNameFormat("Dac-refresh-worker-%d").setDaemon(true).build());
+        refreshExecutor.allowCoreThreadTimeOut(true);
+
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, cacheMaximumSize))
+                .expireAfterWrite(cacheExpireSeconds, TimeUnit.SECONDS)
+                .recordStats();
+        if (cacheRefreshSeconds > 0L && cacheRefreshSeconds < cacheExpireSeconds) {
+            builder.refreshAfterWrite(cacheRefreshSeconds, TimeUnit.SECONDS);
+        }
+
+        // 同一 key 的并发加载由 LoadingCache 合并为一次请求；刷新失败时保留旧值
+        dataCache = builder.build(CacheLoader.asyncReloading(new CacheLoader<DataKey, Optional<List<Object>>>() {
+            @Override
+            public Optional<List<Object>> load(DataKey key) {
+                return Optional.ofNullable(requestData(key.dacName, key.bizId, key.email));
+            }
+        }, refreshExecutor));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (null != refreshExecutor) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
     public void loadDacMap() {
         if (null != channels) {
             Map<String, List<DacChannel>> map = channels.stream()
@@ -71,6 +155,10 @@ public class DacChannelUtil {
                 map.forEach((k, v) -> dacMap.put(k.trim(), v.get(v.size() - 1)));
             }
         }
+
+        if (null != dataCache) {
+            dataCache.invalidateAll();
+        }
     }
 
     public List<DacChannel> getChannels() {
@@ -131,29 +219,102 @@ public class DacChannelUtil {
     }
 
 
+    /**
+     * 获取权限数据，按 (channel, bizId, email) 缓存
+     *
+     * @param dacName
+     * @param bizId
+     * @param email
+     * @return 请求失败时返回 null
+     */
     public List<Object> getData(String dacName, String bizId, String email) {
-        if (dacMap.containsKey(dacName) && !StringUtils.isEmpty(email)) {
-            DacChannel channel = dacMap.get(dacName);
-
-            MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
-            params.add(AUTH_CODE_KEY, channel.getAuthCode());
-            params.add(EMAIL_KEY, email);
+        if (!dacMap.containsKey(dacName) || StringUtils.isEmpty(email)) {
+            return null;
+        }
 
+        if (null == dataCache) {
             try {
-                ResponseEntity<ResultMap> result = restTemplate.getForEntity(UriComponentsBuilder.
-                                fromHttpUrl(channel.getBaseUrl() + "/bizs/{bizId}/data")
-                                .queryParams(params)
-                                .build().toString(),
-                        ResultMap.class, bizId);
-
-                if (result.getStatusCode().equals(HttpStatus.OK)) {
-                    ResultMap resultMap = result.getBody();
-                    return (List<Object>) resultMap.get(PAYLOAD);
-                }
+                return requestData(dacName, bizId, email);
             } catch (RestClientException e) {
-                log.error(e.toString(), e);
+                return null;
             }
         }
-        return null;
+
+        try {
+            return dataCache.getUnchecked(new DataKey(dacName, bizId, email)).orElse(null);
+        } catch (UncheckedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 缓存及 data-auth-center 请求统计
+     *
+     * @return
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        long requests = dacRequests.get();
+        metrics.put("dacRequests", requests);
+        metrics.put("dacFailures", dacFailures.get());
+        metrics.put("dacAvgMillis", requests == 0L ? 0L : dacTotalMillis.get() / requests);
+        metrics.put("dacMaxMillis", dacMaxMillis.get());
+        if (null != dataCache) {
+            CacheStats stats = dataCache.stats();
+            metrics.put("hits", stats.hitCount());
+            metrics.put("misses", stats.missCount());
+            metrics.put("hitRatePercent", Math.round(stats.hitRate() * 100));
+            metrics.put("refreshQueue", (long) refreshExecutor.getQueue().size());
+            metrics.put("size", dataCache.size());
+        }
+        return metrics;
+    }
+
+    /**
+     * 请求 data-auth-center，失败时抛出异常以免缓存失败结果
+     */
+    private List<Object> requestData(String dacName, String bizId, String email) {
+        DacChannel channel = dacMap.get(dacName);
+        if (null == channel) {
+            return null;
+        }
+
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add(AUTH_CODE_KEY, channel.getAuthCode());
+        params.add(EMAIL_KEY, email);
+
+        long start = System.currentTimeMillis();
+        try {
+            ResponseEntity<ResultMap> result = restTemplate.getForEntity(UriComponentsBuilder.
+                            fromHttpUrl(channel.getBaseUrl() + "/bizs/{bizId}/data")
+                            .queryParams(params)
+                            .build().toString(),
+                    ResultMap.class, bizId);
+
+            if (!result.getStatusCode().equals(HttpStatus.OK)) {
+                throw new RestClientException("Data-auth-center channel " + dacName + " response " + result.getStatusCode());
+            }
+
+            ResultMap resultMap = result.getBody();
+            List<Object> payload = null == resultMap ? null : (List<Object>) resultMap.get(PAYLOAD);
+            return null == payload ? null : Collections.unmodifiableList(payload);
+        } catch (RestClientException e) {
+            dacFailures.incrementAndGet();
+            log.error(e.toString(), e);
+            throw e;
+        } finally {
+            long cost = System.currentTimeMillis() - start;
+            dacRequests.incrementAndGet();
+            dacTotalMillis.addAndGet(cost);
+            dacMaxMillis.accumulateAndGet(cost, Math::max);
+        }
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class DataKey {
+        private final String dacName;
+        private final String bizId;
+        private final String email;
     }
 }
@@ -23,6 +23,7 @@ import com.alibaba.druid.util.StringUtils;
 import com.alibaba.fastjson.JSONObject;
 import edp.core.enums.SqlTypeEnum;
 import edp.core.exception.ServerException;
+import edp.core.model.ColumnarResult;
 import edp.core.model.QueryColumn;
 import edp.core.utils.CollectionUtils;
 import edp.core.utils.FileUtils;
@@ -157,7 +158,7 @@ public class ExcelUtils {
      */
     public static void writeSheet(Sheet sheet,
                                   List<QueryColumn> columns,
-                                  List<Map<String, Object>> dataList,
+                                  ColumnarResult data,
                                   SXSSFWorkbook workbook,
                                   boolean containType,
                                   String widgetConfig,
@@ -314,18 +315,22 @@ public class ExcelUtils {
         }
 
         //data
-        for (int i = 0; i < dataList.size(); i++) {
+        int rowCount = null == data ? 0 : data.size();
+        int[] indexes = new int[columns.size()];
+        for (int j = 0; j < indexes.length && rowCount > 0; j++) {
+            indexes[j] = data.indexOf(columns.get(j).getName());
+        }
+        for (int i = 0; i < rowCount; i++) {
             rownum++;
             if (containType) {
                 rownum += 1;
             }
             row = sheet.createRow(rownum);
-            Map<String, Object> map = dataList.get(i);
 
             for (int j = 0; j < columns.size(); j++) {
                 QueryColumn queryColumn = columns.get(j);
                 cellStyle.setDataFormat(format.getFormat("@"));
-                Object obj = map.get(queryColumn.getName());
+                Object obj = indexes[j] < 0 ? null : data.getValue(i, indexes[j]);
                 Cell cell = row.createCell(j);
                 if (null != obj) {
                     if (obj instanceof Number || queryColumn.getType().equals("value")) {
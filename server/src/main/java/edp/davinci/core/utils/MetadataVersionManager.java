@@ -0,0 +1,233 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import edp.core.utils.MD5Util;
+import edp.core.utils.RedisUtils;
+import edp.davinci.core.model.RedisMessageEntity;
+import edp.davinci.service.impl.MetadataVersionMessageHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static edp.core.consts.Consts.COLON;
+import static edp.davinci.core.common.Constants.DAVINCI_TOPIC_CHANNEL;
+
+/**
+ * 元数据版本
+ * widget、view 按实体记录版本，dashboard、display 等聚合数据按项目记录版本，权限相关变更记录全局权限版本
+ * 开启 redis 时版本保存在 redis 中（INCR），集群内各节点一致；本地仅短时缓存，递增时通知其他节点失效
+ * 未开启 redis 时使用节点内以启动时间为起点的递增序列
+ * 版本不存在时以当前时间毫秒数初始化，过期重建后不会与之前的版本重复
+ * 事务中的变更在事务结束后再次递增
+ */
+@Slf4j
+@Component
+public class MetadataVersionManager {
+
+    public static final String PERMISSION = "permission";
+
+    private static final String SYNCHRONIZATION_KEY = MetadataVersionManager.class.getName();
+
+    private static final String REDIS_KEY_PREFIX = "davinci:metadata:version:";
+
+    private static final String GET_SCRIPT = "local v = redis.call('get', KEYS[1]) "
+            + "if not v then redis.call('set', KEYS[1], ARGV[1], 'EX', ARGV[2]) return tonumber(ARGV[1]) end "
+            + "return tonumber(v)";
+
+    private static final String INCR_SCRIPT = "if redis.call('exists', KEYS[1]) == 0 then redis.call('set', KEYS[1], ARGV[1]) end "
+            + "local v = redis.call('incr', KEYS[1]) redis.call('expire', KEYS[1], ARGV[2]) return v";
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Value("${metadata.version.enable:true}")
+    private boolean enable;
+
+    @Value("${metadata.version.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${metadata.version.local-expire-seconds:10}")
+    private long localExpireSeconds;
+
+    @Value("${metadata.version.expire-seconds:604800}")
+    private long expireSeconds;
+
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+
+    private Cache<String, Long> versions;
+
+    @PostConstruct
+    public void init() {
+        if (!enable) {
+            return;
+        }
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(Math.max(1L, maximumSize));
+        if (redisUtils.isRedisEnable()) {
+            builder.expireAfterWrite(Math.max(1L, localExpireSeconds), TimeUnit.SECONDS);
+        } else {
+            builder.expireAfterAccess(Math.max(1L, expireSeconds), TimeUnit.SECONDS);
+        }
+        versions = builder.build();
+    }
+
+    public static String projectKey(Long projectId) {
+        return "project" + COLON + projectId;
+    }
+
+    public static String widgetKey(Long widgetId) {
+        return "widget" + COLON + widgetId;
+    }
+
+    public static String viewKey(Long viewId) {
+        return "view" + COLON + viewId;
+    }
+
+    /**
+     * 获取版本，redis 不可用时返回 null
+     *
+     * @param key
+     * @return
+     */
+    public Long getVersion(String key) {
+        try {
+            return versions.get(key, () -> loadVersion(key));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.warn("Get metadata version error, {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 生成 ETag，包含权限版本、用户及各 key 版本，未启用或版本不可用时返回 null
+     *
+     * @param userId
+     * @param keys
+     * @return
+     */
+    public String getETag(Long userId, String... keys) {
+        if (null == versions) {
+            return null;
+        }
+        Long permissionVersion = getVersion(PERMISSION);
+        if (null == permissionVersion) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder()
+                .append(permissionVersion)
+                .append(COLON).append(userId);
+        for (String key : keys) {
+            Long version = getVersion(key);
+            if (null == version) {
+                return null;
+            }
+            builder.append(COLON).append(key).append(COLON).append(version);
+        }
+        return "\"" + MD5Util.getMD5(builder.toString(), false, 32) + "\"";
+    }
+
+    /**
+     * 递增版本，处于事务中时在事务结束后再次递增
+     *
+     * @param keys
+     */
+    public void bump(String... keys) {
+        if (null == versions) {
+            return;
+        }
+
+        Collection<String> keyList = Arrays.asList(keys);
+        increment(keyList);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(SYNCHRONIZATION_KEY);
+            if (null == pending) {
+                Set<String> keySet = new LinkedHashSet<>();
+                TransactionSynchronizationManager.bindResource(SYNCHRONIZATION_KEY, keySet);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(SYNCHRONIZATION_KEY);
+                        increment(keySet);
+                    }
+                });
+                pending = keySet;
+            }
+            pending.addAll(keyList);
+        }
+    }
+
+    /**
+     * 其他节点递增版本后失效本地缓存
+     *
+     * @param keys
+     */
+    public void invalidateLocal(Collection<String> keys) {
+        if (null == versions) {
+            return;
+        }
+        versions.invalidateAll(keys);
+    }
+
+    private Long loadVersion(String key) {
+        if (!redisUtils.isRedisEnable()) {
+            return sequence.incrementAndGet();
+        }
+        return redisUtils.executeLongScript(GET_SCRIPT, Collections.singletonList(REDIS_KEY_PREFIX + key),
+                System.currentTimeMillis(), expireSeconds);
+    }
+
+    private void increment(Collection<String> keys) {
+        if (!redisUtils.isRedisEnable()) {
+            keys.forEach(key -> versions.put(key, sequence.incrementAndGet()));
+            return;
+        }
+
+        for (String key : keys) {
+            try {
+                Long version = redisUtils.executeLongScript(INCR_SCRIPT, Collections.singletonList(REDIS_KEY_PREFIX + key),
+                        System.currentTimeMillis(), expireSeconds);
+                versions.put(key, version);
+            } catch (Exception e) {
+                log.warn("Increase metadata version error, {}", e.getMessage());
+                versions.invalidate(key);
+            }
+        }
+
+        try {
+            redisUtils.convertAndSend(DAVINCI_TOPIC_CHANNEL,
+                    new RedisMessageEntity(MetadataVersionMessageHandler.class, new ArrayList<>(keys), QueryResultCache.NODE_ID));
+        } catch (Exception e) {
+            log.warn("Publish metadata version error, {}", e.getMessage());
+        }
+    }
+}
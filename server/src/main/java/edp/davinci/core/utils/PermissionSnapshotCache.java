@@ -0,0 +1,292 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import edp.core.utils.RedisUtils;
+import edp.davinci.core.model.RedisMessageEntity;
+import edp.davinci.service.impl.PermissionCacheMessageHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static edp.core.consts.Consts.COLON;
+import static edp.davinci.core.common.Constants.DAVINCI_TOPIC_CHANNEL;
+
+/**
+ * 权限快照缓存
+ * 缓存读取路径上的认证用户、项目详情、用户组织关系、项目管理员、最大权限及 viz 禁用等元数据查询结果，
+ * 用户、角色、关系及项目发生变更时（见 PermissionCacheInterceptor）整体失效；
+ * viz 相关结果按所属项目记录，viz 变更时（见 BaseEntityService.bumpVersion）仅失效该项目，
+ * 事务结束后再次失效并通知其他节点
+ */
+@Slf4j
+@Component
+public class PermissionSnapshotCache {
+
+    public static final String ALL = "all";
+
+    private static final String SYNCHRONIZATION_KEY = PermissionSnapshotCache.class.getName();
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Value("${permission.cache.enable:true}")
+    private boolean enable;
+
+    @Value("${permission.cache.expire-seconds:300}")
+    private long expireSeconds;
+
+    @Value("${permission.cache.maximum-size:20000}")
+    private long maximumSize;
+
+    private Cache<String, Entry> cache;
+
+    /**
+     * 每次失效递增，加载期间发生失效的结果不写入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enable || expireSeconds <= 0L) {
+            return;
+        }
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, maximumSize))
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public static String key(Object... parts) {
+        StringBuilder builder = new StringBuilder();
+        for (Object part : parts) {
+            if (builder.length() > 0) {
+                builder.append(COLON);
+            }
+            builder.append(part);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 获取缓存，未命中时加载，加载结果可为 null
+     *
+     * @param key
+     * @param loader
+     * @return
+     */
+    public <T> T get(String key, Supplier<T> loader) {
+        if (null == cache) {
+            return loader.get();
+        }
+
+        return load(key, () -> new Entry(loader.get(), null));
+    }
+
+    /**
+     * 获取项目内 viz 相关缓存，未命中时加载，按 projectOf 记录所属项目，项目内 viz 变更时失效
+     * 结果为 null 时不缓存，避免之后创建的实体读取到 null
+     *
+     * @param key
+     * @param loader
+     * @param projectOf 加载结果所属项目 id
+     * @return
+     */
+    public <T> T get(String key, Supplier<T> loader, Function<T, Long> projectOf) {
+        if (null == cache) {
+            return loader.get();
+        }
+
+        T value = load(key, () -> {
+            T loaded = loader.get();
+            return new Entry(loaded, null == loaded ? null : projectOf.apply(loaded));
+        });
+        if (null == value) {
+            cache.invalidate(key);
+        }
+        return value;
+    }
+
+    private <T> T load(String key, Callable<Entry> loader) {
+        long current = generation.get();
+        try {
+            Entry entry = cache.get(key, loader);
+            if (generation.get() != current) {
+                cache.invalidate(key);
+            }
+            return (T) entry.value;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * 获取只读列表缓存
+     */
+    public <T> List<T> getList(String key, Supplier<List<T>> loader) {
+        return get(key, () -> {
+            List<T> list = loader.get();
+            return null == list ? null : Collections.unmodifiableList(list);
+        });
+    }
+
+    /**
+     * 获取项目内 viz 相关的只读列表缓存
+     */
+    public <T> List<T> getList(String key, Supplier<List<T>> loader, Function<List<T>, Long> projectOf) {
+        return get(key, () -> {
+            List<T> list = loader.get();
+            return null == list ? null : Collections.unmodifiableList(list);
+        }, projectOf);
+    }
+
+    /**
+     * 失效所有节点的缓存
+     * 处于事务中时，在事务结束后再失效一次，避免期间读取到未提交前的数据
+     */
+    public void invalidateAll() {
+        invalidate(ALL);
+    }
+
+    /**
+     * 失效所有节点上该项目的 viz 相关缓存，事务处理同 invalidateAll
+     *
+     * @param projectId
+     */
+    public void invalidateProject(Long projectId) {
+        if (null != projectId) {
+            invalidate(projectId);
+        }
+    }
+
+    /**
+     * 失效本节点缓存
+     *
+     * @param scope ALL 或项目 id
+     */
+    public void invalidateLocal(Object scope) {
+        if (null == cache) {
+            return;
+        }
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        if (scope instanceof Number) {
+            long projectId = ((Number) scope).longValue();
+            cache.asMap().values().removeIf(entry -> null != entry.projectId && entry.projectId == projectId);
+        } else {
+            cache.invalidateAll();
+        }
+    }
+
+    private void invalidate(Object scope) {
+        if (null == cache) {
+            return;
+        }
+
+        invalidateLocal(scope);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<Object> pending = (Set<Object>) TransactionSynchronizationManager.getResource(SYNCHRONIZATION_KEY);
+            if (null == pending) {
+                Set<Object> scopes = new LinkedHashSet<>();
+                TransactionSynchronizationManager.bindResource(SYNCHRONIZATION_KEY, scopes);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(SYNCHRONIZATION_KEY);
+                        Set<Object> completed = scopes.contains(ALL) ? Collections.singleton(ALL) : scopes;
+                        completed.forEach(s -> {
+                            invalidateLocal(s);
+                            publish(s);
+                        });
+                    }
+                });
+                pending = scopes;
+            }
+            pending.add(scope);
+            return;
+        }
+
+        publish(scope);
+    }
+
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("invalidations", invalidations.get());
+        if (null != cache) {
+            metrics.put("hits", cache.stats().hitCount());
+            metrics.put("misses", cache.stats().missCount());
+            metrics.put("size", cache.size());
+        }
+        return metrics;
+    }
+
+    private void publish(Object scope) {
+        if (!redisUtils.isRedisEnable()) {
+            return;
+        }
+        try {
+            redisUtils.convertAndSend(DAVINCI_TOPIC_CHANNEL,
+                    new RedisMessageEntity(PermissionCacheMessageHandler.class, scope, QueryResultCache.NODE_ID));
+        } catch (Exception e) {
+            log.warn("Publish permission cache invalidation error, {}", e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+
+        /**
+         * 所属项目，为 null 时仅随整体失效
+         */
+        private final Long projectId;
+
+        private Entry(Object value, Long projectId) {
+            this.value = value;
+            this.projectId = projectId;
+        }
+    }
+}
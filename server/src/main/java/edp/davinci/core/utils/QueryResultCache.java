@@ -0,0 +1,233 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edp.core.model.PaginateWithQueryColumns;
+import edp.core.utils.RedisUtils;
+import edp.davinci.core.model.RedisMessageEntity;
+import edp.davinci.service.impl.QueryCacheMessageHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static edp.davinci.core.common.Constants.DAVINCI_TOPIC_CHANNEL;
+
+/**
+ * 查询结果两级缓存
+ * L1: 进程内按估算大小限制容量的缓存
+ * L2: redis，未开启 redis 时仅使用 L1
+ * 写入时通过 DAVINCI_TOPIC_CHANNEL 通知其他节点失效本地缓存
+ */
+@Slf4j
+@Component
+public class QueryResultCache {
+
+    /**
+     * 当前节点标识，用于忽略自身发布的失效消息
+     */
+    public static final String NODE_ID = UUID.randomUUID().toString();
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Value("${source.cache.local-enable:true}")
+    private boolean localEnable;
+
+    @Value("${source.cache.local-max-megabytes:256}")
+    private long localMaxMegabytes;
+
+    private Cache<String, CacheEntry> localCache;
+
+    private final AtomicLong localHits = new AtomicLong();
+
+    private final AtomicLong remoteHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!localEnable) {
+            return;
+        }
+        localCache = CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(1L, localMaxMegabytes) * 1024L)
+                .weigher((String key, CacheEntry entry) -> entry.weight)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取缓存，L1 未命中时读取 L2 并回填 L1
+     *
+     * @param key
+     * @param expired L2 回填 L1 时的最长过期时间（秒），实际取 L2 剩余有效期
+     * @return
+     */
+    public Object get(String key, long expired) {
+        if (null != localCache) {
+            CacheEntry entry = localCache.getIfPresent(key);
+            if (null != entry) {
+                if (entry.expireAt > System.currentTimeMillis()) {
+                    localHits.incrementAndGet();
+                    return entry.value;
+                }
+                localCache.invalidate(key);
+            }
+        }
+
+        Object value = redisUtils.getQueryResult(key);
+        if (null == value) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        remoteHits.incrementAndGet();
+        if (null != localCache) {
+            // 按 L2 剩余有效期回填，避免 L1 比 L2 存活更久
+            Long ttl = redisUtils.getQueryResultExpire(key);
+            if (null != ttl && ttl > 0L) {
+                putLocal(key, value, Math.min(ttl, expired));
+            } else if (null != ttl && ttl == -1L) {
+                putLocal(key, value, expired);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 写入缓存，并通知其他节点失效本地缓存
+     *
+     * @param key
+     * @param value
+     * @param expired 过期时间（秒）
+     */
+    public void set(String key, Object value, long expired) {
+        putLocal(key, value, expired);
+        if (redisUtils.setQueryResult(key, value, expired, TimeUnit.SECONDS)) {
+            try {
+                redisUtils.convertAndSend(DAVINCI_TOPIC_CHANNEL, new RedisMessageEntity(QueryCacheMessageHandler.class, key, NODE_ID));
+            } catch (Exception e) {
+                log.warn("Publish query cache invalidation error, {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 删除缓存，并通知其他节点失效本地缓存
+     *
+     * @param key
+     */
+    public void invalidate(String key) {
+        invalidateLocal(key);
+        if (redisUtils.isRedisEnable()) {
+            redisUtils.deleteQueryResult(key);
+            try {
+                redisUtils.convertAndSend(DAVINCI_TOPIC_CHANNEL, new RedisMessageEntity(QueryCacheMessageHandler.class, key, NODE_ID));
+            } catch (Exception e) {
+                log.warn("Publish query cache invalidation error, {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 失效本地缓存
+     *
+     * @param key
+     */
+    public void invalidateLocal(String key) {
+        if (null != localCache) {
+            localCache.invalidate(key);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * 缓存统计
+     *
+     * @return
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("localHits", localHits.get());
+        metrics.put("remoteHits", remoteHits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("invalidations", invalidations.get());
+        if (null != localCache) {
+            metrics.put("evictions", localCache.stats().evictionCount());
+            metrics.put("size", localCache.size());
+        }
+        return metrics;
+    }
+
+    private void putLocal(String key, Object value, long expired) {
+        if (null == localCache || null == value || expired <= 0L) {
+            return;
+        }
+        long bytes = estimateSize(value);
+        localCache.put(key, new CacheEntry(value, System.currentTimeMillis() + expired * 1000L,
+                (int) Math.min(Integer.MAX_VALUE, Math.max(1L, bytes / 1024L))));
+    }
+
+    private static long estimateSize(Object value) {
+        if (value instanceof PaginateWithQueryColumns) {
+            PaginateWithQueryColumns paginate = (PaginateWithQueryColumns) value;
+            if (null != paginate.getData()) {
+                return paginate.getData().estimateSize();
+            }
+            return estimateSize(paginate.getResultList());
+        }
+        if (value instanceof List) {
+            List list = (List) value;
+            if (list.isEmpty()) {
+                return 64L;
+            }
+            Object first = list.get(0);
+            int columns = first instanceof Map ? ((Map) first).size() : first instanceof Collection ? ((Collection) first).size() : 1;
+            return 64L + list.size() * (64L + columns * 64L);
+        }
+        return 1024L;
+    }
+
+    private static final class CacheEntry {
+        private final Object value;
+        private final long expireAt;
+        private final int weight;
+
+        private CacheEntry(Object value, long expireAt, int weight) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.weight = weight;
+        }
+    }
+}
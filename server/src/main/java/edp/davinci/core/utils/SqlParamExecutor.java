@@ -0,0 +1,149 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edp.core.exception.ServerException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 解析 view 变量（查询变量默认值、权限变量取值）的共享线程池
+ * 有界队列，队列满时由调用线程执行；整体超时后取消剩余任务
+ */
+@Slf4j
+@Component
+public class SqlParamExecutor {
+
+    @Value("${source.param-executor.pool-size:16}")
+    private int poolSize;
+
+    @Value("${source.param-executor.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${source.param-executor.timeout-millis:30000}")
+    private long timeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong submitted = new AtomicLong();
+
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(poolSize, poolSize,
+                60_000, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("Sql-param-worker-%d").setDaemon(true).build(),
+                (r, e) -> {
+                    callerRuns.incrementAndGet();
+                    if (!e.isShutdown()) {
+                        r.run();
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 并行执行任务，按提交顺序返回结果
+     * 单个任务直接在当前线程执行
+     *
+     * @param tasks
+     * @param <T>
+     * @return
+     * @throws ServerException 任务失败或超时
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) throws ServerException {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.size() == 1) {
+            try {
+                results.add(tasks.get(0).call());
+                return results;
+            } catch (ServerException e) {
+                failures.incrementAndGet();
+                throw e;
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                throw new ServerException(e.getMessage(), e);
+            }
+        }
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+                submitted.incrementAndGet();
+            }
+
+            for (Future<T> future : futures) {
+                long remaining = deadline - System.currentTimeMillis();
+                results.add(future.get(Math.max(remaining, 0L), TimeUnit.MILLISECONDS));
+            }
+            return results;
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            futures.forEach(future -> future.cancel(true));
+            throw new ServerException("Resolve sql params timeout");
+        } catch (ExecutionException e) {
+            failures.incrementAndGet();
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = null == e.getCause() ? e : e.getCause();
+            throw new ServerException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ServerException("Resolve sql params is interrupted");
+        }
+    }
+
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("submitted", submitted.get());
+        metrics.put("callerRuns", callerRuns.get());
+        metrics.put("timeouts", timeouts.get());
+        metrics.put("failures", failures.get());
+        metrics.put("active", (long) executor.getActiveCount());
+        metrics.put("poolSize", (long) executor.getPoolSize());
+        metrics.put("largestPoolSize", (long) executor.getLargestPoolSize());
+        metrics.put("queueSize", (long) executor.getQueue().size());
+        metrics.put("completed", executor.getCompletedTaskCount());
+        return metrics;
+    }
+}
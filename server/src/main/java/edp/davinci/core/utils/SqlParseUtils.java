@@ -69,6 +69,9 @@ public class SqlParseUtils {
     @Autowired
     private DacChannelUtil dacChannelUtil;
 
+    @Autowired
+    private SqlParamExecutor sqlParamExecutor;
+
     /**
      * 解析sql
      *
@@ -86,7 +89,7 @@ public class SqlParseUtils {
 
         sqlStr = replaceSystemVariables(sqlStr, user, isMaintainer);
 
-        Pattern p = Pattern.compile(getPlaceholderReg(sqlTempDelimiter));
+        Pattern p = SqlPlanCache.getPattern(getPlaceholderReg(sqlTempDelimiter));
         Matcher matcher = p.matcher(sqlStr);
 
         if (!matcher.find()) {
@@ -98,41 +101,26 @@ public class SqlParseUtils {
 
         // 解析参数
         if (!CollectionUtils.isEmpty(variables)) {
-            ExecutorService executorService = Executors.newFixedThreadPool(variables.size() > 4 ? 4 : variables.size());
-            try {
-                List<Future> futures = new ArrayList<>(variables.size());
-                variables.forEach(variable -> futures.add(executorService.submit(() -> {
-                    SqlVariableTypeEnum typeEnum = SqlVariableTypeEnum.typeOf(variable.getType());
-                    if (null != typeEnum) {
-                        switch (typeEnum) {
-                            case QUERYVAR:
-                                queryParamMap.put(variable.getName().trim(), SqlVariableValueTypeEnum
-                                        .getValues(variable.getValueType(), variable.getDefaultValues(), variable.isUdf()));
-                                break;
-                            case AUTHVAR:
-                                if (null != variable) {
-                                    List<String> v = getAuthVarValue(variable, null);
-                                    authParamMap.put(variable.getName().trim(), null == v ? new ArrayList<>() : v);
-                                }
-                                break;
-                        }
-                    }
-                })));
-
-                try {
-                    for (Future future : futures) {
-                        future.get();
+            List<Callable<Void>> tasks = new ArrayList<>(variables.size());
+            variables.forEach(variable -> tasks.add(() -> {
+                SqlVariableTypeEnum typeEnum = SqlVariableTypeEnum.typeOf(variable.getType());
+                if (null != typeEnum) {
+                    switch (typeEnum) {
+                        case QUERYVAR:
+                            queryParamMap.put(variable.getName().trim(), SqlVariableValueTypeEnum
+                                    .getValues(variable.getValueType(), variable.getDefaultValues(), variable.isUdf()));
+                            break;
+                        case AUTHVAR:
+                            if (null != variable) {
+                                List<String> v = getAuthVarValue(variable, null);
+                                authParamMap.put(variable.getName().trim(), null == v ? new ArrayList<>() : v);
+                            }
+                            break;
                     }
-                } catch (ExecutionException e) {
-                    executorService.shutdownNow();
-                    throw new ServerException(e.getMessage());
                 }
-
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            } finally {
-                executorService.shutdown();
-            }
+                return null;
+            }));
+            sqlParamExecutor.invokeAll(tasks);
         }
         return new SqlEntity(sqlStr, queryParamMap, authParamMap);
     }
@@ -175,7 +163,7 @@ public class SqlParseUtils {
         Deque<String> deque = new ArrayDeque<>();
         deque.push(sql);
 
-        Pattern p = Pattern.compile(getAuthVarReg(sqlTempDelimiter));
+        Pattern p = SqlPlanCache.getPattern(getAuthVarReg(sqlTempDelimiter));
         Set<String> authVarFragments = new HashSet<>();
         while (!deque.isEmpty()) {
             Matcher matcher = p.matcher(deque.pop());
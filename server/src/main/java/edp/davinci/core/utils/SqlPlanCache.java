@@ -0,0 +1,212 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.core.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edp.core.utils.CollectionUtils;
+import edp.core.utils.SqlUtils;
+import edp.davinci.core.common.Constants;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+import org.stringtemplate.v4.STGroup;
+import org.stringtemplate.v4.STGroupFile;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 查询构建过程的预编译缓存
+ * 包括 sql 模板组、界定符正则、已解析 sql 的 AST 结果（from/join 前缀、count sql）
+ * 解析结果以渲染后的 sql 文本为键，view 变更后 sql 不同自然不会命中旧结果
+ */
+@Slf4j
+public class SqlPlanCache {
+
+    private static final int MAX_STATEMENT_PLANS = 2048;
+
+    private static final long EXPIRE_MINUTES = 30L;
+
+    private static volatile STGroup sqlTemplateGroup;
+
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+    private static final Cache<String, StatementPlan> STATEMENT_PLANS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_STATEMENT_PLANS)
+            .expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+
+    /**
+     * 获取共享的 sql 模板组，仅加载一次
+     * 模板组加载完成后只读，每次渲染仍需 getInstanceOf 获取新的 ST 实例
+     *
+     * @return
+     */
+    public static STGroup getSqlTemplateGroup() {
+        if (null == sqlTemplateGroup) {
+            synchronized (SqlPlanCache.class) {
+                if (null == sqlTemplateGroup) {
+                    STGroup stg = new STGroupFile(Constants.SQL_TEMPLATE);
+                    stg.load();
+                    sqlTemplateGroup = stg;
+                }
+            }
+        }
+        return sqlTemplateGroup;
+    }
+
+    /**
+     * 获取已编译的正则
+     *
+     * @param regex
+     * @return
+     */
+    public static Pattern getPattern(String regex) {
+        return PATTERNS.computeIfAbsent(regex, Pattern::compile);
+    }
+
+    /**
+     * 获取 sql 解析结果，相同 sql 只解析一次
+     *
+     * @param sql
+     * @return
+     */
+    public static StatementPlan getStatementPlan(String sql) {
+        StatementPlan plan = STATEMENT_PLANS.getIfPresent(sql);
+        if (null == plan) {
+            plan = new StatementPlan(sql);
+            STATEMENT_PLANS.put(sql, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * 缓存统计
+     *
+     * @return
+     */
+    public static Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("statementPlans", STATEMENT_PLANS.size());
+        metrics.put("hits", STATEMENT_PLANS.stats().hitCount());
+        metrics.put("misses", STATEMENT_PLANS.stats().missCount());
+        metrics.put("evictions", STATEMENT_PLANS.stats().evictionCount());
+        metrics.put("patterns", (long) PATTERNS.size());
+        return metrics;
+    }
+
+    /**
+     * 单条 sql 的解析结果
+     */
+    @Getter
+    public static class StatementPlan {
+
+        private final boolean select;
+
+        /**
+         * 最外层查询是否有 ORDER BY
+         */
+        private final boolean ordered;
+
+        /**
+         * 最外层查询是否已有 LIMIT/OFFSET/FETCH/TOP
+         */
+        private final boolean limited;
+
+        private final Set<String> queryFromsAndJoins;
+
+        private final String countSql;
+
+        /**
+         * 是否为单表、无 JOIN/GROUP BY/DISTINCT/聚合 的查询，仅此类查询可用执行计划估算总数
+         */
+        private final boolean countEstimable;
+
+        StatementPlan(String sql) {
+            Statement statement = null;
+            try {
+                statement = CCJSqlParserUtil.parse(sql);
+            } catch (JSQLParserException e) {
+                log.debug(e.getMessage(), e);
+            }
+
+            this.select = statement instanceof Select;
+            if (this.select) {
+                SelectBody selectBody = ((Select) statement).getSelectBody();
+                if (selectBody instanceof PlainSelect) {
+                    PlainSelect plainSelect = (PlainSelect) selectBody;
+                    this.ordered = !CollectionUtils.isEmpty(plainSelect.getOrderByElements());
+                    this.limited = null != plainSelect.getLimit() || null != plainSelect.getOffset()
+                            || null != plainSelect.getFetch() || null != plainSelect.getTop();
+                    this.countEstimable = isCountEstimable(plainSelect);
+                } else if (selectBody instanceof SetOperationList) {
+                    SetOperationList setOperationList = (SetOperationList) selectBody;
+                    this.ordered = !CollectionUtils.isEmpty(setOperationList.getOrderByElements());
+                    this.limited = null != setOperationList.getLimit() || null != setOperationList.getOffset()
+                            || null != setOperationList.getFetch();
+                    this.countEstimable = false;
+                } else {
+                    this.ordered = false;
+                    this.limited = false;
+                    this.countEstimable = false;
+                }
+                // 先提取前缀，生成 count sql 时会修改 AST
+                this.queryFromsAndJoins = Collections.unmodifiableSet(SqlUtils.getQueryFromsAndJoins((Select) statement));
+                this.countSql = SqlUtils.getCountSql((Select) statement, sql);
+            } else {
+                this.ordered = false;
+                this.limited = false;
+                this.countEstimable = false;
+                this.queryFromsAndJoins = Collections.emptySet();
+                this.countSql = SqlUtils.getCountSql(null, sql);
+            }
+        }
+
+        private static boolean isCountEstimable(PlainSelect plainSelect) {
+            if (!(plainSelect.getFromItem() instanceof Table)
+                    || !CollectionUtils.isEmpty(plainSelect.getJoins())
+                    || !CollectionUtils.isEmpty(plainSelect.getGroupByColumnReferences())
+                    || null != plainSelect.getDistinct()
+                    || null != plainSelect.getHaving()) {
+                return false;
+            }
+            if (null != plainSelect.getSelectItems()) {
+                for (SelectItem item : plainSelect.getSelectItems()) {
+                    if (item instanceof SelectExpressionItem && ((SelectExpressionItem) item).getExpression() instanceof Function) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
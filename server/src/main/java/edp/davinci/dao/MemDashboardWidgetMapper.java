@@ -40,6 +40,9 @@ public interface MemDashboardWidgetMapper {
     })
     MemDashboardWidget getById(@Param("id") Long id);
 
+    @Select({"select * from mem_dashboard_widget where id > #{lastId} order by id limit #{limit}"})
+    List<MemDashboardWidget> getPageAfterId(@Param("lastId") Long lastId, @Param("limit") int limit);
+
     @Update({
             "update mem_dashboard_widget",
             "set alias = #{alias,jdbcType=VARCHAR},",
@@ -110,4 +110,6 @@ public interface ViewMapper {
     Set<View> selectByWidgetIds(@Param("widgetIds") Set<Long> widgetIds);
 
     Set<SimpleView> selectSimpleByWidgetIds(@Param("widgetIds") Set<Long> widgetIds);
+
+    Set<SimpleView> selectSimpleByIds(@Param("ids") Set<Long> ids);
 }
\ No newline at end of file
@@ -43,6 +43,9 @@ public interface WidgetMapper {
     @Select({"select * from widget where id = #{id}"})
     Widget getById(@Param("id") Long id);
 
+    @Select({"select * from widget where id > #{lastId} order by id limit #{limit}"})
+    List<Widget> getPageAfterId(@Param("lastId") Long lastId, @Param("limit") int limit);
+
     @Select({"select id, name, description, view_id, type, config from widget where id = #{id}"})
     SimpleShareWidget getShareWidgetById(@Param("id") Long id);
 
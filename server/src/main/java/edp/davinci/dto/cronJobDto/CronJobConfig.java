@@ -35,5 +35,6 @@ public class CronJobConfig {
     private String webHookUrl;
 
     private Integer imageWidth;
+    private String fileFormat;
     private List<CronJobContent> contentList;
 }
@@ -0,0 +1,35 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.dto.dashboardDto;
+
+import edp.davinci.model.Dashboard;
+import edp.davinci.model.DashboardPortal;
+import edp.davinci.model.Widget;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DashboardBootstrap {
+    private DashboardPortal portal;
+    private List<Dashboard> dashboards;
+    private DashboardWithMem dashboard;
+    private List<Widget> widgets;
+}
@@ -25,6 +25,7 @@ import java.util.Set;
 
 @Data
 public class ConcurrencyQueryFactor {
+    private Long sourceId;
     private boolean isDistinct;
     private List<String> sqlList;
 
@@ -39,6 +40,7 @@ public class ConcurrencyQueryFactor {
     }
 
     public static final class ConcurrencyQueryFactorBuilder {
+        private Long sourceId;
         private boolean isDistinct;
         private List<String> sqlList;
         private Integer pageNo;
@@ -47,6 +49,11 @@ public class ConcurrencyQueryFactor {
         private Integer limit;
         private Set<String> excludeColumns;
 
+        public ConcurrencyQueryFactorBuilder withSourceId(Long sourceId) {
+            this.sourceId = sourceId;
+            return this;
+        }
+
         public ConcurrencyQueryFactorBuilder withIsDistinct(boolean isDistinct) {
             this.isDistinct = isDistinct;
             return this;
@@ -84,6 +91,7 @@ public class ConcurrencyQueryFactor {
 
         public ConcurrencyQueryFactor build() {
             ConcurrencyQueryFactor concurrencyQueryFactor = new ConcurrencyQueryFactor();
+            concurrencyQueryFactor.setSourceId(sourceId);
             concurrencyQueryFactor.setSqlList(sqlList);
             concurrencyQueryFactor.setPageNo(pageNo);
             concurrencyQueryFactor.setPageSize(pageSize);
@@ -20,6 +20,7 @@
 package edp.davinci.runner;
 
 import com.alibaba.druid.util.StringUtils;
+import edp.davinci.common.utils.ScriptUtils;
 import edp.davinci.core.utils.DacChannelUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +51,9 @@ public class CheckConfigRunner implements ApplicationRunner {
     @Value("${spring.mail.nickname}")
     private String nickName;
 
+    @Value("${script.mode:verify}")
+    private String scriptMode;
+
 
     @Autowired
     private ApplicationContext applicationContext;
@@ -81,5 +85,7 @@ public class CheckConfigRunner implements ApplicationRunner {
         }
 
         dacChannelUtil.loadDacMap();
+
+        ScriptUtils.setMode(ScriptUtils.ScriptMode.modeOf(scriptMode));
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.runner;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import edp.core.utils.CollectionUtils;
+import edp.davinci.common.utils.ScriptUtils;
+import edp.davinci.common.utils.ScriptVerifyCase;
+import edp.davinci.core.utils.ExcelUtils;
+import edp.davinci.core.utils.VizUtils;
+import edp.davinci.dao.DashboardMapper;
+import edp.davinci.dao.MemDashboardWidgetMapper;
+import edp.davinci.dao.ViewMapper;
+import edp.davinci.dao.WidgetMapper;
+import edp.davinci.dto.viewDto.SimpleView;
+import edp.davinci.dto.viewDto.ViewExecuteParam;
+import edp.davinci.model.Dashboard;
+import edp.davinci.model.MemDashboardWidget;
+import edp.davinci.model.Widget;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 执行参数及表头的 java 实现与 js 脚本对比任务
+ * script.verify-job.enable 为 true 时在启动后执行一次，按 widget 单独查看及看板中下载两种方式，
+ * 对库中所有 widget 比较两种实现的结果，汇总及差异写入日志
+ * 配置 script.verify-job.fixture-dir 时同时将每个用例导出为 json，可作为 ScriptUtils 回放测试的 fixture
+ */
+@Slf4j
+@Order(5)
+@Component
+public class ScriptVerifyRunner implements ApplicationRunner {
+
+    private static final int PAGE_SIZE = 200;
+
+    @Value("${script.verify-job.enable:false}")
+    private boolean enable;
+
+    @Value("${script.verify-job.fixture-dir:}")
+    private String fixtureDir;
+
+    @Autowired
+    private WidgetMapper widgetMapper;
+
+    @Autowired
+    private MemDashboardWidgetMapper memDashboardWidgetMapper;
+
+    @Autowired
+    private DashboardMapper dashboardMapper;
+
+    @Autowired
+    private ViewMapper viewMapper;
+
+    private int comparisons;
+
+    private int fallbacks;
+
+    private int mismatches;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enable) {
+            return;
+        }
+        Thread thread = new Thread(this::verify, "script-verify");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void verify() {
+        log.info("Script verify job start, fixtureDir:{}", fixtureDir);
+        try {
+            // widget 单独查看
+            long lastId = 0L;
+            List<Widget> widgets;
+            while (!(widgets = widgetMapper.getPageAfterId(lastId, PAGE_SIZE)).isEmpty()) {
+                for (Widget widget : widgets) {
+                    verify("widget-" + widget.getId(), null, widget, null);
+                }
+                lastId = widgets.get(widgets.size() - 1).getId();
+            }
+
+            // 看板中的 widget
+            Map<Long, Dashboard> dashboards = new HashMap<>();
+            lastId = 0L;
+            List<MemDashboardWidget> memDashboardWidgets;
+            while (!(memDashboardWidgets = memDashboardWidgetMapper.getPageAfterId(lastId, PAGE_SIZE)).isEmpty()) {
+                for (MemDashboardWidget memDashboardWidget : memDashboardWidgets) {
+                    Widget widget = widgetMapper.getById(memDashboardWidget.getWidgetId());
+                    Dashboard dashboard = dashboards.computeIfAbsent(memDashboardWidget.getDashboardId(), dashboardMapper::getById);
+                    if (widget != null && dashboard != null) {
+                        verify("dashboard-widget-" + memDashboardWidget.getId(), dashboard, widget, memDashboardWidget.getId());
+                    }
+                }
+                lastId = memDashboardWidgets.get(memDashboardWidgets.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            log.error("Script verify job error", e);
+        }
+        log.info("Script verify job finish, comparisons:{}, fallbacks:{}, mismatches:{}", comparisons, fallbacks, mismatches);
+    }
+
+    private void verify(String name, Dashboard dashboard, Widget widget, Long relationId) {
+        ScriptVerifyCase verifyCase = new ScriptVerifyCase();
+        verifyCase.setName(name);
+        verifyCase.setDashboardConfig(dashboard != null ? dashboard.getConfig() : null);
+        verifyCase.setWidgetConfig(widget.getConfig());
+        verifyCase.setViews(new ArrayList<>(getViews(dashboard, widget)));
+        verifyCase.setRelationId(relationId);
+
+        ScriptUtils.Comparison comparison = ScriptUtils.compareViewExecuteParam(verifyCase.getDashboardConfig(),
+                verifyCase.getWidgetConfig(), new LinkedHashSet<>(verifyCase.getViews()), relationId);
+        record(name, "executeParam", comparison);
+
+        if (ExcelUtils.isTable(widget.getConfig()) && !comparison.isScriptFailed() && !comparison.isFallback()) {
+            // 与下载一致，表头参数取自执行参数
+            ViewExecuteParam executeParam = JSONObject.parseObject(comparison.getScriptResult(), ViewExecuteParam.class);
+            verifyCase.setParams(executeParam != null && executeParam.getParams() != null ? executeParam.getParams() : new ArrayList<>());
+            record(name, "header", ScriptUtils.compareHeader(verifyCase.getWidgetConfig(), verifyCase.getParams()));
+        }
+
+        writeFixture(verifyCase);
+    }
+
+    private Set<SimpleView> getViews(Dashboard dashboard, Widget widget) {
+        Set<SimpleView> views = new LinkedHashSet<>();
+        if (dashboard != null) {
+            Map<String, Object> dashboardConfig = JSON.parseObject(dashboard.getConfig(), Map.class);
+            if (!CollectionUtils.isEmpty(dashboardConfig)) {
+                views.addAll(VizUtils.getControllerViews((List<Map<String, Object>>) dashboardConfig.get("filters")));
+            }
+        }
+        Map<String, Object> widgetConfig = JSON.parseObject(widget.getConfig(), Map.class);
+        if (!CollectionUtils.isEmpty(widgetConfig)) {
+            views.addAll(VizUtils.getControllerViews((List<Map<String, Object>>) widgetConfig.get("controls")));
+        }
+        SimpleView view = viewMapper.getSimpleViewById(widget.getViewId());
+        if (view != null) {
+            views.add(view);
+        }
+        return views;
+    }
+
+    private void record(String name, String function, ScriptUtils.Comparison comparison) {
+        comparisons++;
+        if (comparison.isFallback()) {
+            fallbacks++;
+            log.info("Script verify {} {} falls back to script: {}", name, function, comparison.getNativeResult());
+        } else if (!comparison.isMatched()) {
+            mismatches++;
+            log.warn("Script verify {} {} differs, native: {}, script: {}", name, function,
+                    comparison.getNativeResult(), comparison.getScriptResult());
+        }
+    }
+
+    private void writeFixture(ScriptVerifyCase verifyCase) {
+        if (StringUtils.isEmpty(fixtureDir)) {
+            return;
+        }
+        try {
+            Path dir = Paths.get(fixtureDir);
+            Files.createDirectories(dir);
+            Files.write(dir.resolve(verifyCase.getName() + ".json"),
+                    JSON.toJSONString(verifyCase, SerializerFeature.PrettyFormat).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.warn("Script verify write fixture {} error: {}", verifyCase.getName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.schedule;
+
+import edp.davinci.common.utils.ScriptUtils;
+import edp.davinci.core.utils.ConcurrencyQueryUtils;
+import edp.davinci.core.utils.DacChannelUtil;
+import edp.davinci.core.utils.PermissionSnapshotCache;
+import edp.davinci.core.utils.QueryResultCache;
+import edp.davinci.core.utils.SqlParamExecutor;
+import edp.davinci.core.utils.SqlPlanCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定期输出查询链路各组件的运行统计
+ */
+@Slf4j
+@Component
+public class MetricsSchedule {
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private SqlParamExecutor sqlParamExecutor;
+
+    @Autowired
+    private DacChannelUtil dacChannelUtil;
+
+    @Autowired
+    private PermissionSnapshotCache permissionSnapshotCache;
+
+    @Value("${metrics.log-enable:true}")
+    private boolean logEnable;
+
+    @Scheduled(initialDelayString = "${metrics.log-interval-millis:300000}", fixedDelayString = "${metrics.log-interval-millis:300000}")
+    public void logMetrics() {
+        if (!logEnable) {
+            return;
+        }
+        log.info("Concurrency query metrics: {}", ConcurrencyQueryUtils.getMetrics());
+        log.info("Query result cache metrics: {}", queryResultCache.getMetrics());
+        log.info("Sql plan cache metrics: {}", SqlPlanCache.getMetrics());
+        log.info("Sql param executor metrics: {}", sqlParamExecutor.getMetrics());
+        log.info("Data auth center metrics: {}", dacChannelUtil.getMetrics());
+        log.info("Script metrics: {}", ScriptUtils.getMetrics());
+        log.info("Permission snapshot cache metrics: {}", permissionSnapshotCache.getMetrics());
+    }
+}
@@ -44,4 +44,6 @@ public interface DashboardPortalService extends CheckEntityService {
     List<Long> getExcludeRoles(Long id);
 
     boolean postPortalVisibility(Role role, VizVisibility vizVisibility, User user) throws NotFoundException, UnAuthorizedException, ServerException;
+
+    Long getProjectId(Long id);
 }
@@ -40,6 +40,8 @@ public interface DashboardService extends CheckEntityService {
 
     DashboardWithMem getDashboardMemWidgets(Long portalId, Long dashboardId, User user) throws NotFoundException, UnAuthorizedException, ServerException;
 
+    DashboardBootstrap getDashboardBootstrap(Long portalId, Long dashboardId, User user) throws NotFoundException, UnAuthorizedException, ServerException;
+
     Dashboard createDashboard(DashboardCreate dashboardCreate, User user) throws NotFoundException, UnAuthorizedException, ServerException;
 
     void updateDashboards(Long portalId, DashboardDto[] dashboards, User user) throws NotFoundException, UnAuthorizedException, ServerException;
@@ -53,4 +53,6 @@ public interface DisplayService extends CheckEntityService {
     boolean postDisplayVisibility(Role role, VizVisibility vizVisibility, User user) throws NotFoundException, UnAuthorizedException, ServerException;
 
     Display copyDisplay(Long id, DisplayCopy copy, User user) throws NotFoundException, UnAuthorizedException, ServerException;
+
+    Long getProjectId(Long id);
 }
@@ -62,7 +62,9 @@ public interface DownloadService {
      * @param id
      * @param user
      * @param params
+     * @param engine xlsx 导出引擎，为空时使用默认配置
+     * @param format 导出格式 xlsx/csv/arrow，为空时使用默认配置
      * @return
      */
-    Boolean submit(DownloadType type, Long id, User user, List<DownloadViewExecuteParam> params);
+    Boolean submit(DownloadType type, Long id, User user, List<DownloadViewExecuteParam> params, String engine, String format);
 }
@@ -34,9 +34,11 @@ public interface ShareDownloadService {
      * @param downloadType
      * @param uuid
      * @param downloadViewExecuteParams
+     * @param engine xlsx 导出引擎，为空时使用默认配置
+     * @param format 导出格式 xlsx/csv/arrow，为空时使用默认配置
      * @return
      */
-    boolean submit(DownloadType downloadType, String uuid, List<DownloadViewExecuteParam> downloadViewExecuteParams);
+    boolean submit(DownloadType downloadType, String uuid, List<DownloadViewExecuteParam> downloadViewExecuteParams, String engine, String format);
 
     /**
      * 获取分享下载列表
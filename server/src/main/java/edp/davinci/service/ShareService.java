@@ -19,6 +19,7 @@
 
 package edp.davinci.service;
 
+import edp.core.common.jdbc.ResultStreamHandler;
 import edp.core.exception.ForbiddenException;
 import edp.core.exception.NotFoundException;
 import edp.core.exception.ServerException;
@@ -47,6 +48,8 @@ public interface ShareService {
 
     Paginate<Map<String, Object>> getShareData(ViewExecuteParam executeParam, User user) throws NotFoundException, ServerException, ForbiddenException, UnAuthorizedException, SQLException;
 
+    void getShareDataStream(ViewExecuteParam executeParam, User user, ResultStreamHandler handler) throws NotFoundException, ServerException, ForbiddenException, UnAuthorizedException;
+
     List<Map<String, Object>> getDistinctValue(DistinctParam param, User user);
 
     void formatShareParam(Long projectId, ShareEntity entity);
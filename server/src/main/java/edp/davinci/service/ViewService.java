@@ -19,11 +19,13 @@
 
 package edp.davinci.service;
 
+import edp.core.common.jdbc.ResultStreamHandler;
 import edp.core.exception.NotFoundException;
 import edp.core.exception.ServerException;
 import edp.core.exception.UnAuthorizedException;
 import edp.core.model.Paginate;
 import edp.core.model.PaginateWithQueryColumns;
+import edp.davinci.core.common.BatchDataHandler;
 import edp.davinci.core.model.SqlEntity;
 import edp.davinci.core.service.CheckEntityService;
 import edp.davinci.dto.viewDto.*;
@@ -50,8 +52,14 @@ public interface ViewService extends CheckEntityService {
 
     Paginate<Map<String, Object>> getData(Long id, ViewExecuteParam executeParam, User user) throws NotFoundException, UnAuthorizedException, ServerException, SQLException;
 
+    void getDataStream(Long id, ViewExecuteParam executeParam, User user, ResultStreamHandler handler) throws NotFoundException, UnAuthorizedException, ServerException;
+
+    void getBatchData(List<BatchViewExecuteParam> params, User user, BatchDataHandler handler) throws ServerException;
+
     PaginateWithQueryColumns getResultDataList(boolean isMaintainer, ViewWithSource viewWithSource, ViewExecuteParam executeParam, User user) throws ServerException, SQLException;
 
+    void getResultDataStream(boolean isMaintainer, ViewWithSource viewWithSource, ViewExecuteParam executeParam, User user, ResultStreamHandler handler) throws ServerException;
+
     List<Map<String, Object>> getDistinctValue(Long id, DistinctParam param, User user) throws NotFoundException, ServerException, UnAuthorizedException;
 
     List getDistinctValueData(boolean isMaintainer, ViewWithSource viewWithSource, DistinctParam param, User user) throws ServerException;
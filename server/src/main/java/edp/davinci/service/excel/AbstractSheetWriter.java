@@ -23,6 +23,7 @@ import com.alibaba.druid.util.StringUtils;
 import edp.core.enums.SqlTypeEnum;
 import edp.core.model.QueryColumn;
 import edp.core.utils.CollectionUtils;
+import edp.core.utils.SqlUtils;
 import edp.davinci.core.enums.NumericUnitEnum;
 import edp.davinci.core.model.ExcelHeader;
 import edp.davinci.core.model.FieldCurrency;
@@ -31,12 +32,17 @@ import edp.davinci.core.utils.ExcelUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.streaming.SXSSFSheet;
 
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static edp.core.consts.Consts.EMPTY;
@@ -57,7 +63,7 @@ public abstract class AbstractSheetWriter {
 
     private CellStyle general;
 
-    private DataFormat format;
+    private SheetStyles styles;
 
     private int nextRowNum = 0;
 
@@ -68,26 +74,31 @@ public abstract class AbstractSheetWriter {
     //记录列最大字符数
     Map<String, Integer> columnWidthMap = new HashMap();
 
+    //数据列对应的结果集索引、样式及宽度，写入首行数据时解析一次
+    private int[] columnIndexes;
+
+    private boolean[] numericColumns;
+
+    private CellStyle[] columnStyles;
+
+    private NumericUnitEnum[] columnUnits;
+
+    private int[] columnWidths;
+
 
     protected void init(SheetContext context) throws Exception {
-        format = context.getWorkbook().createDataFormat();
-        //默认格式
-        myDefault = context.getWorkbook().createCellStyle();
-        //常规格式
-        general = context.getWorkbook().createCellStyle();
-        general.setDataFormat(format.getFormat("General"));
-        //表头格式 粗体居中
-        header = context.getWorkbook().createCellStyle();
-        Font font = context.getWorkbook().createFont();
-        font.setFontName("黑体");
-        font.setBold(true);
-        header.setFont(font);
-        header.setDataFormat(format.getFormat("@"));
-        header.setAlignment(HorizontalAlignment.CENTER);
-        header.setVerticalAlignment(VerticalAlignment.CENTER);
+        //多个sheet并发写入同一workbook时使用预先创建的共享样式
+        styles = context.getStyles();
+        if (null == styles) {
+            styles = SheetStyles.build(context.getWorkbook(), Collections.singletonList(context));
+        }
+        myDefault = styles.getText();
+        general = styles.getGeneral();
+        header = styles.getHeader();
     }
 
     protected void writeHeader(SheetContext context) throws Exception {
+        SheetOutput output = context.getOutput();
         if (context.getIsTable() && !CollectionUtils.isEmpty(context.getExcelHeaders())) {
             int rownum = 0;
             int colnum = 0;
@@ -107,7 +118,7 @@ public abstract class AbstractSheetWriter {
                     queryColumns.add(queryColumn);
                     queryColumn.setType(excelHeader.getType());
                     //设置列的最大长度
-                    columnWidthMap.put(queryColumn.getName(), Math.max(queryColumn.getName().getBytes().length, queryColumn.getType().getBytes().length));
+                    columnWidthMap.put(queryColumn.getName(), Math.max(getDisplayWidth(queryColumn.getName()), getDisplayWidth(queryColumn.getType())));
                 }
                 //获取对应数据格式
                 if (null != excelHeader.getFormat()) {
@@ -121,10 +132,8 @@ public abstract class AbstractSheetWriter {
                     }
                     //设置列数据格式
                     String dataFormat = ExcelUtils.getDataFormat(excelHeader.getFormat());
-                    if (!StringUtils.isEmpty(dataFormat)) {
-                        CellStyle dataStyle = context.getWorkbook().createCellStyle();
-                        DataFormat xssfDataFormat = context.getWorkbook().createDataFormat();
-                        dataStyle.setDataFormat(xssfDataFormat.getFormat(dataFormat));
+                    CellStyle dataStyle = StringUtils.isEmpty(dataFormat) ? null : styles.getDataFormatStyle(dataFormat);
+                    if (null != dataStyle) {
                         headerFormatMap.put(excelHeader.getKey(), dataStyle);
                     }
                 }
@@ -132,111 +141,176 @@ public abstract class AbstractSheetWriter {
             if (!CollectionUtils.isEmpty(queryColumns)) {
                 context.setQueryColumns(queryColumns);
             }
-            //画出表头
-            for (int i = 0; i < rownum; i++) {
-                Row headerRow = context.getSheet().createRow(i);
-                nextRowNum++;
-                for (int j = 0; j < colnum; j++) {
-                    headerRow.createCell(j);
-                }
-            }
+            //表头单元格按行列定位，按行顺序写出
+            String[][] headerGrid = new String[rownum][colnum];
             for (ExcelHeader excelHeader : context.getExcelHeaders()) {
                 //合并单元格
                 if (excelHeader.isMerged() && null != excelHeader.getRange() && excelHeader.getRange().length == 4) {
                     int[] range = excelHeader.getRange();
                     if (!(range[0] == range[1] && range[2] == range[3])) {
                         CellRangeAddress cellRangeAddress = new CellRangeAddress(range[0], range[1], range[2], range[3]);
-                        context.getSheet().addMergedRegion(cellRangeAddress);
+                        output.addMergedRegion(cellRangeAddress);
+                    }
+                }
+                headerGrid[excelHeader.getRow()][excelHeader.getCol()] = StringUtils.isEmpty(excelHeader.getAlias()) ? excelHeader.getKey() : excelHeader.getAlias();
+            }
+            //画出表头
+            for (int i = 0; i < rownum; i++) {
+                output.startRow(nextRowNum++);
+                for (int j = 0; j < colnum; j++) {
+                    if (null == headerGrid[i][j]) {
+                        output.writeBlank(j, null);
+                    } else {
+                        output.writeString(j, headerGrid[i][j], header);
                     }
                 }
-                Cell cell = context.getSheet().getRow(excelHeader.getRow()).getCell(excelHeader.getCol());
-                cell.setCellStyle(header);
-                cell.setCellValue(StringUtils.isEmpty(excelHeader.getAlias()) ? excelHeader.getKey() : excelHeader.getAlias());
+                output.endRow();
             }
         } else {
-            Row row = context.getSheet().createRow(nextRowNum++);
+            output.startRow(nextRowNum++);
             for (int i = 0; i < context.getQueryColumns().size(); i++) {
                 QueryColumn queryColumn = context.getQueryColumns().get(i);
-                columnWidthMap.put(queryColumn.getName(), Math.max(queryColumn.getName().getBytes().length, queryColumn.getType().getBytes().length));
-                Cell cell = row.createCell(i);
-                cell.setCellStyle(header);
-                cell.setCellValue(queryColumn.getName());
+                columnWidthMap.put(queryColumn.getName(), Math.max(getDisplayWidth(queryColumn.getName()), getDisplayWidth(queryColumn.getType())));
+                output.writeString(i, queryColumn.getName(), header);
             }
+            output.endRow();
         }
         //添加数据类型行
         if (context.getContain()) {
-            Row row = context.getSheet().createRow(nextRowNum++);
+            output.startRow(nextRowNum++);
             for (int i = 0; i < context.getQueryColumns().size(); i++) {
                 String type = context.getQueryColumns().get(i).getType();
                 if (context.getIsTable()) {
                     type = SqlTypeEnum.VARCHAR.getName();
                 }
-                row.createCell(i).setCellValue(type);
+                output.writeString(i, type, null);
             }
+            output.endRow();
         }
     }
 
-    protected void writeLine(SheetContext context, Map<String, Object> dataMap) {
-        Row row = context.getSheet().createRow(nextRowNum++);
-        for (int j = 0; j < context.getQueryColumns().size(); j++) {
-            QueryColumn queryColumn = context.getQueryColumns().get(j);
-            myDefault.setDataFormat(format.getFormat("@"));
-            Object value = dataMap.get(queryColumn.getName());
-            Cell cell = row.createCell(j);
-            if (null != value) {
-                if (value instanceof Number || queryColumn.getType().equals("value")) {
-
-                    Double v = formatNumber(value, dataUnitMap.get(queryColumn.getName()));
-
-                    if (v == null) {
-                        cell.setCellValue(String.valueOf(value));
-                    } else {
-                        cell.setCellValue(v);
-                    }
+    /**
+     * 按索引直接从结果集写入当前行
+     *
+     * @param context
+     * @param rs
+     * @param queryFromsAndJoins
+     * @throws SQLException
+     */
+    protected void writeLine(SheetContext context, ResultSet rs, Set<String> queryFromsAndJoins) throws SQLException {
+        if (null == columnIndexes) {
+            resolveColumns(context, rs.getMetaData(), queryFromsAndJoins);
+        }
+        SheetOutput output = context.getOutput();
+        output.startRow(nextRowNum++);
+        for (int j = 0; j < columnIndexes.length; j++) {
+            Object value = columnIndexes[j] > 0 ? rs.getObject(columnIndexes[j]) : null;
+            if (null == value) {
+                output.writeString(j, EMPTY, myDefault);
+                continue;
+            }
 
-                    if (null != headerFormatMap && headerFormatMap.containsKey(queryColumn.getName())) {
-                        cell.setCellStyle(headerFormatMap.get(queryColumn.getName()));
-                    } else {
-                        cell.setCellStyle(general);
-                    }
+            String text = null;
+            if (numericColumns[j] || value instanceof Number) {
+                Double v = formatNumber(value, columnUnits[j]);
+                if (v == null) {
+                    text = String.valueOf(value);
+                    output.writeString(j, text, columnStyles[j]);
                 } else {
-                    cell.setCellValue(String.valueOf(value));
+                    output.writeNumber(j, v, columnStyles[j]);
                 }
+            } else {
+                text = String.valueOf(value);
+                output.writeString(j, text, null);
+            }
 
-                if (columnWidthMap.containsKey(queryColumn.getName())) {
-                    if (String.valueOf(value).getBytes().length > columnWidthMap.get(queryColumn.getName())) {
-                        columnWidthMap.put(queryColumn.getName(), String.valueOf(value).getBytes().length);
-                    }
+            if (columnWidths[j] >= 0) {
+                int width = getDisplayWidth(null == text ? String.valueOf(value) : text);
+                if (width > columnWidths[j]) {
+                    columnWidths[j] = width;
                 }
-            } else {
-                cell.setCellValue(EMPTY);
-                cell.setCellStyle(myDefault);
             }
         }
+        output.endRow();
+    }
+
+    /**
+     * 解析数据列对应的结果集索引、样式、单位及初始宽度
+     * 与按列名取值保持一致：同名列取第一列，去除前缀后重名的取最后一列
+     *
+     * @param context
+     * @param metaData
+     * @param queryFromsAndJoins
+     * @throws SQLException
+     */
+    private void resolveColumns(SheetContext context, ResultSetMetaData metaData, Set<String> queryFromsAndJoins) throws SQLException {
+        Map<String, Integer> firstIndexMap = new HashMap<>();
+        Map<String, Integer> labelIndexMap = new HashMap<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String columnLabel = metaData.getColumnLabel(i);
+            firstIndexMap.putIfAbsent(columnLabel.toLowerCase(), i);
+            labelIndexMap.put(SqlUtils.getColumnLabel(queryFromsAndJoins, columnLabel), firstIndexMap.get(columnLabel.toLowerCase()));
+        }
+
+        List<QueryColumn> queryColumns = context.getQueryColumns();
+        int size = queryColumns.size();
+        columnIndexes = new int[size];
+        numericColumns = new boolean[size];
+        columnStyles = new CellStyle[size];
+        columnUnits = new NumericUnitEnum[size];
+        columnWidths = new int[size];
+        for (int j = 0; j < size; j++) {
+            QueryColumn queryColumn = queryColumns.get(j);
+            String name = queryColumn.getName();
+            columnIndexes[j] = labelIndexMap.getOrDefault(name, 0);
+            numericColumns[j] = "value".equals(queryColumn.getType());
+            columnStyles[j] = headerFormatMap.getOrDefault(name, general);
+            columnUnits[j] = dataUnitMap.get(name);
+            columnWidths[j] = columnWidthMap.getOrDefault(name, -1);
+        }
     }
 
     protected Boolean refreshHeightWidth(SheetContext context) {
-        SXSSFSheet sheet = (SXSSFSheet)context.getSheet();
-        sheet.setDefaultRowHeight((short) (20 * 20));
-        sheet.trackAllColumnsForAutoSizing();
+        SheetOutput output = context.getOutput();
+        output.setDefaultRowHeight((short) (20 * 20));
         for (int i = 0; i < context.getQueryColumns().size(); i++) {
-            context.getSheet().autoSizeColumn(i, true);
             QueryColumn queryColumn = context.getQueryColumns().get(i);
-            if (columnWidthMap.containsKey(queryColumn.getName())) {
-                int width = columnWidthMap.get(queryColumn.getName());
+            if (null != columnWidths ? columnWidths[i] >= 0 : columnWidthMap.containsKey(queryColumn.getName())) {
+                int width = null != columnWidths ? columnWidths[i] : columnWidthMap.get(queryColumn.getName());
                 if (width > 0) {
                     width = width > 255 ? 255 : width;
-                    context.getSheet().setColumnWidth(i, width * 256);
+                    output.setColumnWidth(i, width * 256);
+                } else {
+                    output.autoSizeColumn(i);
                 }
             } else {
-                context.getSheet().setColumnWidth(i, context.getSheet().getColumnWidth(i) * 12 / 10);
+                output.autoSizeColumn(i);
+                output.setColumnWidth(i, output.getColumnWidth(i) * 12 / 10);
             }
         }
         return true;
     }
 
 
+    /**
+     * 按字符计算显示宽度，全角字符计为两个字符
+     *
+     * @param value
+     * @return
+     */
+    private static int getDisplayWidth(String value) {
+        int width = 0;
+        for (int i = 0; i < value.length(); i++) {
+            width += value.charAt(i) >= '\u2E80' ? 2 : 1;
+        }
+        return width;
+    }
+
     private Double formatNumber(Object value, NumericUnitEnum unitEnum) {
+        if (value instanceof Double || value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte || value instanceof BigDecimal) {
+            return ((Number) value).doubleValue();
+        }
         try {
             return Double.parseDouble(String.valueOf(value));
         } catch (NumberFormatException e) {
@@ -0,0 +1,504 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.service.excel;
+
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将结果集以 Arrow IPC 文件格式（Feather V2）流式写出，可直接由 pyarrow、pandas.read_feather 读取
+ * 列类型取自 ResultSetMetaData，按 record batch 分批写出，内存占用只与批大小有关
+ * 编码由 Arrow Java（arrow-vector）完成，可选按 buffer 进行 LZ4_FRAME 压缩
+ */
+public class ArrowResultSetWriter implements Closeable {
+
+    private static final int MAX_BATCH_BYTES = 64 * 1024 * 1024;
+
+    private static final BufferAllocator ROOT_ALLOCATOR = new RootAllocator();
+
+    private final OutputStream out;
+
+    private final int batchRows;
+
+    private final boolean compress;
+
+    private BufferAllocator allocator;
+
+    private VectorSchemaRoot root;
+
+    private ArrowFileWriter writer;
+
+    private List<Column<?>> columns;
+
+    private int rows = 0;
+
+    private long batchBytes = 0L;
+
+    private long totalRows = 0L;
+
+    private boolean finished = false;
+
+    public ArrowResultSetWriter(OutputStream out, int batchRows, boolean compress) {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.batchRows = batchRows;
+        this.compress = compress;
+    }
+
+    /**
+     * 根据结果集元数据确定列类型并写入 schema
+     *
+     * @param metaData
+     * @param names    列名
+     * @param indexes  列在结果集中的位置
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void start(ResultSetMetaData metaData, List<String> names, int[] indexes) throws SQLException, IOException {
+        columns = new ArrayList<>(indexes.length);
+        List<Field> fields = new ArrayList<>(indexes.length);
+        for (int i = 0; i < indexes.length; i++) {
+            Column<?> column = Column.of(metaData, indexes[i], names.get(i));
+            columns.add(column);
+            fields.add(new Field(names.get(i), FieldType.nullable(column.type()), null));
+        }
+
+        allocator = ROOT_ALLOCATOR.newChildAllocator("arrow-export", 0L, Long.MAX_VALUE);
+        root = VectorSchemaRoot.create(new Schema(fields), allocator);
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).bind(root.getVector(i));
+        }
+        root.allocateNew();
+
+        if (compress) {
+            writer = new ArrowFileWriter(root, null, Channels.newChannel(out), null, IpcOption.DEFAULT,
+                    CommonsCompressionFactory.INSTANCE, CompressionUtil.CodecType.LZ4_FRAME);
+        } else {
+            writer = new ArrowFileWriter(root, null, Channels.newChannel(out));
+        }
+        writer.start();
+    }
+
+    /**
+     * 写入结果集当前行
+     *
+     * @param rs
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        for (Column<?> column : columns) {
+            batchBytes += column.write(rs, rows);
+        }
+        rows++;
+        totalRows++;
+        if (rows >= batchRows || batchBytes >= MAX_BATCH_BYTES) {
+            writeBatch();
+        }
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * 写入剩余数据及文件尾，不关闭底层输出流，用于写入 zip 等多段输出
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (null == writer) {
+            throw new IOException("Arrow schema is not written");
+        }
+        try {
+            if (rows > 0) {
+                writeBatch();
+            }
+            writer.end();
+            out.flush();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            release();
+            out.close();
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        root.setRowCount(rows);
+        writer.writeBatch();
+        for (FieldVector vector : root.getFieldVectors()) {
+            vector.reset();
+        }
+        rows = 0;
+        batchBytes = 0L;
+    }
+
+    /**
+     * 释放列向量内存，ArrowFileWriter 关闭时会关闭输出流，这里不调用其 close
+     */
+    private void release() {
+        if (null != root) {
+            root.close();
+            root = null;
+        }
+        if (null != allocator) {
+            allocator.close();
+            allocator = null;
+        }
+    }
+
+    /**
+     * 结果集列到 Arrow 列向量的写入
+     */
+    private abstract static class Column<V extends FieldVector> {
+
+        final int index;
+
+        final String name;
+
+        V vector;
+
+        Column(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        static Column<?> of(ResultSetMetaData metaData, int index, String name) throws SQLException {
+            boolean signed = metaData.isSigned(index);
+            switch (metaData.getColumnType(index)) {
+                case Types.BOOLEAN:
+                    return new BoolColumn(index, name);
+                case Types.BIT:
+                    return metaData.getPrecision(index) <= 1 ? new BoolColumn(index, name) : new Utf8Column(index, name, true);
+                case Types.TINYINT:
+                    return new IntColumn(index, name, signed ? 8 : 16);
+                case Types.SMALLINT:
+                    return new IntColumn(index, name, signed ? 16 : 32);
+                case Types.INTEGER:
+                    return new IntColumn(index, name, signed ? 32 : 64);
+                case Types.BIGINT:
+                    return signed ? new IntColumn(index, name, 64) : new DecimalColumn(index, name, 20, 0);
+                case Types.REAL:
+                    return new FloatColumn(index, name, false);
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return new FloatColumn(index, name, true);
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    int precision = metaData.getPrecision(index);
+                    int scale = metaData.getScale(index);
+                    if (precision > 0 && precision <= 38 && scale >= 0 && scale <= precision) {
+                        return new DecimalColumn(index, name, precision, scale);
+                    }
+                    return new FloatColumn(index, name, true);
+                case Types.DATE:
+                    return new DateColumn(index, name);
+                case Types.TIMESTAMP:
+                    return new TimestampColumn(index, name);
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                case Types.BLOB:
+                    return new Utf8Column(index, name, true);
+                default:
+                    return new Utf8Column(index, name, false);
+            }
+        }
+
+        abstract ArrowType type();
+
+        @SuppressWarnings("unchecked")
+        final void bind(FieldVector fieldVector) {
+            this.vector = (V) fieldVector;
+        }
+
+        /**
+         * 写入当前行的值
+         *
+         * @return 写入的变长数据字节数
+         */
+        abstract long write(ResultSet rs, int row) throws SQLException, IOException;
+    }
+
+    private static final class BoolColumn extends Column<BitVector> {
+
+        BoolColumn(int index, String name) {
+            super(index, name);
+        }
+
+        @Override
+        ArrowType type() {
+            return ArrowType.Bool.INSTANCE;
+        }
+
+        @Override
+        long write(ResultSet rs, int row) throws SQLException {
+            boolean value = rs.getBoolean(index);
+            if (rs.wasNull()) {
+                vector.setNull(row);
+            } else {
+                vector.setSafe(row, value ? 1 : 0);
+            }
+            return 0L;
+        }
+    }
+
+    private static final class IntColumn extends Column<BaseFixedWidthVector> {
+
+        private final int bitWidth;
+
+        IntColumn(int index, String name, int bitWidth) {
+            super(index, name);
+            this.bitWidth = bitWidth;
+        }
+
+        @Override
+        ArrowType type() {
+            return new ArrowType.Int(bitWidth, true);
+        }
+
+        @Override
+        long write(ResultSet rs, int row) throws SQLException {
+            long value = rs.getLong(index);
+            if (rs.wasNull()) {
+                vector.setNull(row);
+                return 0L;
+            }
+            switch (bitWidth) {
+                case 8:
+                    ((TinyIntVector) vector).setSafe(row, (byte) value);
+                    break;
+                case 16:
+                    ((SmallIntVector) vector).setSafe(row, (short) value);
+                    break;
+                case 32:
+                    ((IntVector) vector).setSafe(row, (int) value);
+                    break;
+                default:
+                    ((BigIntVector) vector).setSafe(row, value);
+            }
+            return 0L;
+        }
+    }
+
+    private static final class FloatColumn extends Column<BaseFixedWidthVector> {
+
+        private final boolean isDouble;
+
+        FloatColumn(int index, String name, boolean isDouble) {
+            super(index, name);
+            this.isDouble = isDouble;
+        }
+
+        @Override
+        ArrowType type() {
+            return new ArrowType.FloatingPoint(isDouble ? FloatingPointPrecision.DOUBLE : FloatingPointPrecision.SINGLE);
+        }
+
+        @Override
+        long write(ResultSet rs, int row) throws SQLException {
+            if (isDouble) {
+                double value = rs.getDouble(index);
+                if (rs.wasNull()) {
+                    vector.setNull(row);
+                } else {
+                    ((Float8Vector) vector).setSafe(row, value);
+                }
+                return 0L;
+            }
+            float value = rs.getFloat(index);
+            if (rs.wasNull()) {
+                vector.setNull(row);
+            } else {
+                ((Float4Vector) vector).setSafe(row, value);
+            }
+            return 0L;
+        }
+    }
+
+    private static final class DecimalColumn extends Column<DecimalVector> {
+
+        private final int precision;
+
+        private final int scale;
+
+        DecimalColumn(int index, String name, int precision, int scale) {
+            super(index, name);
+            this.precision = precision;
+            this.scale = scale;
+        }
+
+        @Override
+        ArrowType type() {
+            return new ArrowType.Decimal(precision, scale, 128);
+        }
+
+        @Override
+        long write(ResultSet rs, int row) throws SQLException, IOException {
+            BigDecimal value = rs.getBigDecimal(index);
+            if (null == value) {
+                vector.setNull(row);
+                return 0L;
+            }
+            value = value.setScale(scale, RoundingMode.HALF_UP);
+            if (value.precision() > precision) {
+                // 写为 null 会静默丢失数据，直接中止导出
+                throw new IOException("Decimal value out of range for column '" + name + "' decimal(" + precision + "," + scale + "): " + value.toPlainString());
+            }
+            vector.setSafe(row, value);
+            return 0L;
+        }
+    }
+
+    private static final class DateColumn extends Column<DateDayVector> {
+
+        DateColumn(int index, String name) {
+            super(index, name);
+        }
+
+        @Override
+        ArrowType type() {
+            return new ArrowType.Date(DateUnit.DAY);
+        }
+
+        @Override
+        long write(ResultSet rs, int row) throws SQLException {
+            Date value = rs.getDate(index);
+            if (null == value) {
+                vector.setNull(row);
+            } else {
+                vector.setSafe(row, (int) value.toLocalDate().toEpochDay());
+            }
+            return 0L;
+        }
+    }
+
+    private static final class TimestampColumn extends Column<TimeStampMicroVector> {
+
+        TimestampColumn(int index, String name) {
+            super(index, name);
+        }
+
+        @Override
+        ArrowType type() {
+            return new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+        }
+
+        @Override
+        long write(ResultSet rs, int row) throws SQLException {
+            Timestamp value = rs.getTimestamp(index);
+            if (null == value) {
+                vector.setNull(row);
+            } else {
+                // 不带时区，按本地时间写出
+                vector.setSafe(row, value.toLocalDateTime().toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNanos() / 1_000);
+            }
+            return 0L;
+        }
+    }
+
+    private static final class Utf8Column extends Column<VarCharVector> {
+
+        private final boolean binary;
+
+        Utf8Column(int index, String name, boolean binary) {
+            super(index, name);
+            this.binary = binary;
+        }
+
+        @Override
+        ArrowType type() {
+            return ArrowType.Utf8.INSTANCE;
+        }
+
+        @Override
+        long write(ResultSet rs, int row) throws SQLException {
+            // 与 SqlUtils 一致，二进制内容按字符串输出
+            String value;
+            if (binary) {
+                byte[] bytes = rs.getBytes(index);
+                value = null == bytes ? null : new String(bytes);
+            } else {
+                value = rs.getString(index);
+            }
+            if (null == value) {
+                vector.setNull(row);
+                return 0L;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            vector.setSafe(row, bytes);
+            return bytes.length;
+        }
+    }
+}
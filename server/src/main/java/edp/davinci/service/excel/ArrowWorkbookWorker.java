@@ -0,0 +1,114 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.service.excel;
+
+import edp.core.enums.DataTypeEnum;
+import edp.core.exception.ServerException;
+import edp.core.utils.CollectionUtils;
+import edp.core.utils.SqlUtils;
+import edp.davinci.core.enums.FileTypeEnum;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * arrow 导出，列类型取自 ResultSetMetaData，结果集按批写入 Arrow IPC 文件
+ * 单个 widget 输出 .arrow，多个 widget 时每个 widget 一个 .arrow 打包为 zip
+ */
+public class ArrowWorkbookWorker<T> extends StreamWorkbookWorker<T, ArrowResultSetWriter> {
+
+    private static final int BATCH_ROWS = 64 * 1024;
+
+    public ArrowWorkbookWorker(WorkBookContext context) {
+        super(context, "arrow");
+    }
+
+    @Override
+    protected FileTypeEnum getFileType() {
+        return FileTypeEnum.ARROW;
+    }
+
+    @Override
+    protected FileTypeEnum getEntryType() {
+        return FileTypeEnum.ARROW;
+    }
+
+    @Override
+    protected ArrowResultSetWriter openFile(String filePath) throws IOException {
+        return new ArrowResultSetWriter(new FileOutputStream(filePath), BATCH_ROWS, context.isArrowCompression());
+    }
+
+    @Override
+    protected ArrowResultSetWriter openEntry(OutputStream out) {
+        return new ArrowResultSetWriter(out, BATCH_ROWS, context.isArrowCompression());
+    }
+
+    @Override
+    protected void finishEntry(ArrowResultSetWriter writer) throws IOException {
+        writer.finish();
+    }
+
+    @Override
+    protected long writeRows(SheetContext sheetContext, SqlUtils utils, String sql, ArrowResultSetWriter writer) {
+        JdbcTemplate template = utils.jdbcTemplate();
+        if (sheetContext.getResultLimit() > 0) {
+            template.setMaxRows(sheetContext.getResultLimit());
+        }
+
+        // special for mysql
+        if (utils.getDataTypeEnum() == DataTypeEnum.MYSQL) {
+            template.setFetchSize(Integer.MIN_VALUE);
+        }
+
+        Set<String> queryFromsAndJoins = SqlUtils.getQueryFromsAndJoins(sql);
+        return template.query(sql, (ResultSetExtractor<Long>) rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            List<String> names = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String label = SqlUtils.getColumnLabel(queryFromsAndJoins, metaData.getColumnLabel(i));
+                if (!CollectionUtils.isEmpty(sheetContext.getExcludeColumns()) && sheetContext.getExcludeColumns().contains(label)) {
+                    continue;
+                }
+                names.add(label);
+                indexes.add(i);
+            }
+            if (names.isEmpty()) {
+                throw noColumnException(sheetContext);
+            }
+
+            try {
+                writer.start(metaData, names, indexes.stream().mapToInt(Integer::intValue).toArray());
+                while (rs.next()) {
+                    writer.writeRow(rs);
+                }
+            } catch (IOException e) {
+                throw new ServerException(e.getMessage(), e);
+            }
+            return writer.getTotalRows();
+        });
+    }
+}
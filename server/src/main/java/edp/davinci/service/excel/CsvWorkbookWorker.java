@@ -0,0 +1,74 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.service.excel;
+
+import edp.core.utils.CollectionUtils;
+import edp.core.utils.SqlUtils;
+import edp.davinci.core.common.CsvResultStreamWriter;
+import edp.davinci.core.enums.FileTypeEnum;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * csv 导出，单个 widget 输出 csv（可选 gzip 压缩），多个 widget 时每个 widget 一个 csv 打包为 zip
+ */
+public class CsvWorkbookWorker<T> extends StreamWorkbookWorker<T, CsvResultStreamWriter> {
+
+    public CsvWorkbookWorker(WorkBookContext context) {
+        super(context, "csv");
+    }
+
+    @Override
+    protected FileTypeEnum getFileType() {
+        return context.isGzip() ? FileTypeEnum.CSV_GZ : FileTypeEnum.CSV;
+    }
+
+    @Override
+    protected FileTypeEnum getEntryType() {
+        return FileTypeEnum.CSV;
+    }
+
+    @Override
+    protected CsvResultStreamWriter openFile(String filePath) throws IOException {
+        return CsvResultStreamWriter.open(filePath, context.isGzip());
+    }
+
+    @Override
+    protected CsvResultStreamWriter openEntry(OutputStream out) {
+        return new CsvResultStreamWriter(out);
+    }
+
+    @Override
+    protected void finishEntry(CsvResultStreamWriter writer) throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    protected long writeRows(SheetContext sheetContext, SqlUtils utils, String sql, CsvResultStreamWriter writer) {
+        Set<String> excludeColumns = CollectionUtils.isEmpty(sheetContext.getExcludeColumns()) ? null : new HashSet<>(sheetContext.getExcludeColumns());
+        utils.syncStream4Paginate(sql, -1, -1, -1, sheetContext.getResultLimit(), excludeColumns, writer);
+        if (!writer.isStarted()) {
+            throw noColumnException(sheetContext);
+        }
+        return writer.getRows();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.service.excel;
+
+import edp.davinci.core.enums.ExcelEngineEnum;
+import edp.davinci.core.enums.FileTypeEnum;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 下载及定时邮件共用的导出配置（download.*）
+ */
+@Component
+public class DownloadSettings {
+
+    @Value("${download.excel-engine:sxssf}")
+    private String excelEngine;
+
+    @Value("${download.format:xlsx}")
+    private String format;
+
+    @Getter
+    @Value("${download.csv-gzip:false}")
+    private boolean csvGzip;
+
+    @Getter
+    @Value("${download.arrow-compression:false}")
+    private boolean arrowCompression;
+
+    /**
+     * 获取 xlsx 导出引擎，未指定或无法识别时使用默认配置
+     *
+     * @param engine
+     * @return
+     */
+    public ExcelEngineEnum getExcelEngine(String engine) {
+        ExcelEngineEnum engineEnum = ExcelEngineEnum.engineOf(engine);
+        return null != engineEnum ? engineEnum : ExcelEngineEnum.engineOf(excelEngine);
+    }
+
+    /**
+     * 获取导出文件格式，未指定或无法识别时使用默认配置，默认配置无法识别时使用 xlsx
+     *
+     * @param format
+     * @return
+     */
+    public FileTypeEnum getFileType(String format) {
+        FileTypeEnum fileType = FileTypeEnum.exportTypeOf(format);
+        if (null == fileType) {
+            fileType = FileTypeEnum.exportTypeOf(this.format);
+        }
+        return null != fileType ? fileType : FileTypeEnum.XLSX;
+    }
+}
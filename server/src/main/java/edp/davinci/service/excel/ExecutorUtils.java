@@ -20,6 +20,7 @@
 package edp.davinci.service.excel;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edp.davinci.core.enums.FileTypeEnum;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 
@@ -48,6 +49,12 @@ public class ExecutorUtils {
             new ThreadFactoryBuilder().setNameFormat("Sheet-worker-%d").setDaemon(true).build(), new ThreadPoolExecutor.CallerRunsPolicy());
 
     public static <T> Future<T> submitWorkbookTask(WorkBookContext context, Logger customLogger) {
+        if (context.getFileType() == FileTypeEnum.CSV) {
+            return ExecutorUtils.submitWorkbookTask(new CsvWorkbookWorker(context), customLogger);
+        }
+        if (context.getFileType() == FileTypeEnum.ARROW) {
+            return ExecutorUtils.submitWorkbookTask(new ArrowWorkbookWorker(context), customLogger);
+        }
         return ExecutorUtils.submitWorkbookTask(new WorkbookWorker(context), customLogger);
     }
 
@@ -0,0 +1,109 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.service.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+
+/**
+ * 基于 SXSSF 的 sheet 输出
+ */
+public class SXSSFSheetOutput implements SheetOutput {
+
+    private final Sheet sheet;
+
+    private Row row;
+
+    public SXSSFSheetOutput(Sheet sheet) {
+        this.sheet = sheet;
+    }
+
+    @Override
+    public String getSheetName() {
+        return sheet.getSheetName();
+    }
+
+    @Override
+    public void startRow(int rownum) {
+        row = sheet.createRow(rownum);
+    }
+
+    @Override
+    public void writeBlank(int col, CellStyle style) {
+        Cell cell = row.createCell(col);
+        if (null != style) {
+            cell.setCellStyle(style);
+        }
+    }
+
+    @Override
+    public void writeString(int col, String value, CellStyle style) {
+        Cell cell = row.createCell(col);
+        cell.setCellValue(value);
+        if (null != style) {
+            cell.setCellStyle(style);
+        }
+    }
+
+    @Override
+    public void writeNumber(int col, double value, CellStyle style) {
+        Cell cell = row.createCell(col);
+        cell.setCellValue(value);
+        if (null != style) {
+            cell.setCellStyle(style);
+        }
+    }
+
+    @Override
+    public void endRow() {
+        row = null;
+    }
+
+    @Override
+    public void addMergedRegion(CellRangeAddress region) {
+        sheet.addMergedRegion(region);
+    }
+
+    @Override
+    public void setDefaultRowHeight(short height) {
+        sheet.setDefaultRowHeight(height);
+    }
+
+    @Override
+    public void autoSizeColumn(int col) {
+        if (sheet instanceof SXSSFSheet) {
+            ((SXSSFSheet) sheet).trackColumnForAutoSizing(col);
+        }
+        sheet.autoSizeColumn(col, true);
+    }
+
+    @Override
+    public int getColumnWidth(int col) {
+        return sheet.getColumnWidth(col);
+    }
+
+    @Override
+    public void setColumnWidth(int col, int width) {
+        sheet.setColumnWidth(col, width);
+    }
+}
@@ -58,6 +58,8 @@ public class SheetContext implements Serializable {
     private int resultLimit;
     private String taskKey;
     private Logger customLogger;
+    private SheetStyles styles;
+    private SheetOutput output;
 
 
     public static final class SheetContextBuilder {
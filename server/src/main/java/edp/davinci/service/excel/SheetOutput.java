@@ -0,0 +1,51 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.service.excel;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * sheet 输出，按行顺序写入单元格
+ * 由 SXSSF 及直接写 SpreadsheetML 两种引擎实现
+ */
+public interface SheetOutput {
+
+    String getSheetName();
+
+    void startRow(int rownum);
+
+    void writeBlank(int col, CellStyle style);
+
+    void writeString(int col, String value, CellStyle style);
+
+    void writeNumber(int col, double value, CellStyle style);
+
+    void endRow();
+
+    void addMergedRegion(CellRangeAddress region);
+
+    void setDefaultRowHeight(short height);
+
+    void autoSizeColumn(int col);
+
+    int getColumnWidth(int col);
+
+    void setColumnWidth(int col, int width);
+}
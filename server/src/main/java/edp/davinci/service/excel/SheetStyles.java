@@ -0,0 +1,109 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.service.excel;
+
+import com.alibaba.druid.util.StringUtils;
+import edp.core.utils.CollectionUtils;
+import edp.davinci.core.model.ExcelHeader;
+import edp.davinci.core.utils.ExcelUtils;
+import org.apache.poi.ss.usermodel.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * workbook 共享的单元格样式表，在提交 sheet 任务前统一创建
+ * workbook 的样式、字体及数据格式非线程安全，sheet worker 并发写入时只读取此表
+ */
+public class SheetStyles {
+
+    private final CellStyle header;
+
+    private final CellStyle text;
+
+    private final CellStyle general;
+
+    //数据格式对应的样式，相同格式的列共用同一样式
+    private final Map<String, CellStyle> dataFormatStyles;
+
+    private SheetStyles(CellStyle header, CellStyle text, CellStyle general, Map<String, CellStyle> dataFormatStyles) {
+        this.header = header;
+        this.text = text;
+        this.general = general;
+        this.dataFormatStyles = dataFormatStyles;
+    }
+
+    public static SheetStyles build(Workbook workbook, List<SheetContext> sheetContexts) {
+        DataFormat format = workbook.createDataFormat();
+        //默认格式
+        CellStyle text = workbook.createCellStyle();
+        text.setDataFormat(format.getFormat("@"));
+        //常规格式
+        CellStyle general = workbook.createCellStyle();
+        general.setDataFormat(format.getFormat("General"));
+        //表头格式 粗体居中
+        CellStyle header = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setFontName("黑体");
+        font.setBold(true);
+        header.setFont(font);
+        header.setDataFormat(format.getFormat("@"));
+        header.setAlignment(HorizontalAlignment.CENTER);
+        header.setVerticalAlignment(VerticalAlignment.CENTER);
+
+        Map<String, CellStyle> dataFormatStyles = new HashMap<>();
+        for (SheetContext context : sheetContexts) {
+            if (!context.getIsTable() || CollectionUtils.isEmpty(context.getExcelHeaders())) {
+                continue;
+            }
+            for (ExcelHeader excelHeader : context.getExcelHeaders()) {
+                if (null == excelHeader.getFormat()) {
+                    continue;
+                }
+                String dataFormat = ExcelUtils.getDataFormat(excelHeader.getFormat());
+                if (StringUtils.isEmpty(dataFormat) || dataFormatStyles.containsKey(dataFormat)) {
+                    continue;
+                }
+                CellStyle dataStyle = workbook.createCellStyle();
+                dataStyle.setDataFormat(format.getFormat(dataFormat));
+                dataFormatStyles.put(dataFormat, dataStyle);
+            }
+        }
+
+        return new SheetStyles(header, text, general, Collections.unmodifiableMap(dataFormatStyles));
+    }
+
+    public CellStyle getHeader() {
+        return header;
+    }
+
+    public CellStyle getText() {
+        return text;
+    }
+
+    public CellStyle getGeneral() {
+        return general;
+    }
+
+    public CellStyle getDataFormatStyle(String dataFormat) {
+        return dataFormatStyles.get(dataFormat);
+    }
+}
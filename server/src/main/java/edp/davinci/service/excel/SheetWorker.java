@@ -20,7 +20,6 @@
 package edp.davinci.service.excel;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.Maps;
 import edp.core.enums.DataTypeEnum;
 import edp.core.model.QueryColumn;
 import edp.core.utils.CollectionUtils;
@@ -89,25 +88,20 @@ public class SheetWorker<T> extends AbstractSheetWriter implements Callable {
             Set<String> queryFromsAndJoins = SqlUtils.getQueryFromsAndJoins(sql);
             if (log) {
                 logger.info("Task({}) sheet worker(name:{}, sheetNo:{}, sheetName:{}) query start sql:{}, md5:{}",
-                        context.getTaskKey(), context.getName(), context.getSheetNo(), context.getSheet().getSheetName(), SqlUtils.formatSql(sql), md5);
+                        context.getTaskKey(), context.getName(), context.getSheetNo(), context.getOutput().getSheetName(), SqlUtils.formatSql(sql), md5);
             }
 
             final AtomicInteger count = new AtomicInteger(0);
             template.query(sql, rs -> {
 
                 interrupted(context);
-
-                Map<String, Object> dataMap = Maps.newHashMap();
-                for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
-                    dataMap.put(SqlUtils.getColumnLabel(queryFromsAndJoins, rs.getMetaData().getColumnLabel(i)), rs.getObject(rs.getMetaData().getColumnLabel(i)));
-                }
-                writeLine(context, dataMap);
+                writeLine(context, rs, queryFromsAndJoins);
                 count.incrementAndGet();
             });
 
             if (log) {
                 logger.info("Task({}) sheet worker(name:{}, sheetNo:{}, sheetName:{}) query finish md5:{}, count:{}",
-                        context.getTaskKey(), context.getName(), context.getSheetNo(), context.getSheet().getSheetName(), md5, count.get());
+                        context.getTaskKey(), context.getName(), context.getSheetNo(), context.getOutput().getSheetName(), md5, count.get());
             }
 
             super.refreshHeightWidth(context);
@@ -120,14 +114,14 @@ public class SheetWorker<T> extends AbstractSheetWriter implements Callable {
             }
             if (log) {
                 logger.error("Task({}) sheet worker(name:{}, sheetNo:{}, sheetName:{}) query error md5:{}",
-                        context.getTaskKey(), context.getName(), context.getSheetNo(), context.getSheet().getSheetName(), md5);
+                        context.getTaskKey(), context.getName(), context.getSheetNo(), context.getOutput().getSheetName(), md5);
                 logger.error(e.toString(), e);
             }
             rst = false;
         }
 
         Object[] args = {context.getTaskKey(), context.getName(), md5, rst, context.getWrapper().getAction(), context.getWrapper().getxId(),
-                context.getWrapper().getxUUID(), context.getSheetNo(), context.getSheet().getSheetName(), context.getDashboardId(),
+                context.getWrapper().getxUUID(), context.getSheetNo(), context.getOutput().getSheetName(), context.getDashboardId(),
                 context.getWidgetId(), watch.elapsed(TimeUnit.MILLISECONDS)};
         if (log) {
             logger.info(
@@ -144,10 +138,10 @@ public class SheetWorker<T> extends AbstractSheetWriter implements Callable {
             boolean log = context.getCustomLogger() != null;
             if (log) {
                 logger.error("Task({}) sheet worker(name:{}, sheetNo:{}, sheetName:{}) interrupted",
-                        context.getTaskKey(), context.getName(), context.getSheetNo(), context.getSheet().getSheetName());
+                        context.getTaskKey(), context.getName(), context.getSheetNo(), context.getOutput().getSheetName());
             }
             throw new RuntimeException("Task(" + context.getTaskKey() + ") sheet worker(name:" + context.getName() + ", " +
-                    "sheetNo:" + context.getSheetNo() + ", sheetName:" + context.getSheet().getSheetName() + ") interrupted");
+                    "sheetNo:" + context.getSheetNo() + ", sheetName:" + context.getOutput().getSheetName() + ") interrupted");
         }
     }
 
@@ -0,0 +1,284 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.service.excel;
+
+import edp.core.exception.ServerException;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.TempFile;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 直接写 SpreadsheetML 的 sheet 输出
+ * 行数据写入临时文件，字符串使用 inlineStr，不使用共享字符串表
+ * 列宽、合并单元格在组装 workbook 时写入 sheet 头尾
+ */
+public class SpreadsheetMLSheetOutput implements SheetOutput {
+
+    private static final int DEFAULT_COLUMN_WIDTH = 8 * 256;
+
+    private static final int MAX_TEXT_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+
+    private final String sheetName;
+
+    private final File dataFile;
+
+    private final Writer writer;
+
+    private final List<CellRangeAddress> mergedRegions = new ArrayList<>();
+
+    private final Map<Integer, Integer> columnWidths = new TreeMap<>();
+
+    private short defaultRowHeight = -1;
+
+    private String[] columnNames = new String[0];
+
+    private String rowRef;
+
+    public SpreadsheetMLSheetOutput(String sheetName) throws IOException {
+        this.sheetName = sheetName;
+        this.dataFile = TempFile.createTempFile("davinci-sheet", ".xml");
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dataFile), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    @Override
+    public void startRow(int rownum) {
+        rowRef = String.valueOf(rownum + 1);
+        try {
+            writer.write("<row r=\"");
+            writer.write(rowRef);
+            writer.write("\">");
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void writeBlank(int col, CellStyle style) {
+        try {
+            startCell(col, style, null);
+            writer.write("/>");
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void writeString(int col, String value, CellStyle style) {
+        if (value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("The maximum length of cell contents (text) is " + MAX_TEXT_LENGTH + " characters");
+        }
+        try {
+            startCell(col, style, "inlineStr");
+            if (value.length() > 0 && (value.charAt(0) <= ' ' || value.charAt(value.length() - 1) <= ' ')) {
+                writer.write("><is><t xml:space=\"preserve\">");
+            } else {
+                writer.write("><is><t>");
+            }
+            writeEscaped(value);
+            writer.write("</t></is></c>");
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void writeNumber(int col, double value, CellStyle style) {
+        try {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                //与 POI 一致，非有限数值写为错误值
+                startCell(col, style, "e");
+                writer.write(Double.isNaN(value) ? "><v>#NUM!</v></c>" : "><v>#DIV/0!</v></c>");
+                return;
+            }
+            startCell(col, style, null);
+            writer.write("><v>");
+            writer.write(Double.toString(value));
+            writer.write("</v></c>");
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void endRow() {
+        try {
+            writer.write("</row>");
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void addMergedRegion(CellRangeAddress region) {
+        mergedRegions.add(region);
+    }
+
+    @Override
+    public void setDefaultRowHeight(short height) {
+        this.defaultRowHeight = height;
+    }
+
+    /**
+     * 不保留行数据，无法自动计算列宽，保持默认列宽
+     *
+     * @param col
+     */
+    @Override
+    public void autoSizeColumn(int col) {
+    }
+
+    @Override
+    public int getColumnWidth(int col) {
+        return columnWidths.getOrDefault(col, DEFAULT_COLUMN_WIDTH);
+    }
+
+    @Override
+    public void setColumnWidth(int col, int width) {
+        columnWidths.put(col, width);
+    }
+
+    /**
+     * 结束写入行数据
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * 写出完整的 worksheet 部件
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Writer partWriter = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        partWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        partWriter.write("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" " +
+                "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">");
+        if (defaultRowHeight > 0) {
+            partWriter.write("<sheetFormatPr customHeight=\"1\" defaultRowHeight=\"" + defaultRowHeight / 20.0 + "\"/>");
+        }
+        if (!columnWidths.isEmpty()) {
+            partWriter.write("<cols>");
+            for (Map.Entry<Integer, Integer> entry : columnWidths.entrySet()) {
+                int col = entry.getKey() + 1;
+                partWriter.write("<col min=\"" + col + "\" max=\"" + col + "\" width=\"" + entry.getValue() / 256.0 + "\" customWidth=\"1\"/>");
+            }
+            partWriter.write("</cols>");
+        }
+        partWriter.write("<sheetData>");
+        partWriter.flush();
+        Files.copy(dataFile.toPath(), out);
+        partWriter.write("</sheetData>");
+        if (!mergedRegions.isEmpty()) {
+            partWriter.write("<mergeCells count=\"" + mergedRegions.size() + "\">");
+            for (CellRangeAddress region : mergedRegions) {
+                partWriter.write("<mergeCell ref=\"" + region.formatAsString() + "\"/>");
+            }
+            partWriter.write("</mergeCells>");
+        }
+        partWriter.write("</worksheet>");
+        partWriter.flush();
+    }
+
+    public void dispose() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+        }
+        dataFile.delete();
+    }
+
+    private void startCell(int col, CellStyle style, String type) throws IOException {
+        writer.write("<c r=\"");
+        writer.write(getColumnName(col));
+        writer.write(rowRef);
+        writer.write('"');
+        if (null != style && style.getIndex() > 0) {
+            writer.write(" s=\"");
+            writer.write(Short.toString(style.getIndex()));
+            writer.write('"');
+        }
+        if (null != type) {
+            writer.write(" t=\"");
+            writer.write(type);
+            writer.write('"');
+        }
+    }
+
+    private String getColumnName(int col) {
+        if (col >= columnNames.length) {
+            String[] names = new String[Math.max(col + 1, columnNames.length * 2)];
+            System.arraycopy(columnNames, 0, names, 0, columnNames.length);
+            columnNames = names;
+        }
+        if (null == columnNames[col]) {
+            columnNames[col] = CellReference.convertNumToColString(col);
+        }
+        return columnNames[col];
+    }
+
+    /**
+     * 转义 XML 特殊字符，XML 不允许的控制字符替换为 ?，与 POI 一致
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void writeEscaped(String value) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '<') {
+                replacement = "&lt;";
+            } else if (c == '>') {
+                replacement = "&gt;";
+            } else if (c == '&') {
+                replacement = "&amp;";
+            } else if (c == '\r') {
+                replacement = "&#xd;";
+            } else if ((c < ' ' && c != '\t' && c != '\n') || c == '\uFFFE' || c == '\uFFFF') {
+                replacement = "?";
+            } else {
+                continue;
+            }
+            writer.write(value, start, i - start);
+            writer.write(replacement);
+            start = i + 1;
+        }
+        writer.write(value, start, value.length() - start);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.service.excel;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 直接写 SpreadsheetML 的 workbook，各 sheet 行数据由 sheet worker 并发写入各自的临时文件，
+ * 写出时按 xlsx 结构组装到 ZipOutputStream
+ * 样式表由仅用于样式的 XSSFWorkbook 预先创建，单元格直接引用其样式索引
+ */
+public class SpreadsheetMLWorkbook {
+
+    private static final int MAX_SHEET_NAME_LENGTH = 31;
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private final XSSFWorkbook styleWorkbook = new XSSFWorkbook();
+
+    private final List<SpreadsheetMLSheetOutput> sheets = new ArrayList<>();
+
+    private final Set<String> sheetNames = new HashSet<>();
+
+    public Workbook getStyleWorkbook() {
+        return styleWorkbook;
+    }
+
+    /**
+     * 与 XSSFWorkbook 一致：名称超长时截断，校验非法字符及重名
+     *
+     * @param sheetName
+     * @return
+     * @throws IOException
+     */
+    public SpreadsheetMLSheetOutput createSheet(String sheetName) throws IOException {
+        if (sheetName.length() > MAX_SHEET_NAME_LENGTH) {
+            sheetName = sheetName.substring(0, MAX_SHEET_NAME_LENGTH);
+        }
+        WorkbookUtil.validateSheetName(sheetName);
+        if (!sheetNames.add(sheetName.toUpperCase())) {
+            throw new IllegalArgumentException("The workbook already contains a sheet named '" + sheetName + "'");
+        }
+        SpreadsheetMLSheetOutput sheet = new SpreadsheetMLSheetOutput(sheetName);
+        sheets.add(sheet);
+        return sheet;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        for (SpreadsheetMLSheetOutput sheet : sheets) {
+            sheet.close();
+        }
+
+        ZipOutputStream zos = new ZipOutputStream(out);
+        Writer writer = new OutputStreamWriter(zos, StandardCharsets.UTF_8);
+
+        zos.putNextEntry(new ZipEntry("[Content_Types].xml"));
+        writer.write(XML_DECLARATION);
+        writer.write("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        writer.write("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        writer.write("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        writer.write("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        writer.write("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheets.size(); i++) {
+            writer.write("<Override PartName=\"/xl/worksheets/sheet" + i + ".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        writer.write("</Types>");
+        closeEntry(zos, writer);
+
+        zos.putNextEntry(new ZipEntry("_rels/.rels"));
+        writer.write(XML_DECLARATION);
+        writer.write("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        writer.write("<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>");
+        writer.write("</Relationships>");
+        closeEntry(zos, writer);
+
+        zos.putNextEntry(new ZipEntry("xl/workbook.xml"));
+        writer.write(XML_DECLARATION);
+        writer.write("<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" " +
+                "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        for (int i = 1; i <= sheets.size(); i++) {
+            writer.write("<sheet name=\"" + escapeAttribute(sheets.get(i - 1).getSheetName()) + "\" sheetId=\"" + i + "\" r:id=\"rId" + i + "\"/>");
+        }
+        writer.write("</sheets></workbook>");
+        closeEntry(zos, writer);
+
+        zos.putNextEntry(new ZipEntry("xl/_rels/workbook.xml.rels"));
+        writer.write(XML_DECLARATION);
+        writer.write("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= sheets.size(); i++) {
+            writer.write("<Relationship Id=\"rId" + i + "\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet" + i + ".xml\"/>");
+        }
+        writer.write("<Relationship Id=\"rId" + (sheets.size() + 1) + "\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>");
+        writer.write("</Relationships>");
+        closeEntry(zos, writer);
+
+        zos.putNextEntry(new ZipEntry("xl/styles.xml"));
+        styleWorkbook.getStylesSource().writeTo(zos);
+        zos.closeEntry();
+
+        for (int i = 1; i <= sheets.size(); i++) {
+            zos.putNextEntry(new ZipEntry("xl/worksheets/sheet" + i + ".xml"));
+            sheets.get(i - 1).writeTo(zos);
+            zos.closeEntry();
+        }
+
+        zos.finish();
+    }
+
+    public void dispose() {
+        sheets.forEach(SpreadsheetMLSheetOutput::dispose);
+        try {
+            styleWorkbook.close();
+        } catch (IOException e) {
+        }
+    }
+
+    private void closeEntry(ZipOutputStream zos, Writer writer) throws IOException {
+        writer.flush();
+        zos.closeEntry();
+    }
+
+    private static String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&apos;");
+    }
+}
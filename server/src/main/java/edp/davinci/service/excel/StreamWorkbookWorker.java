@@ -0,0 +1,194 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+package edp.davinci.service.excel;
+
+import com.google.common.base.Stopwatch;
+import edp.core.utils.CollectionUtils;
+import edp.core.utils.FileUtils;
+import edp.core.utils.MD5Util;
+import edp.core.utils.SqlUtils;
+import edp.davinci.core.config.SpringContextHolder;
+import edp.davinci.core.enums.ActionEnum;
+import edp.davinci.core.enums.FileTypeEnum;
+import edp.davinci.core.utils.SqlParseUtils;
+import edp.davinci.dto.cronJobDto.MsgMailExcel;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 流式导出，结果集逐行写入文件，不经过 workbook
+ * 单个 widget 输出单个文件，多个 widget 时每个 widget 一个文件打包为 zip
+ * 子类只提供文件类型、writer 的创建及结果集写入
+ */
+public abstract class StreamWorkbookWorker<T, W extends Closeable> extends WorkbookWorker<T> {
+
+    private final String name;
+
+    protected StreamWorkbookWorker(WorkBookContext context, String name) {
+        super(context);
+        this.name = name;
+    }
+
+    /**
+     * 单个 widget 时输出的文件类型
+     */
+    protected abstract FileTypeEnum getFileType();
+
+    /**
+     * zip 中每个 widget 文件的类型
+     */
+    protected abstract FileTypeEnum getEntryType();
+
+    /**
+     * 单个 widget 时写入文件的 writer
+     */
+    protected abstract W openFile(String filePath) throws IOException;
+
+    /**
+     * zip 中单个文件的 writer，关闭时会关闭 zip 输出流
+     */
+    protected abstract W openEntry(OutputStream out) throws IOException;
+
+    /**
+     * 结束 zip 中的单个文件，不关闭 zip 输出流
+     */
+    protected abstract void finishEntry(W writer) throws IOException;
+
+    /**
+     * 执行查询并写入结果集
+     *
+     * @return 写入行数
+     */
+    protected abstract long writeRows(SheetContext sheetContext, SqlUtils utils, String sql, W writer);
+
+    @Override
+    public T call() throws Exception {
+        Stopwatch watch = Stopwatch.createStarted();
+        Logger logger = context.getCustomLogger();
+        boolean log = context.getCustomLogger() != null;
+
+        MsgWrapper wrapper = context.getWrapper();
+        Object[] logArgs = {context.getTaskKey(), name, wrapper.getAction(), wrapper.getxId()};
+        if (log) {
+            logger.info("Task({}) {} worker start action={}, xid={}", logArgs);
+        }
+
+        String filePath = null;
+        try {
+
+            List<SheetContext> sheetContextList = buildSheetContextList();
+            if (CollectionUtils.isEmpty(sheetContextList)) {
+                throw new IllegalArgumentException(
+                        "Task(" + context.getTaskKey() + ") " + name + " worker sheetContextList is empty");
+            }
+
+            FileUtils fileUtils = (FileUtils) SpringContextHolder.getBean(FileUtils.class);
+            if (sheetContextList.size() == 1) {
+                filePath = fileUtils.getFilePath(getFileType(), wrapper);
+                try (W writer = openFile(filePath)) {
+                    writeSheet(sheetContextList.get(0), 1, writer);
+                }
+            } else {
+                filePath = fileUtils.getFilePath(FileTypeEnum.ZIP, wrapper);
+                try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(filePath))) {
+                    int sheetNo = 0;
+                    for (SheetContext sheetContext : sheetContextList) {
+                        sheetNo++;
+                        String entryName = sheetNo + "-" + sheetContext.getName().replaceAll("[/\\\\]", "_") + getEntryType().getFormat();
+                        zip.putNextEntry(new ZipEntry(entryName));
+                        // 不关闭 writer，避免关闭 zip 输出流
+                        W writer = openEntry(zip);
+                        writeSheet(sheetContext, sheetNo, writer);
+                        finishEntry(writer);
+                        zip.closeEntry();
+                    }
+                }
+            }
+            wrapper.setRst(filePath);
+
+        } catch (Exception e) {
+            if (log) {
+                logger.error("Task({}) {} worker execute error", context.getTaskKey(), name);
+                logger.error(e.toString(), e);
+            }
+
+            if (wrapper.getAction() == ActionEnum.MAIL) {
+                MsgMailExcel msg = (MsgMailExcel) wrapper.getMsg();
+                msg.setException(e);
+            }
+
+            if (StringUtils.isNotEmpty(filePath)) {
+                FileUtils.delete(filePath);
+                filePath = null;
+            }
+            wrapper.setRst(null);
+        }
+
+        super.tell(wrapper);
+
+        if (log) {
+            Object[] args = {context.getTaskKey(), name, StringUtils.isNotEmpty(filePath), wrapper.getAction(), wrapper.getxId(), wrapper.getxUUID(), filePath, watch.elapsed(TimeUnit.MILLISECONDS)};
+            logger.info("Task({}) {} worker complete status={}, action={}, xid={}, xUUID={}, filePath={}, cost={}ms", args);
+        }
+
+        return (T) filePath;
+    }
+
+    private void writeSheet(SheetContext sheetContext, int sheetNo, W writer) {
+        Logger logger = context.getCustomLogger();
+        boolean log = context.getCustomLogger() != null;
+
+        SqlUtils utils = sheetContext.getSqlUtils();
+        if (!CollectionUtils.isEmpty(sheetContext.getExecuteSql())) {
+            JdbcTemplate template = utils.jdbcTemplate();
+            sheetContext.getExecuteSql().stream().filter(Objects::nonNull).forEach(template::execute);
+        }
+
+        String sql = sheetContext.getQuerySql().get(sheetContext.getQuerySql().size() - 1);
+        sql = SqlParseUtils.rebuildSqlWithFragment(sql);
+        String md5 = MD5Util.getMD5(sql, true, 16);
+        if (log) {
+            logger.info("Task({}) {} worker(name:{}, sheetNo:{}) query start sql:{}, md5:{}",
+                    context.getTaskKey(), name, sheetContext.getName(), sheetNo, SqlUtils.formatSql(sql), md5);
+        }
+
+        long rows = writeRows(sheetContext, utils, sql, writer);
+
+        if (log) {
+            logger.info("Task({}) {} worker(name:{}, sheetNo:{}) query finish md5:{}, count:{}",
+                    context.getTaskKey(), name, sheetContext.getName(), sheetNo, md5, rows);
+        }
+    }
+
+    protected static IllegalArgumentException noColumnException(SheetContext sheetContext) {
+        return new IllegalArgumentException("Can not find any query column, widgetId=" + sheetContext.getWidgetId()
+                + ", sql=" + sheetContext.getQuerySql().get(sheetContext.getQuerySql().size() - 1));
+    }
+}
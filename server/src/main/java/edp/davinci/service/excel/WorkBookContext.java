@@ -19,6 +19,8 @@
 
 package edp.davinci.service.excel;
 
+import edp.davinci.core.enums.ExcelEngineEnum;
+import edp.davinci.core.enums.FileTypeEnum;
 import edp.davinci.model.User;
 import lombok.Data;
 import org.slf4j.Logger;
@@ -48,6 +50,14 @@ public class WorkBookContext implements Serializable {
 
     private Logger customLogger;
 
+    private ExcelEngineEnum engine;
+
+    private FileTypeEnum fileType;
+
+    private boolean gzip;
+
+    private boolean arrowCompression;
+
     private WorkBookContext() {
 
     }
@@ -59,6 +69,10 @@ public class WorkBookContext implements Serializable {
         private int resultLimit;
         private String taskKey;
         private Logger customLogger;
+        private ExcelEngineEnum engine;
+        private FileTypeEnum fileType;
+        private boolean gzip;
+        private boolean arrowCompression;
 
         private WorkBookContextBuilder() {
         
@@ -98,6 +112,26 @@ public class WorkBookContext implements Serializable {
             return this;
         }
 
+        public WorkBookContextBuilder withEngine(ExcelEngineEnum engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        public WorkBookContextBuilder withFileType(FileTypeEnum fileType) {
+            this.fileType = fileType;
+            return this;
+        }
+
+        public WorkBookContextBuilder withGzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        public WorkBookContextBuilder withArrowCompression(boolean arrowCompression) {
+            this.arrowCompression = arrowCompression;
+            return this;
+        }
+
         public WorkBookContext build() {
             WorkBookContext workBookContext = new WorkBookContext();
             workBookContext.setWrapper(wrapper);
@@ -106,6 +140,10 @@ public class WorkBookContext implements Serializable {
             workBookContext.setResultLimit(resultLimit);
             workBookContext.setTaskKey(taskKey);
             workBookContext.setCustomLogger(customLogger);
+            workBookContext.setEngine(engine);
+            workBookContext.setFileType(fileType);
+            workBookContext.setGzip(gzip);
+            workBookContext.setArrowCompression(arrowCompression);
             return workBookContext;
         }
     }
@@ -28,6 +28,7 @@ import edp.core.utils.SqlUtils;
 import edp.davinci.common.utils.ScriptUtils;
 import edp.davinci.core.config.SpringContextHolder;
 import edp.davinci.core.enums.ActionEnum;
+import edp.davinci.core.enums.ExcelEngineEnum;
 import edp.davinci.core.enums.FileTypeEnum;
 import edp.davinci.core.model.ExcelHeader;
 import edp.davinci.core.utils.ExcelUtils;
@@ -63,7 +64,7 @@ import java.util.concurrent.*;
  */
 public class WorkbookWorker<T> extends MsgNotifier implements Callable {
 
-    private WorkBookContext context;
+    protected WorkBookContext context;
 
     public WorkbookWorker(WorkBookContext context) {
         this.context = context;
@@ -73,6 +74,7 @@ public class WorkbookWorker<T> extends MsgNotifier implements Callable {
     public T call() throws Exception {
         Stopwatch watch = Stopwatch.createStarted();
         Workbook wb = null;
+        SpreadsheetMLWorkbook streamWorkbook = null;
         Logger logger = context.getCustomLogger();
         boolean log = context.getCustomLogger() != null;
 
@@ -91,15 +93,28 @@ public class WorkbookWorker<T> extends MsgNotifier implements Callable {
                         "Task(" + context.getTaskKey() + ") workbook worker sheetContextList is empty");
             }
 
-            wb = new SXSSFWorkbook(1000);
+            if (context.getEngine() == ExcelEngineEnum.STREAM) {
+                streamWorkbook = new SpreadsheetMLWorkbook();
+                wb = streamWorkbook.getStyleWorkbook();
+            } else {
+                wb = new SXSSFWorkbook(1000);
+            }
+            //样式在提交sheet任务前统一创建，sheet worker 并发执行时不再修改workbook
+            SheetStyles styles = SheetStyles.build(wb, sheetContextList);
             List<Future> futures = Lists.newArrayList();
             int sheetNo = 0;
             for (SheetContext sheetContext : sheetContextList) {
                 sheetNo++;
                 String name = sheetNo + "-" + sheetContext.getName();
-                Sheet sheet = wb.createSheet(name);
-                sheetContext.setSheet(sheet);
+                if (null != streamWorkbook) {
+                    sheetContext.setOutput(streamWorkbook.createSheet(name));
+                } else {
+                    Sheet sheet = wb.createSheet(name);
+                    sheetContext.setSheet(sheet);
+                    sheetContext.setOutput(new SXSSFSheetOutput(sheet));
+                }
                 sheetContext.setWorkbook(wb);
+                sheetContext.setStyles(styles);
                 sheetContext.setSheetNo(sheetNo);
                 Future<Boolean> future = ExecutorUtils.submitSheetTask(sheetContext, context.getCustomLogger());
                 futures.add(future);
@@ -133,10 +148,14 @@ public class WorkbookWorker<T> extends MsgNotifier implements Callable {
             if (rst) {
                 filePath = ((FileUtils) SpringContextHolder.getBean(FileUtils.class)).getFilePath(FileTypeEnum.XLSX, this.context.getWrapper());
                 try (FileOutputStream out = new FileOutputStream(filePath);) {
-                    wb.write(out);
+                    if (null != streamWorkbook) {
+                        streamWorkbook.write(out);
+                    } else {
+                        wb.write(out);
+                    }
                     out.flush();
                 } catch (Exception e) {
-                    workbookDispose(wb);
+                    workbookDispose(wb, streamWorkbook);
                     throw e;
                 }
                 wrapper.setRst(filePath);
@@ -172,7 +191,7 @@ public class WorkbookWorker<T> extends MsgNotifier implements Callable {
             super.tell(wrapper);
 
         } finally {
-            workbookDispose(wb);
+            workbookDispose(wb, streamWorkbook);
         }
 
         if (wrapper.getAction() == ActionEnum.DOWNLOAD) {
@@ -192,13 +211,15 @@ public class WorkbookWorker<T> extends MsgNotifier implements Callable {
         return (T) filePath;
     }
 
-    private void workbookDispose(Workbook wb) {
-        if (wb != null) {
+    private void workbookDispose(Workbook wb, SpreadsheetMLWorkbook streamWorkbook) {
+        if (streamWorkbook != null) {
+            streamWorkbook.dispose();
+        } else if (wb != null) {
             ((SXSSFWorkbook)wb).dispose();
         }
     }
 
-    private List<SheetContext> buildSheetContextList() throws Exception {
+    protected List<SheetContext> buildSheetContextList() throws Exception {
         List<SheetContext> sheetContextList = Lists.newArrayList();
         for (WidgetContext context : context.getWidgets()) {
 
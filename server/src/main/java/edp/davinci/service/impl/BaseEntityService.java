@@ -30,6 +30,8 @@ import edp.core.utils.LockFactory;
 import edp.davinci.core.enums.CheckEntityEnum;
 import edp.davinci.core.enums.LockType;
 import edp.davinci.core.enums.UserPermissionEnum;
+import edp.davinci.core.utils.MetadataVersionManager;
+import edp.davinci.core.utils.PermissionSnapshotCache;
 import edp.davinci.dto.projectDto.ProjectPermission;
 import edp.davinci.model.User;
 import edp.davinci.service.ProjectService;
@@ -42,6 +44,12 @@ public abstract class BaseEntityService {
 	@Autowired
 	ProjectService projectService;
 
+	@Autowired
+	protected MetadataVersionManager metadataVersionManager;
+
+	@Autowired
+	protected PermissionSnapshotCache permissionSnapshotCache;
+
 	protected BaseLock getLock(CheckEntityEnum entity, String name, Long domainId) {
 
 		return LockFactory.getLock(
@@ -64,6 +72,20 @@ public abstract class BaseEntityService {
 		throw new UnAuthorizedException("You don't have permission to " + operation + " this " + entity.getSource());
 	}
 
+	/**
+	 * 递增项目及指定实体的元数据版本，用于 viz 读取接口的 ETag，同时失效该项目 viz 相关的权限快照缓存
+	 *
+	 * @param projectId
+	 * @param keys
+	 */
+	protected void bumpVersion(Long projectId, String... keys) {
+		String[] versionKeys = new String[keys.length + 1];
+		versionKeys[0] = MetadataVersionManager.projectKey(projectId);
+		System.arraycopy(keys, 0, versionKeys, 1, keys.length);
+		metadataVersionManager.bump(versionKeys);
+		permissionSnapshotCache.invalidateProject(projectId);
+	}
+
 	protected ProjectPermission getProjectPermission(Long projectId, User user) {
 		try {
 			return projectService.getProjectPermission(projectService.getProjectDetail(projectId, user, false), user);
@@ -28,6 +28,7 @@ import edp.davinci.core.enums.CheckEntityEnum;
 import edp.davinci.core.enums.LogNameEnum;
 import edp.davinci.core.enums.UserPermissionEnum;
 import edp.davinci.core.enums.VizEnum;
+import edp.davinci.core.utils.PermissionSnapshotCache;
 import edp.davinci.dao.MemDashboardWidgetMapper;
 import edp.davinci.dao.RelRoleDashboardWidgetMapper;
 import edp.davinci.dto.dashboardDto.DashboardPortalCreate;
@@ -167,6 +168,7 @@ public class DashboardPortalServiceImpl extends VizCommonService implements Dash
 			}
 			
 			optLogger.info("DashboardPortal({}) is created by user({})", dashboardPortal.toString(), user.getId());
+			bumpVersion(projectId);
 
 			List<Long> roleIds = dashboardPortalCreate.getRoleIds();
 			
@@ -232,6 +234,7 @@ public class DashboardPortalServiceImpl extends VizCommonService implements Dash
 
 			optLogger.info("DashboardPortal({}) is update by user({}), origin:{}", dashboardPortal.toString(),
 					user.getId(), origin);
+			bumpVersion(projectId);
 
 			relRolePortalMapper.deleteByPortalId(id);
 			if (!CollectionUtils.isEmpty(dashboardPortalUpdate.getRoleIds())) {
@@ -307,8 +310,22 @@ public class DashboardPortalServiceImpl extends VizCommonService implements Dash
         if (dashboardPortalMapper.deleteById(id) == 1) {
             relRolePortalMapper.deleteByPortalId(dashboardPortal.getId());
             optLogger.info("DashboardPortal({}) is delete by user({}) ", dashboardPortal.toString(), user.getId());
+            bumpVersion(projectId);
             return true;
         }
         return false;
     }
+
+    /**
+     * 获取 portal 所属项目 id，不存在时返回 null
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public Long getProjectId(Long id) {
+        DashboardPortal portal = permissionSnapshotCache.get(PermissionSnapshotCache.key("portal", id),
+                () -> dashboardPortalMapper.getById(id));
+        return null == portal ? null : portal.getProjectId();
+    }
 }
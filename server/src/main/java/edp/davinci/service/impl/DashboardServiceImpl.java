@@ -131,9 +131,13 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
             return null;
         }
 
-        Long projectId = dashboardPortal.getProjectId();
+        return getVisibleDashboards(dashboardPortal, getProjectPermission(dashboardPortal.getProjectId(), user), user);
+    }
 
-        ProjectPermission projectPermission = getProjectPermission(projectId, user);
+    private List<Dashboard> getVisibleDashboards(DashboardPortal dashboardPortal, ProjectPermission projectPermission, User user) {
+
+        Long portalId = dashboardPortal.getId();
+        Long projectId = dashboardPortal.getProjectId();
 
         List<Long> disablePortals = getDisableVizs(user.getId(), projectId, null, VizEnum.PORTAL);
 
@@ -187,7 +191,55 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
             return null;
         }
 
-        List<MemDashboardWidget> memDashboardWidgets = memDashboardWidgetMapper.getByDashboardId(dashboardId);
+        return getDashboardWithMem(dashboard, portalId, projectPermission, user, new ArrayList<>());
+    }
+
+    /**
+     * 获取dashboard启动所需的portal、dashboard列表、widgets关联信息、widgets及views
+     * 权限只校验一次，各部分均使用批量查询
+     *
+     * @param portalId
+     * @param dashboardId
+     * @param user
+     * @return
+     */
+    @Override
+    public DashboardBootstrap getDashboardBootstrap(Long portalId, Long dashboardId, User user) throws NotFoundException, UnAuthorizedException, ServerException {
+
+        DashboardPortal portal = getDashboardPortal(portalId, true);
+
+        ProjectPermission projectPermission = getProjectPermission(portal.getProjectId(), user);
+
+        List<Dashboard> dashboards = getVisibleDashboards(portal, projectPermission, user);
+        if (null == dashboards) {
+            return null;
+        }
+
+        Dashboard dashboard = dashboards.stream().filter(d -> d.getId().equals(dashboardId)).findFirst()
+                .orElseThrow(() -> new NotFoundException("dashboard is not found"));
+
+        DashboardBootstrap bootstrap = new DashboardBootstrap();
+        List<Widget> widgets = new ArrayList<>();
+        bootstrap.setPortal(portal);
+        bootstrap.setDashboards(dashboards);
+        bootstrap.setDashboard(getDashboardWithMem(dashboard, portalId, projectPermission, user, widgets));
+        bootstrap.setWidgets(widgets);
+        return bootstrap;
+    }
+
+    /**
+     * 获取dashboard下widgets关联信息及views，关联的widgets放入widgetList
+     *
+     * @param dashboard
+     * @param portalId
+     * @param projectPermission
+     * @param user
+     * @param widgetList
+     * @return
+     */
+    private DashboardWithMem getDashboardWithMem(Dashboard dashboard, Long portalId, ProjectPermission projectPermission, User user, List<Widget> widgetList) {
+
+        List<MemDashboardWidget> memDashboardWidgets = memDashboardWidgetMapper.getByDashboardId(dashboard.getId());
         List<Long> disableDashboards = getDisableVizs(user.getId(), portalId, null, VizEnum.DASHBOARD);
         List<Long> disableMemDashboardWidget = relRoleDashboardWidgetMapper.getDisableByUser(user.getId());
 
@@ -200,19 +252,30 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
         // widget views
         Set<SimpleView> simpleViews = CollectionUtils.isEmpty(widgetIds) ? new HashSet<>() : viewMapper.selectSimpleByWidgetIds(widgetIds);
 
+        // controller views，先收集所有 valueViewId 再批量查询
+        Set<Long> controllerViewIds = new HashSet<>();
+
         // global controller views
         Map<String, Object> dashboardConfig = JSON.parseObject(dashboard.getConfig(), Map.class);
         if (!CollectionUtils.isEmpty(dashboardConfig)) {
-            setControllerViews(simpleViews, (List<Map<String, Object>>) dashboardConfig.get("filters"));
+            collectControllerViewIds(controllerViewIds, (List<Map<String, Object>>) dashboardConfig.get("filters"));
         }
 
         // widget controller views
-        memDashboardWidgets.forEach(mw -> {
-            Map<String, Object> widgetConfigMap = JSON.parseObject(widgetMapper.getById(mw.getWidgetId()).getConfig(), Map.class);
-            if (!CollectionUtils.isEmpty(widgetConfigMap)) {
-                setControllerViews(simpleViews, (List<Map<String, Object>>)widgetConfigMap.get("controls"));
-            }
-        });
+        List<Widget> widgets = CollectionUtils.isEmpty(widgetIds) ? null : widgetMapper.getByIds(widgetIds);
+        if (!CollectionUtils.isEmpty(widgets)) {
+            widgetList.addAll(widgets);
+            widgets.forEach(widget -> {
+                Map<String, Object> widgetConfigMap = JSON.parseObject(widget.getConfig(), Map.class);
+                if (!CollectionUtils.isEmpty(widgetConfigMap)) {
+                    collectControllerViewIds(controllerViewIds, (List<Map<String, Object>>) widgetConfigMap.get("controls"));
+                }
+            });
+        }
+
+        if (!CollectionUtils.isEmpty(controllerViewIds)) {
+            simpleViews.addAll(viewMapper.selectSimpleByIds(controllerViewIds));
+        }
 
         DashboardWithMem dashboardWithMem = new DashboardWithMem();
         BeanUtils.copyProperties(dashboard, dashboardWithMem);
@@ -222,10 +285,10 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
         return dashboardWithMem;
     }
 
-    private void setControllerViews(Set<SimpleView> views, List<Map<String, Object>> list) {
+    private void collectControllerViewIds(Set<Long> viewIds, List<Map<String, Object>> list) {
         if (!CollectionUtils.isEmpty(list)) {
-            list.stream().filter(m -> m.containsKey("valueViewId")).collect(Collectors.toList()).forEach(m -> {
-                views.add(viewMapper.getSimpleViewById(Long.parseLong(String.valueOf(m.get("valueViewId")))));
+            list.stream().filter(m -> m.containsKey("valueViewId")).forEach(m -> {
+                viewIds.add(Long.parseLong(String.valueOf(m.get("valueViewId"))));
             });
         }
     }
@@ -275,6 +338,7 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
             }
 
             optLogger.info("Dashboard({}) is create by user({})", dashboard.toString(), userId);
+            bumpVersion(projectId);
 
             if (!CollectionUtils.isEmpty(dashboardCreate.getRoleIds())) {
                 List<Role> roles = roleMapper.getRolesByIds(dashboardCreate.getRoleIds());
@@ -363,6 +427,7 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
         if (dashboardMapper.updateBatch(dashboardList) > 0) {
 
             optLogger.info("Dashboard({}) is update by user({}), origin:{}", dashboardList.toString(), user.getId(), dashboards);
+            bumpVersion(projectId);
 
             Set<Long> emptyRelDashboardId = new HashSet<>();
             List<RelRoleDashboard> relList = new ArrayList<>();
@@ -447,6 +512,7 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
         }
 
         optLogger.info("Dashboard({}) is delete by user({})", JSON.toJSON(deletingDashboards), user.getId());
+        bumpVersion(projectId);
 
         return true;
     }
@@ -553,6 +619,7 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
         }
 
         optLogger.info("MemDashboardWidgets({}) batch insert by user({})", memDashboardWidgetList.toString(), user.getId());
+        bumpVersion(projectId);
 
         handleRel(memDashboardWidgetList, user, memDashboardWidgetCreates);
 
@@ -615,6 +682,7 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
 
         optLogger.info("MemDashboardWidget({}) is update by user({}), origin:{}", memDashboardWidgetList.toString(),
                 user.getId(), before);
+        bumpVersion(projectId);
 
         if (!CollectionUtils.isEmpty(rolesMap)) {
             Set<Long> memDashboardWidgetIds = rolesMap.keySet();
@@ -669,6 +737,7 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
         }
 
         optLogger.info("MemDashboardWidget({}) is delete by user({})", dashboardWidget.toString(), user.getId());
+        bumpVersion(projectId);
         return true;
     }
 
@@ -786,6 +855,7 @@ public class DashboardServiceImpl extends VizCommonService implements DashboardS
         }
 
         optLogger.info("MemDashboardWidget({}) is update to {}, by user({})", origin, dashboardWidget.toString(), user.getId());
+        bumpVersion(projectId);
         return true;
     }
 }
@@ -31,6 +31,7 @@ import edp.davinci.core.enums.CheckEntityEnum;
 import edp.davinci.core.enums.LogNameEnum;
 import edp.davinci.core.enums.UserPermissionEnum;
 import edp.davinci.core.enums.VizEnum;
+import edp.davinci.core.utils.PermissionSnapshotCache;
 import edp.davinci.dao.MemDisplaySlideWidgetMapper;
 import edp.davinci.dao.RelRoleDisplaySlideWidgetMapper;
 import edp.davinci.dto.displayDto.DisplayCopy;
@@ -142,6 +143,7 @@ public class DisplayServiceImpl extends VizCommonService implements DisplayServi
             }
 
             optLogger.info("Display({}) is create by user({})", display.toString(), user.getId());
+            bumpVersion(projectId);
 
             if (!CollectionUtils.isEmpty(displayInfo.getRoleIds())) {
                 List<Role> roles = roleMapper.getRolesByIds(displayInfo.getRoleIds());
@@ -194,6 +196,7 @@ public class DisplayServiceImpl extends VizCommonService implements DisplayServi
         displaySlideMapper.deleteByDisplayId(id);
         relRoleDisplayMapper.deleteByDisplayId(id);
         displayMapper.deleteById(id);
+        bumpVersion(projectId);
 
         return true;
     }
@@ -268,6 +271,7 @@ public class DisplayServiceImpl extends VizCommonService implements DisplayServi
             }
 
             optLogger.info("Display({}) is update by user({}), origin:{}", display.toString(), user.getId(), origin);
+            bumpVersion(projectId);
             if (displayUpdate.getRoleIds() != null) {
                 relRoleDisplayMapper.deleteByDisplayId(display.getId());
                 if (!CollectionUtils.isEmpty(displayUpdate.getRoleIds())) {
@@ -455,6 +459,7 @@ public class DisplayServiceImpl extends VizCommonService implements DisplayServi
             throw new ServerException("Copy display fail");
         }
         optLogger.info("Display({}) is copied by user({}), from ({})", display.toString(), user.getId(), originDisplay.toString());
+        bumpVersion(projectId);
 
         // copy relRoleDisplay
         if (!CollectionUtils.isEmpty(copy.getRoleIds())) {
@@ -499,4 +504,17 @@ public class DisplayServiceImpl extends VizCommonService implements DisplayServi
         relRoleDisplayMapper.deleteByProject(projectId);
         displayMapper.deleteByProject(projectId);
     }
+
+    /**
+     * 获取 display 所属项目 id，不存在时返回 null
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public Long getProjectId(Long id) {
+        Display display = permissionSnapshotCache.get(PermissionSnapshotCache.key("display", id),
+                () -> displayMapper.getById(id), Display::getProjectId);
+        return null == display ? null : display.getProjectId();
+    }
 }
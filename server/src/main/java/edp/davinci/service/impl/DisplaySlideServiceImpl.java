@@ -116,6 +116,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
         }
 
         optLogger.info("DisplaySlide({}) is create by user({})", displaySlide.toString(), user.getId());
+        bumpVersion(projectId);
 
 		if (!CollectionUtils.isEmpty(displaySlideCreate.getRoleIds())) {
 			List<Role> roles = roleMapper.getRolesByIds(displaySlideCreate.getRoleIds());
@@ -172,6 +173,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
 		displaySlideMapper.deleteById(slideId);
 
 		optLogger.info("DisplaySlide({}) is delete by user({})", displaySlide.toString(), user.getId());
+		bumpVersion(projectId);
 		return true;
     }
 
@@ -212,6 +214,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
 		}
 
 		displaySlideMapper.updateBatch(displaySlideList);
+		bumpVersion(projectId);
 		return true;
     }
 
@@ -293,6 +296,8 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
 					relRoleDisplaySlideWidgetList.toString(), user.getId());
 		}
 
+		bumpVersion(projectId);
+
 		if (null != clist && clist.size() > 1) {
 			optLogger.info("Insert batch memDisplaySlideWidget({}) by user({})", clist.toString(), user.getId());
 			// 自定义主键
@@ -365,6 +370,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
             log.error("Update batch MemDisplaySlideWidget error displayId:{}, slideId:{}", displayId, slideId);
 			throw new ServerException("UpdateMemDisplaySlideWidgets fail");
         }
+		bumpVersion(projectId);
 
 		if (!CollectionUtils.isEmpty(rolesMap)) {
 			Set<Long> memDisplaySlideWidgetIds = rolesMap.keySet();
@@ -431,6 +437,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
         }
 
         optLogger.info("MemDisplaySlideWidget({}) is update by user({}), origin({})", slideWidget.toString(), user.getId(), origin);
+        bumpVersion(projectId);
         return true;
     }
 
@@ -474,6 +481,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
 
         relRoleDisplaySlideWidgetMapper.deleteByMemDisplaySlideWidgetId(relationId);
         optLogger.info("MemDisplaySlideWidget({}) is delete by user({})", slideWidget.toString(), user.getId());
+        bumpVersion(projectId);
         return true;
     }
 
@@ -628,6 +636,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
             Set<Long> idSet = new HashSet<>(idList);
             relRoleDisplaySlideWidgetMapper.deleteByMemDisplaySlideWidgetIds(idSet);
             memDisplaySlideWidgetMapper.deleteBatchById(idList);
+            bumpVersion(projectId);
         }
         return true;
     }
@@ -707,6 +716,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
 		displaySlideMapper.update(displaySlide);
 		optLogger.info("DisplaySlide({}) is update by user({}), origin:{}", displaySlide.toString(), user.getId(),
 				slideWithDisplay.toString());
+		bumpVersion(projectId);
 
 		return background;
     }
@@ -780,6 +790,7 @@ public class DisplaySlideServiceImpl extends VizCommonService implements Display
 		memDisplaySlideWidgetMapper.update(memDisplaySlideWidget);
 		optLogger.info("MemDisplaySlideWidget({}) is update by user({}), origin:{}", memDisplaySlideWidget.toString(),
 				user.getId(), origin);
+		bumpVersion(projectId);
 
 		return background;
     }
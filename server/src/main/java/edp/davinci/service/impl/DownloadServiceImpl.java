@@ -98,7 +98,7 @@ public class DownloadServiceImpl extends DownloadCommonService implements Downlo
     }
 
     @Override
-    public Boolean submit(DownloadType type, Long id, User user, List<DownloadViewExecuteParam> params) {
+    public Boolean submit(DownloadType type, Long id, User user, List<DownloadViewExecuteParam> params, String engine, String format) {
         try {
             List<WidgetContext> widgetList = getWidgetContexts(type, id, user, params);
             DownloadRecord record = new DownloadRecord();
@@ -116,6 +116,10 @@ public class DownloadServiceImpl extends DownloadCommonService implements Downlo
                     .withResultLimit(resultLimit)
                     .withTaskKey("DownloadTask_" + id)
                     .withCustomLogger(downloadLogger)
+                    .withEngine(downloadSettings.getExcelEngine(engine))
+                    .withFileType(downloadSettings.getFileType(format))
+                    .withGzip(downloadSettings.isCsvGzip())
+                    .withArrowCompression(downloadSettings.isArrowCompression())
                     .build();
 
             ExecutorUtils.submitWorkbookTask(workBookContext, downloadLogger);
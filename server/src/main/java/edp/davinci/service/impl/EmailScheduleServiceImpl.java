@@ -44,6 +44,7 @@ import edp.davinci.dto.widgetDto.WidgetWithRelationDashboardId;
 import edp.davinci.dto.widgetDto.WidgetWithVizId;
 import edp.davinci.model.*;
 import edp.davinci.service.ProjectService;
+import edp.davinci.service.excel.DownloadSettings;
 import edp.davinci.service.excel.ExecutorUtils;
 import edp.davinci.service.excel.MsgWrapper;
 import edp.davinci.service.excel.WidgetContext;
@@ -98,6 +99,9 @@ public class EmailScheduleServiceImpl extends BaseScheduleService implements Sch
     @Value("${source.result-limit:1000000}")
     private int resultLimit;
 
+    @Autowired
+    private DownloadSettings downloadSettings;
+
     @Override
     public void execute(long jobId) throws Exception {
         CronJob cronJob = cronJobMapper.getById(jobId);
@@ -142,7 +146,11 @@ public class EmailScheduleServiceImpl extends BaseScheduleService implements Sch
         List<MailAttachment> attachmentList = new ArrayList<>();
 
         if (!CollectionUtils.isEmpty(excels)) {
-            excels.forEach(excel -> attachmentList.add(new MailAttachment(excel.getName() + FileTypeEnum.XLSX.getFormat(), excel.getFile())));
+            excels.forEach(excel -> {
+                FileTypeEnum fileType = FileTypeEnum.typeOfPath(excel.getFile().getName());
+                String format = (null != fileType ? fileType : FileTypeEnum.XLSX).getFormat();
+                attachmentList.add(new MailAttachment(excel.getName() + format, excel.getFile()));
+            });
         }
 
         if (!CollectionUtils.isEmpty(images)) {
@@ -193,6 +201,8 @@ public class EmailScheduleServiceImpl extends BaseScheduleService implements Sch
 
         Map<String, WorkBookContext> workBookContextMap = new HashMap<>();
 
+        FileTypeEnum fileType = downloadSettings.getFileType(cronJobConfig.getFileFormat());
+
         Map<String, Integer> vizOrderMap = new HashMap<>();
         Map<Long, Map<Long, Integer>> displayPageMap = new HashMap<>();
         Map<String, Integer> excelEntityOrderMap = new HashMap<>();
@@ -244,6 +254,10 @@ public class EmailScheduleServiceImpl extends BaseScheduleService implements Sch
                                 .withResultLimit(resultLimit)
                                 .withTaskKey("Schedule_" + jobId)
                                 .withCustomLogger(scheduleLogger)
+                                .withEngine(downloadSettings.getExcelEngine(null))
+                                .withFileType(fileType)
+                                .withGzip(downloadSettings.isCsvGzip())
+                                .withArrowCompression(downloadSettings.isArrowCompression())
                                 .build();
 
                         int page = slidePageMap.get(slideId);
@@ -283,6 +297,10 @@ public class EmailScheduleServiceImpl extends BaseScheduleService implements Sch
                             .withResultLimit(resultLimit)
                             .withTaskKey("Schedule_" + jobId)
                             .withCustomLogger(scheduleLogger)
+                            .withEngine(downloadSettings.getExcelEngine(null))
+                            .withFileType(fileType)
+                            .withGzip(downloadSettings.isCsvGzip())
+                            .withArrowCompression(downloadSettings.isArrowCompression())
                             .build();
 
                     workBookContextMap.put(dashboard.getName(), workBookContext);
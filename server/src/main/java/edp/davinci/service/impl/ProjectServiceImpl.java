@@ -33,6 +33,7 @@ import edp.davinci.core.enums.CronJobStatusEnum;
 import edp.davinci.core.enums.LogNameEnum;
 import edp.davinci.core.enums.UserOrgRoleEnum;
 import edp.davinci.core.enums.UserPermissionEnum;
+import edp.davinci.core.utils.PermissionSnapshotCache;
 import edp.davinci.dao.*;
 import edp.davinci.dto.organizationDto.OrganizationInfo;
 import edp.davinci.dto.projectDto.*;
@@ -107,6 +108,9 @@ public class ProjectServiceImpl extends BaseEntityService implements ProjectServ
     @Autowired
     private RelRoleViewMapper relRoleViewMapper;
 
+    @Autowired
+    private PermissionSnapshotCache permissionSnapshotCache;
+
     private static final CheckEntityEnum entity = CheckEntityEnum.PROJECT;
     
     @Override
@@ -558,14 +562,19 @@ public class ProjectServiceImpl extends BaseEntityService implements ProjectServ
      */
     @Override
     public ProjectDetail getProjectDetail(Long id, User user, boolean modify) throws NotFoundException, UnAuthorizedException {
-        ProjectDetail projectDetail = projectMapper.getProjectDetail(id);
-        if (null == projectDetail) {
+        ProjectDetail cachedDetail = permissionSnapshotCache.get(PermissionSnapshotCache.key("project", id),
+                () -> projectMapper.getProjectDetail(id));
+        if (null == cachedDetail) {
             log.error("Project({}) is not found", id);
             throw new NotFoundException("Project is not found");
         }
 
-        RelUserOrganization rel = relUserOrganizationMapper.getRel(user.getId(), projectDetail.getOrgId());
-        RelProjectAdmin relProjectAdmin = relProjectAdminMapper.getByProjectAndUser(id, user.getId());
+        // 调用方会修改返回的项目信息，不能直接返回缓存对象
+        ProjectDetail projectDetail = new ProjectDetail();
+        BeanUtils.copyProperties(cachedDetail, projectDetail);
+
+        RelUserOrganization rel = getUserOrgRel(user.getId(), projectDetail.getOrgId());
+        RelProjectAdmin relProjectAdmin = getProjectAdminRel(id, user.getId());
         boolean isCreator = projectDetail.getUserId().equals(user.getId()) && !projectDetail.getIsTransfer();
         boolean notOwner = !isCreator && null == relProjectAdmin && (null == rel || rel.getRole() != UserOrgRoleEnum.OWNER.getRole());
         if (modify) {
@@ -726,9 +735,12 @@ public class ProjectServiceImpl extends BaseEntityService implements ProjectServ
 			return ProjectPermission.adminPermission();
 		}
 
-		UserMaxProjectPermission permission = relRoleProjectMapper.getMaxPermission(projectDetail.getId(),
-				user.getId());
-		if (null != permission && null != permission.getProjectId()) {
+		UserMaxProjectPermission cachedPermission = permissionSnapshotCache.get(
+				PermissionSnapshotCache.key("maxPermission", projectDetail.getId(), user.getId()),
+				() -> relRoleProjectMapper.getMaxPermission(projectDetail.getId(), user.getId()));
+		if (null != cachedPermission && null != cachedPermission.getProjectId()) {
+			UserMaxProjectPermission permission = new UserMaxProjectPermission();
+			BeanUtils.copyProperties(cachedPermission, permission);
 			return permission;
 		}
 
@@ -782,7 +794,7 @@ public class ProjectServiceImpl extends BaseEntityService implements ProjectServ
         }
 
         //project所在org的owner
-        RelUserOrganization orgRel = relUserOrganizationMapper.getRel(user.getId(), projectDetail.getOrgId());
+        RelUserOrganization orgRel = getUserOrgRel(user.getId(), projectDetail.getOrgId());
         if (null == orgRel) {
             return false;
         }
@@ -792,11 +804,21 @@ public class ProjectServiceImpl extends BaseEntityService implements ProjectServ
         }
 
         //project的admin
-        RelProjectAdmin projectAdmin = relProjectAdminMapper.getByProjectAndUser(projectDetail.getId(), user.getId());
+        RelProjectAdmin projectAdmin = getProjectAdminRel(projectDetail.getId(), user.getId());
         if (null != projectAdmin) {
             return true;
         }
 
         return false;
     }
+
+    private RelUserOrganization getUserOrgRel(Long userId, Long orgId) {
+        return permissionSnapshotCache.get(PermissionSnapshotCache.key("orgRel", userId, orgId),
+                () -> relUserOrganizationMapper.getRel(userId, orgId));
+    }
+
+    private RelProjectAdmin getProjectAdminRel(Long projectId, Long userId) {
+        return permissionSnapshotCache.get(PermissionSnapshotCache.key("projectAdmin", projectId, userId),
+                () -> relProjectAdminMapper.getByProjectAndUser(projectId, userId));
+    }
 }
@@ -56,7 +56,7 @@ public class ShareDownloadServiceImpl extends DownloadCommonService implements S
     private ShareService shareService;
 
     @Override
-    public boolean submit(DownloadType downloadType, String uuid, List<DownloadViewExecuteParam> params) {
+    public boolean submit(DownloadType downloadType, String uuid, List<DownloadViewExecuteParam> params, String engine, String format) {
         ShareFactor shareFactor = ShareAuthAspect.SHARE_FACTOR_THREAD_LOCAL.get();
         try {
             List<WidgetContext> widgetList = getWidgetContexts(downloadType, shareFactor.getEntityId(), shareFactor.getUser(), params);
@@ -75,6 +75,10 @@ public class ShareDownloadServiceImpl extends DownloadCommonService implements S
                     .withUser(shareFactor.getUser())
                     .withResultLimit(resultLimit)
                     .withTaskKey("ShareDownload_" + uuid)
+                    .withEngine(downloadSettings.getExcelEngine(engine))
+                    .withFileType(downloadSettings.getFileType(format))
+                    .withGzip(downloadSettings.isCsvGzip())
+                    .withArrowCompression(downloadSettings.isArrowCompression())
                     .build();
             ExecutorUtils.submitWorkbookTask(workBookContext, null);
             log.info("Share download task submit:{}", wrapper);
@@ -21,6 +21,7 @@ package edp.davinci.service.impl;
 
 import com.alibaba.druid.util.StringUtils;
 import com.alibaba.fastjson.JSON;
+import edp.core.common.jdbc.ResultStreamHandler;
 import edp.core.exception.ForbiddenException;
 import edp.core.exception.NotFoundException;
 import edp.core.exception.ServerException;
@@ -304,6 +305,33 @@ public class ShareServiceImpl implements ShareService {
     public Paginate<Map<String, Object>> getShareData(ViewExecuteParam executeParam, User currentUser)
             throws NotFoundException, ServerException, ForbiddenException, UnAuthorizedException, SQLException {
 
+        ShareDataContext context = getShareDataContext(currentUser);
+        Paginate paginate = viewService.getResultDataList(context.maintainer, context.view, executeParam, context.user);
+        return paginate;
+    }
+
+    /**
+     * 流式获取分享数据
+     *
+     * @param executeParam
+     * @param currentUser
+     * @param handler
+     */
+    @Override
+    public void getShareDataStream(ViewExecuteParam executeParam, User currentUser, ResultStreamHandler handler)
+            throws NotFoundException, ServerException, ForbiddenException, UnAuthorizedException {
+
+        ShareDataContext context = getShareDataContext(currentUser);
+        viewService.getResultDataStream(context.maintainer, context.view, executeParam, context.user, handler);
+    }
+
+    /**
+     * 解析分享数据的执行上下文（view、执行用户、是否维护者）
+     *
+     * @param currentUser
+     * @return
+     */
+    private ShareDataContext getShareDataContext(User currentUser) {
         ShareFactor shareFactor = ShareAuthAspect.SHARE_FACTOR_THREAD_LOCAL.get();
         Widget widget = (Widget) shareFactor.getShareEntity();
         ViewWithProjectAndSource viewWithProjectAndSource = viewMapper.getViewWithProjectAndSourceByWidgetId(widget.getId());
@@ -317,9 +345,19 @@ public class ShareServiceImpl implements ShareService {
 
         ProjectDetail projectDetail = projectService.getProjectDetail(viewWithProjectAndSource.getProjectId(), user, false);
         boolean maintainer = projectService.isMaintainer(projectDetail, user);
+        return new ShareDataContext(viewWithProjectAndSource, user, maintainer);
+    }
 
-        Paginate paginate = viewService.getResultDataList(maintainer, viewWithProjectAndSource, executeParam, user);
-        return paginate;
+    private static class ShareDataContext {
+        private final ViewWithProjectAndSource view;
+        private final User user;
+        private final boolean maintainer;
+
+        ShareDataContext(ViewWithProjectAndSource view, User user, boolean maintainer) {
+            this.view = view;
+            this.user = user;
+            this.maintainer = maintainer;
+        }
     }
 
     /**
@@ -33,13 +33,14 @@ import edp.core.model.JdbcSourceInfo.JdbcSourceInfoBuilder;
 import edp.core.model.QueryColumn;
 import edp.core.model.TableInfo;
 import edp.core.utils.*;
-import edp.davinci.core.common.Constants;
 import edp.davinci.core.enums.*;
 import edp.davinci.core.model.DataUploadEntity;
 import edp.davinci.core.model.RedisMessageEntity;
 import edp.davinci.core.utils.CsvUtils;
 import edp.davinci.core.utils.ExcelUtils;
+import edp.davinci.core.utils.MetadataVersionManager;
 import edp.davinci.core.utils.SourcePasswordEncryptUtils;
+import edp.davinci.core.utils.SqlPlanCache;
 import edp.davinci.dao.SourceMapper;
 import edp.davinci.dao.ViewMapper;
 import edp.davinci.dto.projectDto.ProjectDetail;
@@ -62,7 +63,6 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroup;
-import org.stringtemplate.v4.STGroupFile;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
@@ -327,6 +327,9 @@ public class SourceServiceImpl extends BaseEntityService implements SourceServic
             }
 
             optLogger.info("Source({}) is update by user({})", source.toString(), user.getId());
+            // view 详情包含 source 信息
+            bumpVersion(projectId, viewMapper.getBySourceId(source.getId()).stream()
+                    .map(v -> MetadataVersionManager.viewKey(v.getId())).toArray(String[]::new));
             return source;
 
         } finally {
@@ -699,7 +702,7 @@ public class SourceServiceImpl extends BaseEntityService implements SourceServic
 
         SqlUtils sqlUtils = this.sqlUtils.init(source);
 
-        STGroup stg = new STGroupFile(Constants.SQL_TEMPLATE);
+        STGroup stg = SqlPlanCache.getSqlTemplateGroup();
 
         String sql = null;
 
@@ -808,7 +811,7 @@ public class SourceServiceImpl extends BaseEntityService implements SourceServic
 
             ExecutorService executorService = Executors.newFixedThreadPool(Math.min(totalPage, 8));
 
-            STGroup stg = new STGroupFile(Constants.SQL_TEMPLATE);
+            STGroup stg = SqlPlanCache.getSqlTemplateGroup();
             ST st = stg.getInstanceOf("insertData");
             st.add("tableName", tableName);
             st.add("columns", headers);
@@ -4,9 +4,9 @@ import com.alibaba.fastjson.JSON;
 import edp.core.model.QueryColumn;
 import edp.core.model.TableInfo;
 import edp.core.utils.SqlUtils;
-import edp.davinci.core.common.Constants;
 import edp.davinci.core.enums.SourceTypeEnum;
 import edp.davinci.core.utils.SourcePasswordEncryptUtils;
+import edp.davinci.core.utils.SqlPlanCache;
 import edp.davinci.service.StatisticService;
 import edp.davinci.service.elastic.ElasticOperationService;
 import edp.davinci.service.kafka.KafkaOperationService;
@@ -17,7 +17,6 @@ import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroup;
-import org.stringtemplate.v4.STGroupFile;
 
 import javax.annotation.PostConstruct;
 import java.lang.reflect.Method;
@@ -121,7 +120,7 @@ public class StatisticServiceImpl implements StatisticService {
     private String getInsertSql(Class clz, Set<QueryColumn> headers){
         String tableName = getTableName4Info(clz);
 
-        STGroup stg = new STGroupFile(Constants.SQL_TEMPLATE);
+        STGroup stg = SqlPlanCache.getSqlTemplateGroup();
         ST st = stg.getInstanceOf("insertData");
         st.add("tableName", tableName);
         st.add("columns", headers);
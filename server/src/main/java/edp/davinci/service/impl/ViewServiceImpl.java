@@ -23,17 +23,25 @@ import com.alibaba.druid.util.StringUtils;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edp.core.common.jdbc.ResultStreamHandler;
 import edp.core.exception.NotFoundException;
 import edp.core.exception.ServerException;
 import edp.core.exception.UnAuthorizedException;
 import edp.core.model.Paginate;
 import edp.core.model.PaginateWithQueryColumns;
+import edp.core.model.QueryColumn;
 import edp.core.utils.*;
-import edp.davinci.core.common.Constants;
+import edp.davinci.core.common.BatchDataHandler;
 import edp.davinci.core.enums.*;
 import edp.davinci.core.model.SqlEntity;
 import edp.davinci.core.model.SqlFilter;
+import edp.davinci.core.utils.ConcurrencyQueryUtils;
+import edp.davinci.core.utils.MetadataVersionManager;
+import edp.davinci.core.utils.QueryResultCache;
+import edp.davinci.core.utils.SqlParamExecutor;
 import edp.davinci.core.utils.SqlParseUtils;
+import edp.davinci.core.utils.SqlPlanCache;
 import edp.davinci.dao.RelRoleViewMapper;
 import edp.davinci.dao.SourceMapper;
 import edp.davinci.dao.ViewMapper;
@@ -51,17 +59,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroup;
-import org.stringtemplate.v4.STGroupFile;
 
+import javax.annotation.PostConstruct;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
+import static edp.core.consts.Consts.AT_SYMBOL;
 import static edp.core.consts.Consts.COMMA;
 import static edp.core.consts.Consts.MINUS;
 import static edp.davinci.core.common.Constants.NO_AUTH_PERMISSION;
@@ -91,7 +101,7 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
     private SqlUtils sqlUtils;
 
     @Autowired
-    private RedisUtils redisUtils;
+    private QueryResultCache queryResultCache;
 
     @Autowired
     private ProjectService projectService;
@@ -99,12 +109,51 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
     @Autowired
     private SqlParseUtils sqlParseUtils;
 
+    @Autowired
+    private SqlParamExecutor sqlParamExecutor;
+
     private static final String SQL_VARABLE_KEY = "name";
 
     private static final CheckEntityEnum entity = CheckEntityEnum.VIEW;
     
     private static final  ExecutorService ROLEPARAM_THREADPOOL = Executors.newFixedThreadPool(8);
 
+    /**
+     * 批量查询按数据源排队，超出并发数的查询在队列中等待，不占用工作线程
+     */
+    private static final Map<Long, BatchSourceQueue> BATCH_SOURCE_QUEUES = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService BATCH_TIMER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Batch-data-timer-%d").setDaemon(true).build());
+
+    private ThreadPoolExecutor batchWorkers;
+
+    @Value("${source.batch.pool-size:32}")
+    private int batchPoolSize;
+
+    @Value("${source.batch.source-concurrency:4}")
+    private int batchSourceConcurrency;
+
+    @Value("${source.batch.acquire-timeout-millis:60000}")
+    private long batchAcquireTimeoutMillis;
+
+    @Value("${source.coalesce-wait-millis:600000}")
+    private long coalesceWaitMillis;
+
+    private static final ResultStreamHandler DISCARD_HANDLER = new ResultStreamHandler() {
+        @Override
+        public void onColumns(List<QueryColumn> columns) {
+        }
+
+        @Override
+        public void onRow(Object[] values) {
+        }
+
+        @Override
+        public void onFinish(int pageNo, int pageSize, long totalCount) {
+        }
+    };
+
     @Override
     public boolean isExist(String name, Long id, Long projectId) {
         Long viewId = viewMapper.getByNameWithProjectId(name, projectId);
@@ -253,6 +302,7 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
             }
 
             optLogger.info("View({}) is create by user({})", view.toString(), user.getId());
+            bumpVersion(projectId);
 
             if (!CollectionUtils.isEmpty(viewCreate.getRoles()) && !StringUtils.isEmpty(viewCreate.getVariable())) {
                 checkAndInsertRoleParam(viewCreate.getVariable(), viewCreate.getRoles(), user, view);
@@ -325,6 +375,7 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
             }
 
             optLogger.info("View({}) is update by user({}), origin:{}", view.toString(), user.getId(), originStr);
+            bumpVersion(projectId, MetadataVersionManager.viewKey(id));
 
             if (CollectionUtils.isEmpty(viewUpdate.getRoles())) {
                 relRoleViewMapper.deleteByViewId(id);
@@ -385,6 +436,7 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
 
         optLogger.info("View({}) is delete by user({})", view.toString(), user.getId());
         relRoleViewMapper.deleteByViewId(id);
+        bumpVersion(view.getProjectId(), MetadataVersionManager.viewKey(id));
         return true;
     }
 
@@ -493,6 +545,208 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
         return getResultDataList(projectService.isMaintainer(projectDetail, user), viewWithSource, executeParam, user);
     }
 
+    /**
+     * 流式返回view源数据集
+     *
+     * @param id
+     * @param executeParam
+     * @param user
+     * @param handler
+     */
+    @Override
+    public void getDataStream(Long id, ViewExecuteParam executeParam, User user, ResultStreamHandler handler) throws NotFoundException, UnAuthorizedException, ServerException {
+
+        if (null == executeParam || (CollectionUtils.isEmpty(executeParam.getGroups()) && CollectionUtils.isEmpty(executeParam.getAggregators()))) {
+            return;
+        }
+
+        ViewWithSource viewWithSource = getViewWithSource(id);
+        ProjectDetail projectDetail = projectService.getProjectDetail(viewWithSource.getProjectId(), user, false);
+        if (!projectService.allowGetData(projectDetail, user)) {
+            throw new UnAuthorizedException("You have not permission to get data");
+        }
+
+        getResultDataStream(projectService.isMaintainer(projectDetail, user), viewWithSource, executeParam, user, handler);
+    }
+
+    /**
+     * 批量获取数据
+     * 同一 project 只校验一次权限，相同 view 与参数的查询只执行一次
+     * 查询并行执行，同一数据源的并发数受限，每个查询完成后立即回调 handler
+     *
+     * @param params
+     * @param user
+     * @param handler
+     */
+    @Override
+    public void getBatchData(List<BatchViewExecuteParam> params, User user, BatchDataHandler handler) throws ServerException {
+        if (CollectionUtils.isEmpty(params)) {
+            return;
+        }
+
+        Map<Long, ViewWithSource> views = new HashMap<>();
+        Map<Long, Boolean> maintainers = new HashMap<>();
+        Map<String, CompletableFuture<PaginateWithQueryColumns>> queries = new HashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (BatchViewExecuteParam param : params) {
+            String key = param.getKey();
+            Long id = param.getId();
+            try {
+                if (null == id || id < 1L) {
+                    throw new NotFoundException("Invalid view id");
+                }
+
+                ViewWithSource viewWithSource = views.computeIfAbsent(id, this::getViewWithSource);
+                boolean isMaintainer = maintainers.computeIfAbsent(viewWithSource.getProjectId(), projectId -> {
+                    ProjectDetail projectDetail = projectService.getProjectDetail(projectId, user, false);
+                    if (!projectService.allowGetData(projectDetail, user)) {
+                        throw new UnAuthorizedException("You have not permission to get data");
+                    }
+                    return projectService.isMaintainer(projectDetail, user);
+                });
+
+                ViewExecuteParam executeParam = param.getParam();
+                if (null == executeParam || (CollectionUtils.isEmpty(executeParam.getGroups()) && CollectionUtils.isEmpty(executeParam.getAggregators()))) {
+                    handler.onResult(key, id, null);
+                    continue;
+                }
+
+                String queryKey = id + AT_SYMBOL + JSON.toJSONString(executeParam);
+                CompletableFuture<PaginateWithQueryColumns> query = queries.computeIfAbsent(queryKey,
+                        k -> submitBatchQuery(isMaintainer, viewWithSource, executeParam, user));
+
+                futures.add(query.handle((paginate, e) -> {
+                    if (null == e) {
+                        handler.onResult(key, id, paginate);
+                    } else {
+                        handler.onError(key, id, e);
+                    }
+                    return null;
+                }));
+            } catch (RuntimeException e) {
+                handler.onError(key, id, e);
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ServerException("Batch get data is interrupted");
+        } catch (ExecutionException e) {
+            log.error(e.toString(), e);
+        }
+    }
+
+    @PostConstruct
+    public void initBatchWorkers() {
+        int size = Math.max(1, batchPoolSize);
+        batchWorkers = new ThreadPoolExecutor(size, size, 60_000, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("Batch-data-worker-%d").setDaemon(true).build());
+        batchWorkers.allowCoreThreadTimeOut(true);
+    }
+
+    private CompletableFuture<PaginateWithQueryColumns> submitBatchQuery(boolean isMaintainer,
+                                                                         ViewWithSource viewWithSource,
+                                                                         ViewExecuteParam executeParam,
+                                                                         User user) {
+        Long sourceId = viewWithSource.getSourceId();
+        BatchQuery query = new BatchQuery(sourceId, () -> getResultDataList(isMaintainer, viewWithSource, executeParam, user));
+
+        BatchQuery[] start = new BatchQuery[1];
+        BATCH_SOURCE_QUEUES.compute(sourceId, (k, queue) -> {
+            if (null == queue) {
+                queue = new BatchSourceQueue();
+            }
+            // 每次提交读取当前配置，配置变更后新的并发数立即生效
+            queue.concurrency = Math.max(1, batchSourceConcurrency);
+            if (queue.running < queue.concurrency) {
+                queue.running++;
+                start[0] = query;
+            } else {
+                queue.waiting.add(query);
+            }
+            return queue;
+        });
+
+        if (null != start[0]) {
+            runBatchQuery(start[0]);
+        } else {
+            query.timeout = BATCH_TIMER.schedule(() -> {
+                BATCH_SOURCE_QUEUES.computeIfPresent(sourceId, (k, queue) -> {
+                    queue.waiting.remove(query);
+                    return queue;
+                });
+                query.future.completeExceptionally(new ServerException("Too many queries on source, please try again later"));
+            }, batchAcquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return query.future;
+    }
+
+    private void runBatchQuery(BatchQuery query) {
+        if (null != query.timeout) {
+            query.timeout.cancel(false);
+        }
+        if (query.future.isDone()) {
+            // 等待超时或已取消
+            finishBatchQuery(query.sourceId);
+            return;
+        }
+        batchWorkers.execute(() -> {
+            try {
+                query.future.complete(query.task.call());
+            } catch (Throwable e) {
+                query.future.completeExceptionally(e instanceof SQLException ? new ServerException(e.getMessage(), e) : e);
+            } finally {
+                finishBatchQuery(query.sourceId);
+            }
+        });
+    }
+
+    /**
+     * 释放数据源并发名额，有排队查询时直接交给下一个，空闲时移除队列
+     *
+     * @param sourceId
+     */
+    private void finishBatchQuery(Long sourceId) {
+        BatchQuery[] next = new BatchQuery[1];
+        BATCH_SOURCE_QUEUES.computeIfPresent(sourceId, (k, queue) -> {
+            queue.running--;
+            while (queue.running < queue.concurrency && !queue.waiting.isEmpty()) {
+                BatchQuery query = queue.waiting.poll();
+                if (!query.future.isDone()) {
+                    queue.running++;
+                    next[0] = query;
+                    break;
+                }
+            }
+            return queue.running <= 0 && queue.waiting.isEmpty() ? null : queue;
+        });
+        if (null != next[0]) {
+            runBatchQuery(next[0]);
+        }
+    }
+
+    private static final class BatchSourceQueue {
+        private int concurrency;
+        private int running;
+        private final Deque<BatchQuery> waiting = new ArrayDeque<>();
+    }
+
+    private static final class BatchQuery {
+        private final Long sourceId;
+        private final Callable<PaginateWithQueryColumns> task;
+        private final CompletableFuture<PaginateWithQueryColumns> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeout;
+
+        private BatchQuery(Long sourceId, Callable<PaginateWithQueryColumns> task) {
+            this.sourceId = sourceId;
+            this.task = task;
+        }
+    }
+
     private ViewWithSource getViewWithSource(Long id) {
         ViewWithSource viewWithSource = viewMapper.getViewWithSource(id);
         if (null == viewWithSource) {
@@ -508,7 +762,7 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
         }
 
         // 构造参数， 原有的被传入的替换
-        STGroup stg = new STGroupFile(Constants.SQL_TEMPLATE);
+        STGroup stg = SqlPlanCache.getSqlTemplateGroup();
         ST st = stg.getInstanceOf("querySql");
         st.add("nativeQuery", executeParam.isNativeQuery());
         st.add("groups", executeParam.getGroups());
@@ -589,28 +843,11 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
             }
 
             Source source = viewWithSource.getSource();
-
-            String sqlTempDelimiter = SqlUtils.getSqlTempDelimiter(source.getProperties());
-
-            List<SqlVariable> variables = viewWithSource.getVariables();
-            SqlEntity sqlEntity = sqlParseUtils.parseSql(viewWithSource.getSql(), variables, sqlTempDelimiter, user, isMaintainer);
-            Set<String> excludeColumns = new HashSet<>();
-            packageParams(isMaintainer, viewWithSource.getId(), sqlEntity, variables, executeParam.getParams(), excludeColumns, user);
-
-            String srcSql = sqlParseUtils.replaceParams(sqlEntity.getSql(), sqlEntity.getQueryParams(), sqlEntity.getAuthParams(), sqlTempDelimiter);
-
             SqlUtils sqlUtils = this.sqlUtils.init(source);
+            Set<String> excludeColumns = new HashSet<>();
 
-            List<String> executeSqlList = sqlParseUtils.getSqls(srcSql, false);
-            if (!CollectionUtils.isEmpty(executeSqlList)) {
-                executeSqlList.forEach(sqlUtils::execute);
-            }
-
-            List<String> querySqlList = sqlParseUtils.getSqls(srcSql, true);
+            List<String> querySqlList = getQuerySqlList(isMaintainer, viewWithSource, executeParam, user, sqlUtils, excludeColumns);
             if (!CollectionUtils.isEmpty(querySqlList)) {
-                buildQuerySql(querySqlList, source, executeParam);
-                executeParam.addExcludeColumn(excludeColumns, source.getJdbcUrl(), source.getDbVersion());
-
                 if (null != executeParam.getCache() && executeParam.getCache() && executeParam.getExpired() > 0L) {
 
                     StringBuilder saltBuilder = new StringBuilder();
@@ -625,8 +862,9 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
                     if (!executeParam.getFlush()) {
 
                         try {
-                            Object object = redisUtils.get(cacheKey);
-                            if (null != object && executeParam.getCache()) {
+                            Object object = queryResultCache.get(cacheKey, executeParam.getExpired());
+                            // 仅使用列式结果缓存
+                            if (object instanceof PaginateWithQueryColumns && null != ((PaginateWithQueryColumns) object).getData()) {
                                 paginate = (PaginateWithQueryColumns) object;
                                 return paginate;
                             }
@@ -636,11 +874,36 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
                     }
                 }
 
-                for (String sql : querySqlList) {
-                    paginate = sqlUtils.syncQuery4Paginate(SqlParseUtils.rebuildSqlWithFragment(sql),
-                            executeParam.getPageNo(), executeParam.getPageSize(), executeParam.getTotalCount(),
-                            executeParam.getLimit(), excludeColumns);
-                }
+                ConcurrencyQueryFactor factor = ConcurrencyQueryFactor.builder()
+                        .withSourceId(source.getId())
+                        .withIsDistinct(false)
+                        .withSqlList(querySqlList)
+                        .withPageNo(executeParam.getPageNo())
+                        .withPageSize(executeParam.getPageSize())
+                        .withTotalCount(executeParam.getTotalCount())
+                        .withLimit(executeParam.getLimit())
+                        .withExcludeColumns(excludeColumns)
+                        .build();
+
+                final String resultCacheKey = cacheKey;
+                paginate = ConcurrencyQueryUtils.execute(executeParam, factor, coalesceWaitMillis, () -> {
+                    PaginateWithQueryColumns result = null;
+                    for (String sql : querySqlList) {
+                        String querySql = SqlParseUtils.rebuildSqlWithFragment(sql);
+                        if (executeParam.getFlush()) {
+                            sqlUtils.invalidateCount(querySql);
+                        }
+                        result = sqlUtils.syncQuery4Paginate(querySql,
+                                executeParam.getPageNo(), executeParam.getPageSize(), executeParam.getTotalCount(),
+                                executeParam.getLimit(), excludeColumns);
+                    }
+                    // 仅由实际执行查询的线程写缓存，合并等待的请求不重复写入；估算的总数不缓存
+                    if (null != resultCacheKey && null != result && !result.isApproximate()
+                            && !CollectionUtils.isEmpty(result.getResultList())) {
+                        queryResultCache.set(resultCacheKey, result, executeParam.getExpired());
+                    }
+                    return result;
+                });
             }
 
         } catch (Exception e) {
@@ -648,12 +911,88 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
             throw new ServerException(e.getMessage());
         }
 
-        if (null != executeParam.getCache() && executeParam.getCache() && executeParam.getExpired() > 0L
-                && null != paginate && !CollectionUtils.isEmpty(paginate.getResultList())) {
-            redisUtils.set(cacheKey, paginate, executeParam.getExpired(), TimeUnit.SECONDS);
+        return paginate;
+    }
+
+    /**
+     * 流式获取结果集，不使用缓存
+     *
+     * @param isMaintainer
+     * @param viewWithSource
+     * @param executeParam
+     * @param user
+     * @param handler
+     * @throws ServerException
+     */
+    @Override
+    public void getResultDataStream(boolean isMaintainer,
+                                    ViewWithSource viewWithSource,
+                                    ViewExecuteParam executeParam,
+                                    User user,
+                                    ResultStreamHandler handler) throws ServerException {
+
+        if (null == executeParam || (CollectionUtils.isEmpty(executeParam.getGroups()) && CollectionUtils.isEmpty(executeParam.getAggregators()))) {
+            return;
+        }
+
+        if (null == viewWithSource.getSource()) {
+            throw new NotFoundException("Source is not found");
         }
 
-        return paginate;
+        if (StringUtils.isEmpty(viewWithSource.getSql())) {
+            return;
+        }
+
+        try {
+            SqlUtils sqlUtils = this.sqlUtils.init(viewWithSource.getSource());
+            Set<String> excludeColumns = new HashSet<>();
+
+            List<String> querySqlList = getQuerySqlList(isMaintainer, viewWithSource, executeParam, user, sqlUtils, excludeColumns);
+            if (CollectionUtils.isEmpty(querySqlList)) {
+                return;
+            }
+
+            int last = querySqlList.size() - 1;
+            for (int i = 0; i <= last; i++) {
+                sqlUtils.syncStream4Paginate(SqlParseUtils.rebuildSqlWithFragment(querySqlList.get(i)),
+                        executeParam.getPageNo(), executeParam.getPageSize(), executeParam.getTotalCount(),
+                        executeParam.getLimit(), excludeColumns, i == last ? handler : DISCARD_HANDLER);
+            }
+        } catch (Exception e) {
+            log.error(e.toString(), e);
+            throw new ServerException(e.getMessage());
+        }
+    }
+
+    private List<String> getQuerySqlList(boolean isMaintainer,
+                                         ViewWithSource viewWithSource,
+                                         ViewExecuteParam executeParam,
+                                         User user,
+                                         SqlUtils sqlUtils,
+                                         Set<String> excludeColumns) throws Exception {
+
+        Source source = viewWithSource.getSource();
+
+        String sqlTempDelimiter = SqlUtils.getSqlTempDelimiter(source.getProperties());
+
+        List<SqlVariable> variables = viewWithSource.getVariables();
+        SqlEntity sqlEntity = sqlParseUtils.parseSql(viewWithSource.getSql(), variables, sqlTempDelimiter, user, isMaintainer);
+        packageParams(isMaintainer, viewWithSource.getId(), sqlEntity, variables, executeParam.getParams(), excludeColumns, user);
+
+        String srcSql = sqlParseUtils.replaceParams(sqlEntity.getSql(), sqlEntity.getQueryParams(), sqlEntity.getAuthParams(), sqlTempDelimiter);
+
+        List<String> executeSqlList = sqlParseUtils.getSqls(srcSql, false);
+        if (!CollectionUtils.isEmpty(executeSqlList)) {
+            executeSqlList.forEach(sqlUtils::execute);
+        }
+
+        List<String> querySqlList = sqlParseUtils.getSqls(srcSql, true);
+        if (!CollectionUtils.isEmpty(querySqlList)) {
+            buildQuerySql(querySqlList, source, executeParam);
+            executeParam.addExcludeColumn(excludeColumns, source.getJdbcUrl(), source.getDbVersion());
+        }
+
+        return querySqlList;
     }
 
 
@@ -698,7 +1037,7 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
             if (!CollectionUtils.isEmpty(querySqlList)) {
                 String cacheKey = null;
                 if (null != param) {
-                    STGroup stg = new STGroupFile(Constants.SQL_TEMPLATE);
+                    STGroup stg = SqlPlanCache.getSqlTemplateGroup();
                     ST st = stg.getInstanceOf("queryDistinctSql");
                     st.add("columns", param.getColumns());
                     st.add("filters", convertFilters(param.getFilters(), source));
@@ -713,7 +1052,7 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
                         cacheKey = MD5Util.getMD5(sql, true, 32);
 
                         try {
-                            Object object = redisUtils.get(cacheKey);
+                            Object object = queryResultCache.get(cacheKey, param.getExpired());
                             if (null != object) {
                                 return (List) object;
                             }
@@ -722,14 +1061,23 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
                         }
                     }
                 }
-                List<Map<String, Object>> list = null;
-                for (String sql : querySqlList) {
-                    list = sqlUtils.query4List(SqlParseUtils.rebuildSqlWithFragment(sql), -1);
-                }
-
-                if (null != param.getCache() && param.getCache() && param.getExpired().longValue() > 0L) {
-                    redisUtils.set(cacheKey, list, param.getExpired(), TimeUnit.SECONDS);
-                }
+                ConcurrencyQueryFactor factor = ConcurrencyQueryFactor.builder()
+                        .withSourceId(source.getId())
+                        .withIsDistinct(true)
+                        .withSqlList(querySqlList)
+                        .build();
+
+                final String resultCacheKey = cacheKey;
+                List<Map<String, Object>> list = ConcurrencyQueryUtils.execute(param, factor, coalesceWaitMillis, () -> {
+                    List<Map<String, Object>> result = null;
+                    for (String sql : querySqlList) {
+                        result = sqlUtils.query4List(SqlParseUtils.rebuildSqlWithFragment(sql), -1);
+                    }
+                    if (null != resultCacheKey) {
+                        queryResultCache.set(resultCacheKey, result, param.getExpired());
+                    }
+                    return result;
+                });
 
                 if (null != list) {
                     return list;
@@ -793,42 +1141,20 @@ ViewServiceImpl extends BaseEntityService implements ViewService {
 
         //权限参数
         if (!CollectionUtils.isEmpty(authVariables)) {
-            ExecutorService executorService = Executors.newFixedThreadPool(authVariables.size() > 8 ? 8 : authVariables.size());
-            Map<String, Set<String>> map = new Hashtable<>();
-            List<Future> futures = new ArrayList<>(authVariables.size());
-            try {
-                authVariables.forEach(sqlVariable -> {
-                    futures.add(executorService.submit(() -> {
-                        if (null != sqlVariable) {
-                            Set<String> vSet = null;
-                            if (map.containsKey(sqlVariable.getName().trim())) {
-                                vSet = map.get(sqlVariable.getName().trim());
-                            } else {
-                                vSet = new HashSet<>();
-                            }
-
-                            List<String> values = sqlParseUtils.getAuthVarValue(sqlVariable, user.getEmail());
-                            if (null == values) {
-                                vSet.add(NO_AUTH_PERMISSION);
-                            } else if (!values.isEmpty()) {
-                                vSet.addAll(values);
-                            }
-                            map.put(sqlVariable.getName().trim(), vSet);
-                        }
-                    }));
-                });
-                try {
-                    for (Future future : futures) {
-                        future.get();
-                    }
-                } catch (ExecutionException e) {
-                    executorService.shutdownNow();
-                    throw new ServerException(e.getMessage());
+            List<SqlVariable> variableList = authVariables.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            List<Callable<List<String>>> tasks = new ArrayList<>(variableList.size());
+            variableList.forEach(sqlVariable -> tasks.add(() -> sqlParseUtils.getAuthVarValue(sqlVariable, user.getEmail())));
+            List<List<String>> valuesList = sqlParamExecutor.invokeAll(tasks);
+
+            Map<String, Set<String>> map = new HashMap<>();
+            for (int i = 0; i < variableList.size(); i++) {
+                Set<String> vSet = map.computeIfAbsent(variableList.get(i).getName().trim(), k -> new HashSet<>());
+                List<String> values = valuesList.get(i);
+                if (null == values) {
+                    vSet.add(NO_AUTH_PERMISSION);
+                } else if (!values.isEmpty()) {
+                    vSet.addAll(values);
                 }
-            } catch (InterruptedException e) {
-                log.error(e.toString(), e);
-            } finally {
-                executorService.shutdown();
             }
 
             if (!CollectionUtils.isEmpty(map)) {
@@ -32,6 +32,7 @@ import org.springframework.stereotype.Component;
 import edp.core.utils.CollectionUtils;
 import edp.davinci.core.enums.VizEnum;
 import edp.davinci.core.model.RoleDisableViz;
+import edp.davinci.core.utils.PermissionSnapshotCache;
 import edp.davinci.dao.DashboardMapper;
 import edp.davinci.dao.DashboardPortalMapper;
 import edp.davinci.dao.DisplayMapper;
@@ -113,6 +114,34 @@ public class VizCommonService extends BaseEntityService {
      * @return
      */
     protected List<Long> getDisableVizs(Long userId, Long featureId, List<Long> allVizs, VizEnum vizEnum) {
+        if (null != allVizs) {
+            return computeDisableVizs(userId, featureId, allVizs, vizEnum);
+        }
+        // 未指定viz范围时结果只与用户、角色和viz配置有关，可使用权限快照缓存
+        List<Long> disableVizs = permissionSnapshotCache.getList(
+                PermissionSnapshotCache.key("disableVizs", vizEnum, userId, featureId),
+                () -> computeDisableVizs(userId, featureId, null, vizEnum),
+                list -> getFeatureProjectId(featureId, vizEnum));
+        return new ArrayList<>(disableVizs);
+    }
+
+    private Long getFeatureProjectId(Long featureId, VizEnum vizEnum) {
+        switch (vizEnum) {
+            case PORTAL:
+            case DISPLAY:
+                return featureId;
+            case DASHBOARD:
+                DashboardPortal portal = dashboardPortalMapper.getById(featureId);
+                return null == portal ? null : portal.getProjectId();
+            case SLIDE:
+                Display display = displayMapper.getById(featureId);
+                return null == display ? null : display.getProjectId();
+            default:
+                return null;
+        }
+    }
+
+    private List<Long> computeDisableVizs(Long userId, Long featureId, List<Long> allVizs, VizEnum vizEnum) {
         List<RoleDisableViz> disables = null;
         List<Long> allRoles = null;
         switch (vizEnum) {
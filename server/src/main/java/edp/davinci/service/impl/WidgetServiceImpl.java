@@ -25,8 +25,8 @@ import edp.core.exception.NotFoundException;
 import edp.core.exception.ServerException;
 import edp.core.exception.UnAuthorizedException;
 import edp.core.model.PaginateWithQueryColumns;
-import edp.core.model.QueryColumn;
 import edp.core.utils.*;
+import edp.davinci.core.common.CsvResultStreamWriter;
 import edp.davinci.core.common.ErrorMsg;
 import edp.davinci.core.config.SpringContextHolder;
 import edp.davinci.core.enums.CheckEntityEnum;
@@ -34,8 +34,8 @@ import edp.davinci.core.enums.FileTypeEnum;
 import edp.davinci.core.enums.LogNameEnum;
 import edp.davinci.core.enums.UserPermissionEnum;
 import edp.davinci.core.model.SqlEntity;
-import edp.davinci.core.utils.CsvUtils;
 import edp.davinci.core.utils.ExcelUtils;
+import edp.davinci.core.utils.MetadataVersionManager;
 import edp.davinci.core.utils.SqlParseUtils;
 import edp.davinci.core.utils.VizUtils;
 import edp.davinci.dao.MemDashboardWidgetMapper;
@@ -228,6 +228,7 @@ public class WidgetServiceImpl extends BaseEntityService implements WidgetServic
             }
 
             optLogger.info("Widget({}) is create by user({})", widget.toString());
+            bumpVersion(projectId);
             return widget;
 
         } finally {
@@ -283,6 +284,7 @@ public class WidgetServiceImpl extends BaseEntityService implements WidgetServic
 
             optLogger.info("Widget({}) is update by user({}), origin:{}", widget.toString(), user.getId(),
                     originStr);
+            bumpVersion(projectId, MetadataVersionManager.widgetKey(widget.getId()));
             return true;
 
         } finally {
@@ -319,6 +321,7 @@ public class WidgetServiceImpl extends BaseEntityService implements WidgetServic
         widgetMapper.deleteById(id);
 
         optLogger.info("Widget({}) is delete by user({})", widget.toString(), user.getId());
+        bumpVersion(widget.getProjectId(), MetadataVersionManager.widgetKey(id));
         return true;
     }
 
@@ -381,20 +384,30 @@ public class WidgetServiceImpl extends BaseEntityService implements WidgetServic
             if (type.equals(FileTypeEnum.CSV.getType())) {
                 ViewWithSource viewWithSource = viewMapper.getViewWithSource(widget.getViewId());
                 boolean maintainer = projectService.isMaintainer(projectDetail, user);
-                PaginateWithQueryColumns paginate = viewService.getResultDataList(maintainer, viewWithSource, executeParam, user);
-                List<QueryColumn> columns = paginate.getColumns();
-                if (!CollectionUtils.isEmpty(columns)) {
-                    File file = new File(rootPath);
-                    if (!file.exists()) {
-                        file.mkdirs();
-                    }
-
-                    String csvName = widget.getName() + "_" +
-                            System.currentTimeMillis() +
-                            UUID.randomUUID().toString().replace("-", EMPTY) +
-                            FileTypeEnum.CSV.getFormat();
+                File file = new File(rootPath);
+                if (!file.exists()) {
+                    file.mkdirs();
+                }
 
-                    filePath = CsvUtils.formatCsvWithFirstAsHeader(rootPath, csvName, columns, paginate.getResultList());
+                String csvName = widget.getName() + "_" +
+                        System.currentTimeMillis() +
+                        UUID.randomUUID().toString().replace("-", EMPTY) +
+                        FileTypeEnum.CSV.getFormat();
+
+                //结果集逐行写入文件，不在内存中聚合
+                String csvPath = rootPath + csvName;
+                boolean started;
+                try (CsvResultStreamWriter writer = CsvResultStreamWriter.open(csvPath, false)) {
+                    viewService.getResultDataStream(maintainer, viewWithSource, executeParam, user, writer);
+                    started = writer.isStarted();
+                } catch (Exception e) {
+                    FileUtils.delete(csvPath);
+                    throw e;
+                }
+                if (started) {
+                    filePath = csvPath;
+                } else {
+                    FileUtils.delete(csvPath);
                 }
             } else if (type.equals(FileTypeEnum.XLSX.getType())) {
 
@@ -485,7 +498,7 @@ public class WidgetServiceImpl extends BaseEntityService implements WidgetServic
                             viewWithProjectAndSource, executeParam, user);
 
                     sheet = wb.createSheet(sheetName);
-                    ExcelUtils.writeSheet(sheet, paginate.getColumns(), paginate.getResultList(), wb, containType,
+                    ExcelUtils.writeSheet(sheet, paginate.getColumns(), paginate.getData(), wb, containType,
                             widget.getConfig(), executeParam.getParams());
                 } catch (Exception e) {
                     log.error(e.toString(), e);
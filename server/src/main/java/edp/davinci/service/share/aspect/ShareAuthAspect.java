@@ -19,6 +19,8 @@
 package edp.davinci.service.share.aspect;
 
 import com.alibaba.druid.util.StringUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import edp.core.annotation.AuthShare;
 import edp.core.exception.ForbiddenException;
 import edp.core.exception.NotFoundException;
@@ -27,6 +29,7 @@ import edp.core.exception.UnAuthorizedException;
 import edp.core.utils.CollectionUtils;
 import edp.davinci.core.common.ErrorMsg;
 import edp.davinci.core.common.ResultMap;
+import edp.davinci.core.utils.PermissionSnapshotCache;
 import edp.davinci.dao.*;
 import edp.davinci.dto.shareDto.ShareInfo;
 import edp.davinci.model.*;
@@ -39,13 +42,20 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Component
 @Aspect
@@ -82,6 +92,31 @@ public class ShareAuthAspect {
     @Autowired
     private ProjectService projectService;
 
+    @Autowired
+    private PermissionSnapshotCache permissionSnapshotCache;
+
+    @Value("${share.token-cache.expire-seconds:600}")
+    private long tokenCacheExpireSeconds;
+
+    @Value("${share.token-cache.maximum-size:10000}")
+    private long tokenCacheMaximumSize;
+
+    /**
+     * token 解析结果缓存，解析结果只与 token 本身有关
+     */
+    private Cache<String, ShareFactor> shareFactorCache;
+
+    @PostConstruct
+    public void init() {
+        if (tokenCacheExpireSeconds <= 0L) {
+            return;
+        }
+        shareFactorCache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, tokenCacheMaximumSize))
+                .expireAfterWrite(tokenCacheExpireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
     @Pointcut("@annotation(edp.core.annotation.AuthShare)")
     public void shareAuth() {
     }
@@ -114,7 +149,7 @@ public class ShareAuthAspect {
             }
         }
 
-        ShareFactor shareFactor = ShareFactor.parseShareFactor(token, TOKEN_SECRET);
+        ShareFactor shareFactor = parseShareFactor(token);
         if (shareFactor.getType() == null) {
             shareFactor.setType(shareType);
         }
@@ -224,8 +259,13 @@ public class ShareAuthAspect {
                     throw new UnAuthorizedException(ErrorMsg.ERR_MSG_AUTHENTICATION);
                 }
                 if (!shareFactor.getViewers().contains(user.getId())) {
-                    Set<RelRoleUser> relRoleUsers = relRoleUserMapper.selectByUserAndRoles(user.getId(), shareFactor.getRoles());
-                    if (CollectionUtils.isEmpty(relRoleUsers)) {
+                    Long userId = user.getId();
+                    Boolean inRoles = permissionSnapshotCache.get(
+                            PermissionSnapshotCache.key("shareRoles", userId, shareFactor.getRoles()), () -> {
+                                Set<RelRoleUser> relRoleUsers = relRoleUserMapper.selectByUserAndRoles(userId, shareFactor.getRoles());
+                                return !CollectionUtils.isEmpty(relRoleUsers);
+                            });
+                    if (!inRoles) {
                         throw new ForbiddenException(ErrorMsg.ERR_MSG_PERMISSION);
                     }
                 }
@@ -247,7 +287,8 @@ public class ShareAuthAspect {
     @Transactional
     protected void verifyPermission(ShareOperation shareOperation, ShareType shareType, ShareFactor shareFactor, User viewer)
             throws NotFoundException, ServerException, ForbiddenException, UnAuthorizedException {
-        User sharer = userMapper.getById(shareFactor.getSharerId());
+        User sharer = getCached(PermissionSnapshotCache.key("userId", shareFactor.getSharerId()),
+                () -> userMapper.getById(shareFactor.getSharerId()));
         if (sharer == null) {
             throw new ForbiddenException(ErrorMsg.ERR_INVALID_SHARER);
         }
@@ -262,12 +303,12 @@ public class ShareAuthAspect {
             case LOAD_DATA:
             case LOAD_DISTINCT_DATA:
                 if (shareFactor.getType() == ShareType.VIEW) {
-                    shareFactor.setShareEntity(viewMapper.getById(shareFactor.getEntityId()));
+                    shareFactor.setShareEntity(getView(shareFactor.getEntityId()));
                     break;
                 }
 
                 if (shareFactor.getType() == ShareType.WIDGET) {
-                    shareFactor.setShareEntity(widgetMapper.getById(shareFactor.getEntityId()));
+                    shareFactor.setShareEntity(getWidget(shareFactor.getEntityId()));
                     break;
                 }
 
@@ -287,23 +328,28 @@ public class ShareAuthAspect {
             case RECORD:
             case FILE:
             case WIDGET:
-                Widget widget = widgetMapper.getById(shareFactor.getEntityId());
+                Widget widget = getWidget(shareFactor.getEntityId());
                 shareFactor.setProjectDetail(projectService.getProjectDetail(widget.getProjectId(), user, false));
                 shareFactor.setShareEntity(widget);
                 break;
             case VIEW:
-                View view = viewMapper.getById(shareFactor.getEntityId());
+                View view = getView(shareFactor.getEntityId());
                 shareFactor.setProjectDetail(projectService.getProjectDetail(view.getProjectId(), user, false));
                 shareFactor.setShareEntity(view);
                 break;
             case DASHBOARD:
-                Dashboard dashboard = dashboardMapper.getById(shareFactor.getEntityId());
-                DashboardPortal portal = dashboardPortalMapper.getById(dashboard.getDashboardPortalId());
+                Dashboard dashboard = getCached(PermissionSnapshotCache.key("dashboard", shareFactor.getEntityId()),
+                        () -> dashboardMapper.getById(shareFactor.getEntityId()), d -> {
+                            DashboardPortal dashboardPortal = getPortal(d.getDashboardPortalId());
+                            return null == dashboardPortal ? null : dashboardPortal.getProjectId();
+                        });
+                DashboardPortal portal = getPortal(dashboard.getDashboardPortalId());
                 shareFactor.setProjectDetail(projectService.getProjectDetail(portal.getProjectId(), user, false));
                 shareFactor.setShareEntity(dashboard);
                 break;
             case DISPLAY:
-                Display display = displayMapper.getById(shareFactor.getEntityId());
+                Display display = getCached(PermissionSnapshotCache.key("display", shareFactor.getEntityId()),
+                        () -> displayMapper.getById(shareFactor.getEntityId()), Display::getProjectId);
                 shareFactor.setProjectDetail(projectService.getProjectDetail(display.getProjectId(), user, false));
                 shareFactor.setShareEntity(display);
                 break;
@@ -312,6 +358,68 @@ public class ShareAuthAspect {
         }
     }
 
+    private Widget getWidget(Long id) {
+        return getCached(PermissionSnapshotCache.key("widget", id), () -> widgetMapper.getById(id), Widget::getProjectId);
+    }
+
+    private View getView(Long id) {
+        return getCached(PermissionSnapshotCache.key("view", id), () -> viewMapper.getById(id), View::getProjectId);
+    }
+
+    private DashboardPortal getPortal(Long id) {
+        return getCached(PermissionSnapshotCache.key("portal", id), () -> dashboardPortalMapper.getById(id),
+                DashboardPortal::getProjectId);
+    }
+
+    /**
+     * 从权限快照缓存获取实体，返回副本避免后续处理修改缓存对象
+     *
+     * @param key
+     * @param loader
+     * @return
+     */
+    private <T> T getCached(String key, Supplier<T> loader) {
+        return copyOf(permissionSnapshotCache.get(key, loader));
+    }
+
+    /**
+     * 从权限快照缓存获取项目内 viz 实体，项目内 viz 变更时失效，返回副本
+     *
+     * @param key
+     * @param loader
+     * @param projectOf
+     * @return
+     */
+    private <T> T getCached(String key, Supplier<T> loader, Function<T, Long> projectOf) {
+        return copyOf(permissionSnapshotCache.get(key, loader, projectOf));
+    }
+
+    /**
+     * 解析分享 token，返回副本
+     *
+     * @param token
+     * @return
+     */
+    private ShareFactor parseShareFactor(String token) {
+        if (null == shareFactorCache) {
+            return ShareFactor.parseShareFactor(token, TOKEN_SECRET);
+        }
+        try {
+            return copyOf(shareFactorCache.get(token, () -> ShareFactor.parseShareFactor(token, TOKEN_SECRET)));
+        } catch (ExecutionException e) {
+            return ShareFactor.parseShareFactor(token, TOKEN_SECRET);
+        }
+    }
+
+    private static <T> T copyOf(T source) {
+        if (null == source) {
+            return null;
+        }
+        T target = (T) BeanUtils.instantiateClass(source.getClass());
+        BeanUtils.copyProperties(source, target);
+        return target;
+    }
+
     /**
      * 兼容老版本token
      *
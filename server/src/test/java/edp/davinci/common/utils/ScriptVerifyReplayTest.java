@@ -0,0 +1,70 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.common.utils;
+
+import com.alibaba.fastjson.JSON;
+import org.junit.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 回放 script-verify 目录下的用例，比较执行参数及表头的 java 实现与 js 脚本结果
+ * synthetic-* 为手工构造的用例，线上配置可通过 ScriptVerifyRunner 的 fixture-dir 导出后放入该目录
+ */
+public class ScriptVerifyReplayTest {
+
+    @Test
+    public void replay() throws Exception {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:script-verify/*.json");
+        assertTrue("no script verify fixtures", resources.length > 0);
+
+        List<String> mismatches = new ArrayList<>();
+        for (Resource resource : resources) {
+            ScriptVerifyCase verifyCase;
+            try (InputStream in = resource.getInputStream()) {
+                verifyCase = JSON.parseObject(in, StandardCharsets.UTF_8, ScriptVerifyCase.class);
+            }
+
+            ScriptUtils.Comparison comparison = ScriptUtils.compareViewExecuteParam(verifyCase.getDashboardConfig(),
+                    verifyCase.getWidgetConfig(), new LinkedHashSet<>(verifyCase.getViews()), verifyCase.getRelationId());
+            check(verifyCase.getName() + " executeParam", comparison, mismatches);
+
+            if (verifyCase.getParams() != null) {
+                check(verifyCase.getName() + " header",
+                        ScriptUtils.compareHeader(verifyCase.getWidgetConfig(), verifyCase.getParams()), mismatches);
+            }
+        }
+        assertTrue(String.join("\n", mismatches), mismatches.isEmpty());
+    }
+
+    private void check(String name, ScriptUtils.Comparison comparison, List<String> mismatches) {
+        if (!comparison.isMatched()) {
+            mismatches.add(name + "\n  native: " + comparison.getNativeResult() + "\n  script: " + comparison.getScriptResult());
+        }
+    }
+}
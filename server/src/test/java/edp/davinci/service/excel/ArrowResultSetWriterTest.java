@@ -0,0 +1,247 @@
+/*
+ * <<
+ *  Davinci
+ *  ==
+ *  Copyright (C) 2016 - 2019 EDP
+ *  ==
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *  >>
+ *
+ */
+
+package edp.davinci.service.excel;
+
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 导出的 Arrow 文件须能被 Arrow Java 及 pyarrow 读取，压缩与不压缩两种输出都要验证
+ * 本机安装了 pyarrow 时才执行 pyarrow 部分
+ */
+public class ArrowResultSetWriterTest {
+
+    private static final int ROWS = 10;
+
+    private static final int BATCH_ROWS = 3;
+
+    private static final List<String> NAMES = Arrays.asList("id", "name", "amount", "flag", "day", "ts", "ratio");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readUncompressedWithArrowJava() throws Exception {
+        assertReadable(write(false, null));
+    }
+
+    @Test
+    public void readCompressedWithArrowJava() throws Exception {
+        assertReadable(write(true, null));
+    }
+
+    @Test
+    public void readWithPyarrow() throws Exception {
+        Assume.assumeTrue("pyarrow is not installed", python("import pyarrow").exitCode == 0);
+        for (boolean compress : new boolean[]{false, true}) {
+            File file = write(compress, null);
+            PythonResult result = python("import sys, pyarrow.ipc as ipc\n"
+                    + "t = ipc.open_file(sys.argv[1]).read_all()\n"
+                    + "print(t.num_rows, ','.join(t.schema.names))\n"
+                    + "print(t.column('id')[1], t.column('name')[1], t.column('amount')[1], t.column('day')[1], t.column('ts')[1])\n"
+                    + "print(t.column('name')[0])\n", file.getAbsolutePath());
+            assertEquals(result.output, 0, result.exitCode);
+            String[] lines = result.output.trim().split("\n");
+            assertEquals(ROWS + " " + String.join(",", NAMES), lines[0].trim());
+            assertEquals("1 name-1 1.01 2020-01-02 2020-01-01 10:00:01.000001", lines[1].trim());
+            assertEquals("None", lines[2].trim());
+        }
+    }
+
+    @Test
+    public void failOnDecimalOverflow() throws Exception {
+        try {
+            write(false, new BigDecimal("123456789.12"));
+            fail("decimal overflow should fail the export");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("'amount'"));
+        }
+    }
+
+    private File write(boolean compress, BigDecimal overflow) throws Exception {
+        CachedRowSet rs = createRowSet(overflow);
+        File file = folder.newFile();
+        try (ArrowResultSetWriter writer = new ArrowResultSetWriter(new FileOutputStream(file), BATCH_ROWS, compress)) {
+            writer.start(rs.getMetaData(), NAMES, new int[]{1, 2, 3, 4, 5, 6, 7});
+            while (rs.next()) {
+                writer.writeRow(rs);
+            }
+            assertEquals(ROWS, writer.getTotalRows());
+        }
+        return file;
+    }
+
+    private void assertReadable(File file) throws Exception {
+        try (BufferAllocator allocator = new RootAllocator();
+             FileInputStream in = new FileInputStream(file);
+             ArrowFileReader reader = new ArrowFileReader(in.getChannel(), allocator, CommonsCompressionFactory.INSTANCE)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(NAMES.size(), root.getSchema().getFields().size());
+            for (int i = 0; i < NAMES.size(); i++) {
+                assertEquals(NAMES.get(i), root.getSchema().getFields().get(i).getName());
+            }
+            assertEquals(new ArrowType.Decimal(10, 2, 128), root.getSchema().findField("amount").getType());
+            assertEquals((ROWS + BATCH_ROWS - 1) / BATCH_ROWS, reader.getRecordBlocks().size());
+
+            int row = 0;
+            while (reader.loadNextBatch()) {
+                for (int i = 0; i < root.getRowCount(); i++, row++) {
+                    assertEquals((long) row, root.getVector("id").getObject(i));
+                    if (row % 5 == 0) {
+                        assertNull(root.getVector("name").getObject(i));
+                        assertNull(root.getVector("amount").getObject(i));
+                    } else {
+                        assertEquals("name-" + row, root.getVector("name").getObject(i).toString());
+                        assertEquals(amount(row), root.getVector("amount").getObject(i));
+                    }
+                    assertEquals(row % 2 == 0, root.getVector("flag").getObject(i));
+                    assertEquals(Integer.valueOf((int) day(row).toLocalDate().toEpochDay()), root.getVector("day").getObject(i));
+                    assertEquals(timestamp(row).toLocalDateTime(), root.getVector("ts").getObject(i));
+                    assertEquals(row / 4D, root.getVector("ratio").getObject(i));
+                }
+            }
+            assertEquals(ROWS, row);
+        }
+    }
+
+    private static CachedRowSet createRowSet(BigDecimal overflow) throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(NAMES.size());
+        int[] types = {Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.BOOLEAN, Types.DATE, Types.TIMESTAMP, Types.DOUBLE};
+        for (int i = 0; i < types.length; i++) {
+            metaData.setColumnName(i + 1, NAMES.get(i));
+            metaData.setColumnLabel(i + 1, NAMES.get(i));
+            metaData.setColumnType(i + 1, types[i]);
+            metaData.setSigned(i + 1, true);
+            metaData.setNullable(i + 1, RowSetMetaDataImpl.columnNullable);
+        }
+        metaData.setPrecision(3, 10);
+        metaData.setScale(3, 2);
+
+        CachedRowSet rs = RowSetProvider.newFactory().createCachedRowSet();
+        rs.setMetaData(metaData);
+        for (int row = 0; row < ROWS; row++) {
+            // 插入到当前行之后，先移到末行以保持顺序
+            rs.last();
+            rs.moveToInsertRow();
+            rs.updateLong(1, row);
+            if (row % 5 == 0) {
+                rs.updateNull(2);
+                rs.updateNull(3);
+            } else {
+                rs.updateString(2, "name-" + row);
+                rs.updateBigDecimal(3, null != overflow && row == ROWS - 1 ? overflow : amount(row));
+            }
+            rs.updateBoolean(4, row % 2 == 0);
+            rs.updateDate(5, day(row));
+            rs.updateTimestamp(6, timestamp(row));
+            rs.updateDouble(7, row / 4D);
+            rs.insertRow();
+            rs.moveToCurrentRow();
+        }
+        rs.beforeFirst();
+        return rs;
+    }
+
+    private static BigDecimal amount(int row) {
+        return new BigDecimal(row + "." + String.format("%02d", row));
+    }
+
+    private static Date day(int row) {
+        return Date.valueOf("2020-01-" + String.format("%02d", row + 1));
+    }
+
+    private static Timestamp timestamp(int row) {
+        Timestamp timestamp = Timestamp.valueOf("2020-01-01 10:00:0" + row);
+        timestamp.setNanos(row * 1000);
+        return timestamp;
+    }
+
+    private static PythonResult python(String script, String... args) throws Exception {
+        String[] command = new String[args.length + 3];
+        command[0] = "python3";
+        command[1] = "-c";
+        command[2] = script;
+        System.arraycopy(args, 0, command, 3, args.length);
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            return new PythonResult(-1, e.getMessage());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            return new PythonResult(-1, "python timeout");
+        }
+        return new PythonResult(process.exitValue(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static final class PythonResult {
+
+        private final int exitCode;
+
+        private final String output;
+
+        PythonResult(int exitCode, String output) {
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+    }
+}